@@ -0,0 +1,96 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datos de entrada de los benchmarks, leídos de los archivos de {@code training_data} y
+ * {@code demo_data} incluidos en el repositorio para que los resultados sean reproducibles
+ * sin conexión. Las rutas son relativas al directorio raíz del proyecto.
+ */
+final class BenchmarkData {
+
+  /**
+   * Número máximo de oraciones que se leen de los corpus grandes.
+   */
+  static final int MAX_SENTENCES = 500;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Lee un archivo de texto completo.
+   */
+  static String text(String path) throws IOException {
+    return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Lee las líneas no vacías de un archivo.
+   */
+  static List<String> lines(String path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+      if (!line.trim().isEmpty()) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Lee oraciones del corpus CoNLL-2000 ({@code token POS chunk} por línea, oraciones
+   * separadas por una línea en blanco).
+   *
+   * @return Para cada oración, un par {tokens, etiquetas POS}.
+   */
+  static List<String[][]> conllSentences() throws IOException {
+    List<String[][]> sentences = new ArrayList<>();
+    List<String> tokens = new ArrayList<>();
+    List<String> tags = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get("training_data/conll2000-chunker.train"), StandardCharsets.UTF_8)) {
+      if (line.trim().isEmpty()) {
+        if (!tokens.isEmpty()) {
+          sentences.add(new String[][] {tokens.toArray(new String[0]), tags.toArray(new String[0])});
+          tokens.clear();
+          tags.clear();
+          if (sentences.size() == MAX_SENTENCES) {
+            break;
+          }
+        }
+      } else {
+        String[] columns = line.split(" ");
+        tokens.add(columns[0]);
+        tags.add(columns[1]);
+      }
+    }
+    return sentences;
+  }
+
+  /**
+   * Lee las oraciones de entrenamiento del detector de nombres sin las marcas de entidad,
+   * ya tokenizadas por espacios.
+   */
+  static List<String[]> nameFinderSentences() throws IOException {
+    List<String[]> sentences = new ArrayList<>();
+    for (String line : lines("training_data/en-ner-person.train")) {
+      sentences.add(line.replaceAll("<START(:[^>]*)?>|<END>", " ").trim().split("\\s+"));
+    }
+    return sentences;
+  }
+
+  /**
+   * Lee los textos del corpus de categorización, sin la categoría inicial de cada línea.
+   */
+  static List<String> doccatTexts() throws IOException {
+    List<String> texts = new ArrayList<>();
+    for (String line : lines("training_data/en-doccat.train")) {
+      texts.add(line.substring(line.indexOf(' ') + 1));
+    }
+    return texts;
+  }
+}
@@ -0,0 +1,37 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.chunker.ChunkerME;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code ChunkerME.chunk} sobre oraciones y etiquetas POS de referencia de
+ * {@code training_data/conll2000-chunker.train}.
+ */
+@State(Scope.Thread)
+public class ChunkerBenchmark extends ComponentBenchmark {
+
+  private ChunkerME chunker;
+  private List<String[][]> sentences;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    chunker = new ChunkerME(ModelRegistry.getInstance().getChunkerModel());
+    sentences = BenchmarkData.conllSentences();
+  }
+
+  @Benchmark
+  public String[] chunk() {
+    String[][] sentence = sentences.get(next++ % sentences.size());
+    return chunker.chunk(sentence[0], sentence[1]);
+  }
+}
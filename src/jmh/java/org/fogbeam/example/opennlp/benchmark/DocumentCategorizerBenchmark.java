@@ -0,0 +1,35 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.doccat.DocumentCategorizerME;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code DocumentCategorizerME.categorize} sobre los textos de {@code training_data/en-doccat.train}.
+ */
+@State(Scope.Thread)
+public class DocumentCategorizerBenchmark extends ComponentBenchmark {
+
+  private DocumentCategorizerME categorizer;
+  private List<String> texts;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    categorizer = new DocumentCategorizerME(ModelRegistry.getInstance().getDoccatModel());
+    texts = BenchmarkData.doccatTexts();
+  }
+
+  @Benchmark
+  public double[] categorize() {
+    return categorizer.categorize(texts.get(next++ % texts.size()));
+  }
+}
@@ -0,0 +1,64 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * Mide el tiempo de carga de cada modelo de {@code models/}. Se pueden medir otros archivos
+ * con {@code -p model=...}; el tipo de modelo se deduce del prefijo del nombre.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModelLoadBenchmark {
+
+  @Param({"en-token.model", "en-token.bin", "en-sent.model", "en-ner-person.model", "en-pos-perceptron.bin"})
+  public String model;
+
+  @Benchmark
+  public Object load() throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream("models/" + model))) {
+      if (model.startsWith("en-token")) {
+        return new TokenizerModel(in);
+      } else if (model.startsWith("en-sent")) {
+        return new SentenceModel(in);
+      } else if (model.startsWith("en-ner")) {
+        return new TokenNameFinderModel(in);
+      } else if (model.startsWith("en-pos")) {
+        return new POSModel(in);
+      } else if (model.startsWith("en-chunker")) {
+        return new ChunkerModel(in);
+      } else if (model.startsWith("en-parser")) {
+        return new ParserModel(in);
+      } else if (model.startsWith("en-doccat")) {
+        return new DoccatModel(in);
+      }
+      throw new IllegalArgumentException("Tipo de modelo desconocido: " + model);
+    }
+  }
+}
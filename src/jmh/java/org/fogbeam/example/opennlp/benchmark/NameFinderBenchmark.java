@@ -0,0 +1,38 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code NameFinderME.find} sobre las oraciones de {@code training_data/en-ner-person.train}.
+ */
+@State(Scope.Thread)
+public class NameFinderBenchmark extends ComponentBenchmark {
+
+  private NameFinderME nameFinder;
+  private List<String[]> sentences;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    nameFinder = new NameFinderME(ModelRegistry.getInstance().getNameFinderModel());
+    sentences = BenchmarkData.nameFinderSentences();
+  }
+
+  @Benchmark
+  public Span[] find() {
+    Span[] names = nameFinder.find(sentences.get(next++ % sentences.size()));
+    nameFinder.clearAdaptiveData();
+    return names;
+  }
+}
@@ -0,0 +1,35 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.postag.POSTaggerME;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code POSTaggerME.tag} sobre oraciones de {@code training_data/conll2000-chunker.train}.
+ */
+@State(Scope.Thread)
+public class POSTaggerBenchmark extends ComponentBenchmark {
+
+  private POSTaggerME tagger;
+  private List<String[][]> sentences;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    tagger = new POSTaggerME(ModelRegistry.getInstance().getPOSModel());
+    sentences = BenchmarkData.conllSentences();
+  }
+
+  @Benchmark
+  public String[] tag() {
+    return tagger.tag(sentences.get(next++ % sentences.size())[0]);
+  }
+}
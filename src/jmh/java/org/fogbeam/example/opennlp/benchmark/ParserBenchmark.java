@@ -0,0 +1,42 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.cmdline.parser.ParserTool;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.parser.Parser;
+import opennlp.tools.parser.ParserFactory;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code ParserTool.parseLine} sobre oraciones de {@code training_data/conll2000-chunker.train}.
+ */
+@State(Scope.Thread)
+public class ParserBenchmark extends ComponentBenchmark {
+
+  private Parser parser;
+  private List<String> sentences;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    parser = ParserFactory.create(ModelRegistry.getInstance().getParserModel());
+    sentences = new ArrayList<>();
+    for (String[][] sentence : BenchmarkData.conllSentences()) {
+      sentences.add(String.join(" ", sentence[0]));
+    }
+  }
+
+  @Benchmark
+  public Parse[] parseLine() {
+    return ParserTool.parseLine(sentences.get(next++ % sentences.size()), parser, 1);
+  }
+}
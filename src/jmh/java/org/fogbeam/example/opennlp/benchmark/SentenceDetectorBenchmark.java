@@ -0,0 +1,33 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.sentdetect.SentenceDetectorME;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code SentenceDetectorME.sentDetect} sobre el documento completo de {@code demo_data/en-sent1.demo}.
+ */
+@State(Scope.Thread)
+public class SentenceDetectorBenchmark extends ComponentBenchmark {
+
+  private SentenceDetectorME detector;
+  private String text;
+
+  @Setup
+  public void setUp() throws IOException {
+    detector = new SentenceDetectorME(ModelRegistry.getInstance().getSentenceModel());
+    text = BenchmarkData.text("demo_data/en-sent1.demo");
+  }
+
+  @Benchmark
+  public String[] sentDetect() {
+    return detector.sentDetect(text);
+  }
+}
@@ -0,0 +1,35 @@
+package org.fogbeam.example.opennlp.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import opennlp.tools.tokenize.TokenizerME;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+
+/**
+ * Mide {@code TokenizerME.tokenize} sobre las líneas de {@code demo_data/en-sent1.demo}.
+ */
+@State(Scope.Thread)
+public class TokenizerBenchmark extends ComponentBenchmark {
+
+  private TokenizerME tokenizer;
+  private List<String> lines;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    tokenizer = new TokenizerME(ModelRegistry.getInstance().getTokenizerModel());
+    lines = BenchmarkData.lines("demo_data/en-sent1.demo");
+  }
+
+  @Benchmark
+  public String[] tokenize() {
+    return tokenizer.tokenize(lines.get(next++ % lines.size()));
+  }
+}
@@ -0,0 +1,231 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+
+/**
+ * Clasificador de documentos por lotes que reparte los documentos entre varios hilos.
+ * El modelo es inmutable y se comparte; cada hilo trabaja con su propia instancia de
+ * DocumentCategorizerME, ya que no es thread-safe. De cada documento se devuelven las
+ * k categorías más probables.
+ */
+public class BatchDocumentClassifier {
+
+  /**
+   * Número de categorías que se devuelven por defecto.
+   */
+  public static final int DEFAULT_TOP_K = 3;
+
+  /**
+   * Número máximo de documentos pendientes de entregar por cada hilo de trabajo.
+   */
+  private static final int DOCUMENTS_IN_FLIGHT_PER_THREAD = 64;
+
+  /**
+   * Documento que se clasifica.
+   */
+  public static final class Document {
+    private final String id;
+    private final String text;
+
+    /**
+     * @param id Identificador del documento en la salida (número de línea, nombre de archivo...).
+     * @param text Texto del documento.
+     */
+    public Document(String id, String text) {
+      this.id = id;
+      this.text = text;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getText() {
+      return text;
+    }
+  }
+
+  /**
+   * Categorías más probables de un documento, de mayor a menor probabilidad.
+   */
+  public static final class Result {
+    private final String id;
+    private final String[] categories;
+    private final double[] probabilities;
+
+    Result(String id, String[] categories, double[] probabilities) {
+      this.id = id;
+      this.categories = categories;
+      this.probabilities = probabilities;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String[] getCategories() {
+      return categories;
+    }
+
+    public double[] getProbabilities() {
+      return probabilities;
+    }
+
+    /**
+     * Formatea el resultado en una línea: el identificador y cada categoría con su
+     * probabilidad, separados por tabuladores ({@code id	categoría:0.8123	...}).
+     *
+     * @return La línea, sin salto final.
+     */
+    public String format() {
+      StringBuilder out = new StringBuilder(id);
+      for (int i = 0; i < categories.length; i++) {
+        out.append('\t').append(categories[i]).append(':').append(String.format("%.4f", probabilities[i]));
+      }
+      return out.toString();
+    }
+  }
+
+  /**
+   * Número de hilos de trabajo.
+   */
+  private final int threads;
+
+  /**
+   * Número de categorías que se devuelven por documento.
+   */
+  private final int topK;
+
+  /**
+   * Categorizador propio de cada hilo, construido a partir del modelo compartido.
+   */
+  private final ThreadLocal<DocumentCategorizerME> categorizers;
+
+  /**
+   * Caché de probabilidades por documento, o null si no se usa.
+   */
+  private final ResultCache<double[]> cache;
+
+  /**
+   * Crea un clasificador por lotes.
+   *
+   * @param model Modelo de categorización compartido entre los hilos.
+   * @param threads Número de hilos de trabajo.
+   * @param topK Número de categorías que se devuelven por documento.
+   * @param cache Caché de probabilidades por documento, o null para no usarla.
+   */
+  public BatchDocumentClassifier(DoccatModel model, int threads, int topK, ResultCache<double[]> cache) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("El número de hilos debe ser mayor que 0: " + threads);
+    }
+    if (topK < 1) {
+      throw new IllegalArgumentException("El número de categorías debe ser mayor que 0: " + topK);
+    }
+    this.threads = threads;
+    this.topK = topK;
+    this.categorizers = ThreadLocal.withInitial(() -> HashedBagOfWordsFeatureGenerator.createCategorizer(model));
+    this.cache = cache;
+  }
+
+  /**
+   * Clasifica un documento con el categorizador del hilo actual.
+   *
+   * @param document Documento que se clasifica.
+   * @return Las categorías más probables del documento.
+   */
+  public Result classify(Document document) {
+    DocumentCategorizerME categorizer = categorizers.get();
+    long start = Metrics.start();
+    double[] outcomes = cache == null
+            ? categorizer.categorize(document.getText())
+            : cache.get(document.getText(), categorizer::categorize);
+    Metrics.DOCCAT.stop(start, 1);
+
+    int k = Math.min(topK, outcomes.length);
+    int[] best = topIndices(outcomes, k);
+    String[] categories = new String[k];
+    double[] probabilities = new double[k];
+    for (int i = 0; i < k; i++) {
+      categories[i] = categorizer.getCategory(best[i]);
+      probabilities[i] = outcomes[best[i]];
+    }
+    return new Result(document.getId(), categories, probabilities);
+  }
+
+  /**
+   * Clasifica los documentos en paralelo y entrega los resultados en el mismo orden en
+   * que se reciben. Solo se mantienen en memoria unos pocos documentos por hilo a la vez,
+   * por lo que la entrada puede ser tan grande como se quiera.
+   *
+   * @param documents Documentos que se clasifican.
+   * @param results Consumidor que recibe cada resultado, siempre desde el hilo que llama.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera resultados.
+   */
+  public void classifyAll(Iterator<Document> documents, Consumer<Result> results) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Deque<Future<Result>> pending = new ArrayDeque<>();
+    int maxInFlight = threads * DOCUMENTS_IN_FLIGHT_PER_THREAD;
+
+    try {
+      while (documents.hasNext()) {
+        Document document = documents.next();
+        pending.add(executor.submit(() -> classify(document)));
+
+        // Limita los resultados en memoria entregando el documento más antiguo
+        if (pending.size() >= maxInFlight) {
+          results.accept(get(pending.poll()));
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        results.accept(get(pending.poll()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Result get(Future<Result> result) throws InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error al clasificar un documento: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Devuelve los índices de los k valores mayores, de mayor a menor. Con pocas
+   * categorías una selección directa es más barata que ordenar.
+   */
+  static int[] topIndices(double[] values, int k) {
+    int[] best = new int[k];
+    int count = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (count < k) {
+        count++;
+      } else if (values[i] <= values[best[k - 1]]) {
+        continue;
+      }
+      // Inserta i en su posición desplazando los menores
+      int j = count - 1;
+      while (j > 0 && values[best[j - 1]] < values[i]) {
+        best[j] = best[j - 1];
+        j--;
+      }
+      best[j] = i;
+    }
+    return best;
+  }
+}
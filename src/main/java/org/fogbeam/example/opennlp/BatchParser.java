@@ -0,0 +1,413 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import opennlp.tools.parser.AbstractBottomUpParser;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+
+/**
+ * Analizador sintáctico por lotes con un presupuesto de tiempo por oración.
+ *
+ * Las oraciones se reparten entre varios hilos; el modelo es inmutable y se comparte, y
+ * cada hilo trabaja con su propio analizador, ya que el de OpenNLP no es thread-safe.
+ *
+ * El coste del analizador por chunks crece mucho con la longitud de la oración. Para
+ * que una oración larga no bloquee un hilo durante segundos, el analizador comprueba el
+ * tiempo consumido en cada paso de la búsqueda y, si la oración supera su presupuesto,
+ * abandona la búsqueda y devuelve un análisis superficial: etiquetas POS y chunks bajo
+ * el nodo TOP, obtenidos con el etiquetador y el chunker del propio modelo. El tamaño del
+ * haz también es configurable, para reducir el coste de todas las oraciones.
+ */
+public class BatchParser {
+
+  /**
+   * Presupuesto de tiempo por defecto para cada oración, en milisegundos.
+   */
+  public static final long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+
+  /**
+   * Número máximo de oraciones pendientes de entregar por cada hilo de trabajo.
+   */
+  private static final int SENTENCES_IN_FLIGHT_PER_THREAD = 4;
+
+  /**
+   * Separan los paréntesis pegados a una palabra, igual que ParserTool.parseLine.
+   */
+  private static final Pattern UNTOKENIZED_PAREN_1 = Pattern.compile("([^ ])([({)}])");
+  private static final Pattern UNTOKENIZED_PAREN_2 = Pattern.compile("([({)}])([^ ])");
+
+  /**
+   * Guarda los árboles en la caché de resultados con la notación de Penn Treebank.
+   * Parse.parseParse deja un espacio de más al final del texto del árbol, así que al leer
+   * se reconstruye el árbol sobre los tokens para que se imprima igual que el original.
+   */
+  public static final ResultCache.ValueCodec<Parse> PARSE_CODEC = new ResultCache.ValueCodec<Parse>() {
+    @Override
+    public String encode(Parse parse) {
+      StringBuffer out = new StringBuffer();
+      parse.show(out);
+      return out.toString();
+    }
+
+    @Override
+    public Parse decode(String text) {
+      Parse parsed = Parse.parseParse(text);
+      List<String> tokens = new ArrayList<>();
+      for (Parse tag : parsed.getTagNodes()) {
+        tokens.add(tag.getCoveredText());
+      }
+      Parse top = tokenParse(tokens, parsed.getType());
+      Parse[] tokenNodes = top.getChildren();
+      int next = 0;
+      for (Parse child : parsed.getChildren()) {
+        next = copyConstituents(child, top, tokenNodes, next);
+      }
+      return top;
+    }
+  };
+
+  /**
+   * Resultado del análisis de una oración.
+   */
+  public static final class Result {
+    private final String sentence;
+    private final Parse parse;
+    private final boolean shallow;
+    private final long nanos;
+
+    Result(String sentence, Parse parse, boolean shallow, long nanos) {
+      this.sentence = sentence;
+      this.parse = parse;
+      this.shallow = shallow;
+      this.nanos = nanos;
+    }
+
+    /**
+     * @return La oración analizada.
+     */
+    public String getSentence() {
+      return sentence;
+    }
+
+    /**
+     * @return El árbol sintáctico, completo o superficial.
+     */
+    public Parse getParse() {
+      return parse;
+    }
+
+    /**
+     * @return true si la oración agotó su presupuesto y el árbol es solo de chunks.
+     */
+    public boolean isShallow() {
+      return shallow;
+    }
+
+    /**
+     * @return Tiempo empleado en la oración, en nanosegundos.
+     */
+    public long getNanos() {
+      return nanos;
+    }
+  }
+
+  /**
+   * Número de hilos de trabajo.
+   */
+  private final int threads;
+
+  /**
+   * Analizador propio de cada hilo, construido a partir del modelo compartido.
+   */
+  private final ThreadLocal<BudgetedParser> parsers;
+
+  /**
+   * Caché de árboles completos por oración, o null si no se usa.
+   */
+  private final ResultCache<Parse> cache;
+
+  /**
+   * Crea un analizador por lotes con el presupuesto y el haz por defecto.
+   *
+   * @param model Modelo del analizador compartido entre los hilos.
+   * @param threads Número de hilos de trabajo.
+   */
+  public BatchParser(ParserModel model, int threads) {
+    this(model, threads, DEFAULT_TIME_BUDGET_MILLIS, AbstractBottomUpParser.defaultBeamSize);
+  }
+
+  /**
+   * Crea un analizador por lotes.
+   *
+   * @param model Modelo del analizador compartido entre los hilos.
+   * @param threads Número de hilos de trabajo.
+   * @param timeBudgetMillis Tiempo máximo de búsqueda por oración, en milisegundos.
+   * @param beamSize Tamaño del haz de la búsqueda.
+   */
+  public BatchParser(ParserModel model, int threads, long timeBudgetMillis, int beamSize) {
+    this(model, threads, timeBudgetMillis, beamSize, null);
+  }
+
+  /**
+   * Crea un analizador por lotes con caché de resultados. Solo se guardan los árboles
+   * completos: una oración que agotó su presupuesto se vuelve a intentar la próxima vez.
+   *
+   * @param model Modelo del analizador compartido entre los hilos.
+   * @param threads Número de hilos de trabajo.
+   * @param timeBudgetMillis Tiempo máximo de búsqueda por oración, en milisegundos.
+   * @param beamSize Tamaño del haz de la búsqueda.
+   * @param cache Caché de árboles por oración, o null para no usarla.
+   */
+  public BatchParser(ParserModel model, int threads, long timeBudgetMillis, int beamSize,
+                     ResultCache<Parse> cache) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("El número de hilos debe ser mayor que 0: " + threads);
+    }
+    if (timeBudgetMillis < 1) {
+      throw new IllegalArgumentException("El presupuesto de tiempo debe ser mayor que 0: " + timeBudgetMillis);
+    }
+    long timeBudgetNanos = timeBudgetMillis * 1000000;
+    this.threads = threads;
+    this.parsers = ThreadLocal.withInitial(() -> new BudgetedParser(model, beamSize, timeBudgetNanos));
+    this.cache = cache;
+  }
+
+  /**
+   * Analiza una oración ya tokenizada (tokens separados por espacios) con el analizador
+   * del hilo actual.
+   *
+   * @param sentence Oración que se analiza.
+   * @return El resultado del análisis. Si viene de la caché, el árbol es compartido y no
+   *         debe modificarse.
+   */
+  public Result parse(String sentence) {
+    long start = System.nanoTime();
+    Parse cached = cache == null ? null : cache.getIfPresent(sentence);
+    if (cached != null) {
+      return record(new Result(sentence, cached, false, System.nanoTime() - start));
+    }
+
+    BudgetedParser parser = parsers.get();
+    List<String> tokens = tokenize(sentence);
+    Parse parse = parser.parseWithinBudget(tokens);
+    boolean shallow = parse == null;
+    if (shallow) {
+      parse = parser.shallowParse(tokens);
+    } else if (cache != null) {
+      cache.put(sentence, parse);
+    }
+    return record(new Result(sentence, parse, shallow, System.nanoTime() - start));
+  }
+
+  private static Result record(Result result) {
+    Metrics.PARSE.record(result.getNanos(), 1);
+    return result;
+  }
+
+  /**
+   * Analiza las oraciones en paralelo y entrega los resultados en el mismo orden en que
+   * se reciben. Solo se mantienen en memoria unas pocas oraciones por hilo a la vez.
+   *
+   * @param sentences Oraciones que se analizan.
+   * @param results Consumidor que recibe cada resultado, siempre desde el hilo que llama.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera resultados.
+   */
+  public void parseAll(Iterator<String> sentences, Consumer<Result> results) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Deque<Future<Result>> pending = new ArrayDeque<>();
+    int maxInFlight = threads * SENTENCES_IN_FLIGHT_PER_THREAD;
+
+    try {
+      while (sentences.hasNext()) {
+        String sentence = sentences.next();
+        pending.add(executor.submit(() -> parse(sentence)));
+
+        // Limita los resultados en memoria entregando la oración más antigua
+        if (pending.size() >= maxInFlight) {
+          results.accept(get(pending.poll()));
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        results.accept(get(pending.poll()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Result get(Future<Result> result) throws InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Error al analizar una oración: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Separa una oración en tokens de la misma forma que ParserTool.parseLine.
+   */
+  static List<String> tokenize(String sentence) {
+    sentence = UNTOKENIZED_PAREN_1.matcher(sentence).replaceAll("$1 $2");
+    sentence = UNTOKENIZED_PAREN_2.matcher(sentence).replaceAll("$1 $2");
+    List<String> tokens = new ArrayList<>();
+    StringTokenizer tokenizer = new StringTokenizer(sentence);
+    while (tokenizer.hasMoreTokens()) {
+      tokens.add(tokenizer.nextToken());
+    }
+    return tokens;
+  }
+
+  /**
+   * Construye el nodo inicial del analizador, con un nodo TK por token.
+   */
+  static Parse tokenParse(List<String> tokens, String type) {
+    String text = String.join(" ", tokens);
+    Parse parse = new Parse(text, new Span(0, text.length()), type, 0, 0);
+    int start = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      String token = tokens.get(i);
+      parse.insert(new Parse(text, new Span(start, start + token.length()), AbstractBottomUpParser.TOK_NODE, 0, i));
+      start += token.length() + 1;
+    }
+    return parse;
+  }
+
+  /**
+   * Copia un constituyente y sus descendientes en el árbol de destino. Los hijos se
+   * insertan antes que el padre para que, en las cadenas unarias con el mismo span, el
+   * padre adopte al hijo y no al revés.
+   *
+   * @return El índice del primer token tras el constituyente.
+   */
+  private static int copyConstituents(Parse node, Parse top, Parse[] tokenNodes, int next) {
+    if (node.isPosTag()) {
+      top.insert(new Parse(top.getText(), tokenNodes[next].getSpan(), node.getType(), 1, next));
+      return next + 1;
+    }
+    int start = next;
+    for (Parse child : node.getChildren()) {
+      next = copyConstituents(child, top, tokenNodes, next);
+    }
+    if (next > start) {
+      Span span = new Span(tokenNodes[start].getSpan().getStart(), tokenNodes[next - 1].getSpan().getEnd());
+      top.insert(new Parse(top.getText(), span, node.getType(), 1, next - 1));
+    }
+    return next;
+  }
+
+  /**
+   * Señala que una oración ha agotado su presupuesto de tiempo.
+   */
+  private static final class BudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    BudgetExceededException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Analizador por chunks que abandona la búsqueda cuando se agota el presupuesto.
+   * La comprobación se hace antes de cada paso de la búsqueda, por lo que el exceso
+   * sobre el presupuesto es como mucho el coste de un paso más el del análisis
+   * superficial, y ambos crecen de forma lineal con la longitud de la oración.
+   */
+  private static final class BudgetedParser extends opennlp.tools.parser.chunking.Parser {
+    private final long budgetNanos;
+    private long deadline;
+
+    BudgetedParser(ParserModel model, int beamSize, long budgetNanos) {
+      super(model, beamSize, AbstractBottomUpParser.defaultAdvancePercentage);
+      this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Analiza los tokens, o devuelve null si se agota el presupuesto. El analizador
+     * vacía su estado al empezar cada análisis, así que sigue siendo válido después.
+     */
+    Parse parseWithinBudget(List<String> tokens) {
+      deadline = System.nanoTime() + budgetNanos;
+      try {
+        return parse(tokenParse(tokens, AbstractBottomUpParser.INC_NODE));
+      } catch (BudgetExceededException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Construye un análisis superficial: los chunks del modelo y, dentro de ellos, las
+     * etiquetas POS, todo bajo el nodo TOP.
+     */
+    Parse shallowParse(List<String> tokens) {
+      String[] words = tokens.toArray(new String[0]);
+      String[] tags = tagger.tag(words);
+      String[] chunks = chunker.chunk(words, tags);
+
+      Parse top = tokenParse(tokens, AbstractBottomUpParser.TOP_NODE);
+      Parse[] tokenNodes = top.getChildren();
+      String text = top.getText();
+      for (int i = 0; i < tokenNodes.length; i++) {
+        top.insert(new Parse(text, tokenNodes[i].getSpan(), tags[i], 1, i));
+      }
+
+      int start = -1;
+      String type = null;
+      for (int i = 0; i <= words.length; i++) {
+        String chunk = i < words.length ? chunks[i] : AbstractBottomUpParser.OTHER;
+        boolean continues = type != null && chunk.length() > 2 && chunk.substring(2).equals(type)
+                && (chunk.startsWith(AbstractBottomUpParser.CONT) || chunk.startsWith("I-"));
+        if (type != null && !continues) {
+          Span span = new Span(tokenNodes[start].getSpan().getStart(), tokenNodes[i - 1].getSpan().getEnd());
+          top.insert(new Parse(text, span, type, 1, i - 1));
+          type = null;
+        }
+        if (type == null && chunk.length() > 2
+                && (chunk.startsWith(AbstractBottomUpParser.START) || chunk.startsWith("B-"))) {
+          start = i;
+          type = chunk.substring(2);
+        }
+      }
+      return top;
+    }
+
+    private void checkBudget() {
+      if (System.nanoTime() > deadline) {
+        throw new BudgetExceededException();
+      }
+    }
+
+    @Override
+    protected Parse[] advanceTags(Parse p) {
+      checkBudget();
+      return super.advanceTags(p);
+    }
+
+    @Override
+    protected Parse[] advanceChunks(Parse p, double minChunkScore) {
+      checkBudget();
+      return super.advanceChunks(p, minChunkScore);
+    }
+
+    @Override
+    protected Parse[] advanceParses(Parse p, double probMass) {
+      checkBudget();
+      return super.advanceParses(p, probMass);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * Tokenizador por lotes que reparte los archivos de entrada entre varios hilos.
+ * El modelo es inmutable y se comparte; cada hilo trabaja con su propia instancia
+ * de TokenizerME, ya que TokenizerME no es thread-safe.
+ */
+public class BatchTokenizer {
+
+  /**
+   * Número máximo de archivos pendientes de escribir por cada hilo de trabajo.
+   */
+  private static final int FILES_IN_FLIGHT_PER_THREAD = 2;
+
+  /**
+   * Tamaño aproximado de cada trozo de salida, en caracteres.
+   */
+  private static final int CHUNK_SIZE = 8192;
+
+  /**
+   * Número máximo de trozos pendientes de escribir por archivo.
+   */
+  private static final int CHUNKS_PER_FILE = 16;
+
+  /**
+   * Marca de fin de la salida de un archivo; se compara por identidad.
+   */
+  private static final String END = new String("");
+
+  /**
+   * Número de hilos de trabajo.
+   */
+  private final int threads;
+
+  /**
+   * Tokenizador propio de cada hilo, construido a partir del modelo compartido.
+   */
+  private final ThreadLocal<Tokenizer> tokenizers;
+
+  /**
+   * Crea un tokenizador por lotes.
+   *
+   * @param model Modelo de tokenización compartido entre los hilos.
+   * @param threads Número de hilos de trabajo.
+   */
+  public BatchTokenizer(TokenizerModel model, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("El número de hilos debe ser mayor que 0: " + threads);
+    }
+    this.threads = threads;
+    this.tokenizers = ThreadLocal.withInitial(() -> new TokenizerME(model));
+  }
+
+  /**
+   * Tokeniza los archivos en paralelo y escribe los tokens en el mismo orden en que
+   * se reciben las rutas, de modo que la salida es idéntica a la del modo secuencial.
+   * Solo hay unos pocos archivos por hilo en curso a la vez, y de cada uno solo se guardan
+   * en memoria unos pocos trozos de salida pendientes de escribir.
+   *
+   * @param filePaths Rutas de los archivos de entrada.
+   * @param writer Destino de los tokens.
+   * @throws IOException Si falla la lectura de algún archivo o la escritura.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera resultados.
+   */
+  public void tokenizeFiles(List<String> filePaths, Writer writer) throws IOException, InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    Deque<FileOutput> pending = new ArrayDeque<>();
+    int maxInFlight = threads * FILES_IN_FLIGHT_PER_THREAD;
+
+    try {
+      for (String filePath : filePaths) {
+        FileOutput output = new FileOutput(filePath);
+        output.result = executor.submit(() -> {
+          tokenizeFile(output);
+          return null;
+        });
+        pending.add(output);
+
+        // Limita los archivos en curso escribiendo el más antiguo
+        if (pending.size() >= maxInFlight) {
+          writeResult(pending.poll(), writer);
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        writeResult(pending.poll(), writer);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Salida de un archivo en curso: los trozos de texto ya tokenizados, en una cola acotada
+   * que el hilo principal vacía en el orden de los archivos.
+   */
+  private static final class FileOutput {
+    final String path;
+    final BlockingQueue<String> chunks = new ArrayBlockingQueue<>(CHUNKS_PER_FILE);
+    volatile boolean missing;
+    Future<?> result;
+
+    FileOutput(String path) {
+      this.path = path;
+    }
+  }
+
+  /**
+   * Tokeniza un archivo con el tokenizador del hilo actual, dejando la salida en trozos en
+   * su cola. Si la cola está llena espera a que el hilo principal la vacíe, así que la
+   * memoria por archivo está acotada. Siempre termina encolando {@link #END}.
+   *
+   * @param output Salida del archivo.
+   * @throws IOException Si ocurre un error al leer el archivo.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera sitio en la cola.
+   */
+  private void tokenizeFile(FileOutput output) throws IOException, InterruptedException {
+    try {
+      File inputFile = new File(output.path);
+      if (!inputFile.exists() || !inputFile.isFile()) {
+        output.missing = true;
+        return;
+      }
+      System.out.println("Procesando archivo: " + output.path);
+      try (Writer chunks = new ChunkWriter(output.chunks)) {
+        TokenizerMain.tokenizeFile(inputFile, tokenizers.get(), chunks);
+      }
+    } finally {
+      output.chunks.put(END);
+    }
+  }
+
+  /**
+   * Escribe en la salida los trozos de un archivo según van llegando.
+   *
+   * @param output Salida pendiente del archivo.
+   * @param writer Destino de los tokens.
+   * @throws IOException Si falla la tokenización o la escritura.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera.
+   */
+  private static void writeResult(FileOutput output, Writer writer) throws IOException, InterruptedException {
+    String chunk;
+    while ((chunk = output.chunks.take()) != END) {
+      writer.write(chunk);
+    }
+    try {
+      output.result.get();
+    } catch (ExecutionException e) {
+      throw new IOException("Error al tokenizar " + output.path + ": " + e.getCause().getMessage(), e.getCause());
+    }
+
+    if (output.missing) {
+      System.out.println("El archivo " + output.path + " no existe o no es un archivo válido.");
+    }
+  }
+
+  /**
+   * Writer que agrupa el texto en trozos de {@link #CHUNK_SIZE} caracteres y los encola.
+   */
+  private static final class ChunkWriter extends Writer {
+    private final BlockingQueue<String> chunks;
+    private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+
+    ChunkWriter(BlockingQueue<String> chunks) {
+      this.chunks = chunks;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      buffer.append(cbuf, off, len);
+      if (buffer.length() >= CHUNK_SIZE) {
+        flush();
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      buffer.append(str, off, off + len);
+      if (buffer.length() >= CHUNK_SIZE) {
+        flush();
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (buffer.length() == 0) {
+        return;
+      }
+      try {
+        chunks.put(buffer.toString());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrumpido mientras se esperaba sitio en la cola");
+      }
+      buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
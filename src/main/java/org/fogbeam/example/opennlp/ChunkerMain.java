@@ -3,6 +3,7 @@ package org.fogbeam.example.opennlp;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import opennlp.tools.chunker.ChunkerME;
@@ -18,7 +19,8 @@ public class ChunkerMain {
 
   /**
    * @brief Método principal que ejecuta el chunking sobre una oración.
-   * @param args Argumentos de línea de comandos (no utilizados en este ejemplo).
+   * @param args Argumentos de línea de comandos: {@code [-beam N|greedy]}, el tamaño del haz
+   *             de la decodificación ({@link SequenceDecoding}).
    * @throws Exception Lanza excepciones en caso de errores durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
@@ -40,9 +42,9 @@ public class ChunkerMain {
       model = new ChunkerModel(modelIn);
 
       /**
-       * @brief Crea una instancia de ChunkerME para realizar chunking.
+       * @brief Crea una instancia de ChunkerME para realizar chunking, con el modo de decodificación elegido.
        */
-      ChunkerME chunker = new ChunkerME(model);
+      ChunkerME chunker = SequenceDecoding.createChunker(model, SequenceDecoding.beamSizeOption(Arrays.asList(args)));
 
       /**
        * @brief Tokens de ejemplo que representan una oración.
@@ -0,0 +1,63 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lectura de las opciones de línea de comandos que comparten los programas del proyecto.
+ *
+ * Las opciones son pares {@code -nombre valor} que van detrás de los argumentos posicionales;
+ * se busca la primera aparición del nombre en todos los argumentos.
+ */
+public final class CommandLineOptions {
+
+  private CommandLineOptions() {
+  }
+
+  /**
+   * Devuelve el valor de una opción.
+   *
+   * @param args Argumentos de línea de comandos.
+   * @param name Nombre de la opción, con el guion.
+   * @param defaultValue Valor si la opción no aparece o no lleva valor.
+   * @return El valor de la opción, o {@code defaultValue}.
+   */
+  public static String option(List<String> args, String name, String defaultValue) {
+    int index = args.indexOf(name);
+    return index >= 0 && index + 1 < args.size() ? args.get(index + 1) : defaultValue;
+  }
+
+  /**
+   * Devuelve el valor de una opción.
+   *
+   * @param args Argumentos de línea de comandos.
+   * @param name Nombre de la opción, con el guion.
+   * @param defaultValue Valor si la opción no aparece o no lleva valor.
+   * @return El valor de la opción, o {@code defaultValue}.
+   */
+  public static String option(String[] args, String name, String defaultValue) {
+    return option(Arrays.asList(args), name, defaultValue);
+  }
+
+  /**
+   * Crea la caché de resultados indicada por las opciones {@code -cache N} y
+   * {@code -cacheFile ruta}. Un archivo de caché cuya huella no coincide con
+   * {@code fingerprint} se descarta.
+   *
+   * @param <V> Tipo de los resultados.
+   * @param options Argumentos de línea de comandos.
+   * @param codec Codificación de los valores en el archivo.
+   * @param fingerprint Huella del modelo y de los ajustes que producen los resultados.
+   * @return La caché, o null si no se pide ninguna de las dos opciones.
+   */
+  public static <V> ResultCache<V> cache(List<String> options, ResultCache.ValueCodec<V> codec, String fingerprint) {
+    String size = option(options, "-cache", null);
+    String file = option(options, "-cacheFile", null);
+    if (size == null && file == null) {
+      return null;
+    }
+    return new ResultCache<>(size == null ? ResultCache.DEFAULT_MAX_ENTRIES : Integer.parseInt(size),
+            file == null ? null : new File(file), codec, fingerprint);
+  }
+}
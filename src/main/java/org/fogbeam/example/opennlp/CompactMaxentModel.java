@@ -0,0 +1,266 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.Arrays;
+
+import opennlp.model.AbstractModel;
+import opennlp.model.Context;
+import opennlp.model.IndexHashTable;
+
+/**
+ * Motor de evaluación compacto para modelos maxent (GIS) y perceptrón.
+ *
+ * GISModel y PerceptronModel buscan cada predicado del contexto en una tabla de String,
+ * convierten el índice a Integer, lo guardan en un array nuevo y luego recorren un objeto
+ * Context por predicado, cada uno con sus propios arrays. Aquí, en cambio:
+ * <ul>
+ *   <li>los predicados se buscan en una tabla de direccionamiento abierto que guarda el
+ *   hash de cada uno, de modo que casi nunca hace falta comparar cadenas;</li>
+ *   <li>los parámetros de todos los predicados están seguidos en un único {@code float[]},
+ *   con las categorías de cada parámetro en un {@code int[]} paralelo y el inicio de cada
+ *   predicado en un array de desplazamientos;</li>
+ *   <li>la evaluación acumula directamente en el array de salida; la corrección de GIS se
+ *   suma parámetro a parámetro, así que no hace falta contar las características de cada
+ *   categoría en otro array. {@link #eval(String[], float[], double[])} no reserva memoria;
+ *   las variantes de MaxentModel sin array de salida solo reservan el que devuelven.</li>
+ * </ul>
+ * Los parámetros en float cambian las probabilidades en torno a la séptima cifra
+ * significativa, lo que no altera la categoría elegida salvo empates casi exactos.
+ *
+ * Es un AbstractModel normal, así que los componentes de OpenNLP lo usan sin cambios y se
+ * puede serializar. La serialización lee los Context originales con
+ * {@code getDataStructures()}, que es final, así que también se conservan: los parámetros
+ * están dos veces en memoria y el modelo ocupa unos 8 bytes más por parámetro que el
+ * original. Lo que se gana es velocidad de evaluación, no memoria.
+ */
+public class CompactMaxentModel extends AbstractModel {
+
+  /**
+   * Marca de hueco libre en la tabla de predicados.
+   */
+  private static final int EMPTY = -1;
+
+  /**
+   * Predicados, por índice.
+   */
+  private final String[] predicates;
+
+  /**
+   * Hash de cada predicado, por índice.
+   */
+  private final int[] hashes;
+
+  /**
+   * Tabla de direccionamiento abierto: índice del predicado o {@link #EMPTY}.
+   */
+  private final int[] slots;
+
+  private final int mask;
+
+  /**
+   * Posición en {@link #outcomes} y {@link #parameters} del primer parámetro de cada
+   * predicado; el último elemento es el total.
+   */
+  private final int[] offsets;
+
+  /**
+   * Categoría de cada parámetro.
+   */
+  private final int[] outcomes;
+
+  /**
+   * Parámetros de todos los predicados, seguidos.
+   */
+  private final float[] parameters;
+
+  private final int numOutcomes;
+  private final boolean perceptron;
+  private final double constantInverse;
+  private final double correctionParam;
+
+  /**
+   * Valor inicial de cada categoría antes de sumar parámetros (prior uniforme de GIS).
+   */
+  private final double logPrior;
+
+  /**
+   * Crea un modelo compacto GIS.
+   *
+   * @param contexts Parámetros de cada predicado.
+   * @param predicates Predicados.
+   * @param outcomeNames Categorías.
+   * @param correctionConstant Constante de corrección de GIS.
+   * @param correctionParam Parámetro de corrección de GIS.
+   */
+  public CompactMaxentModel(Context[] contexts, String[] predicates, String[] outcomeNames,
+                            int correctionConstant, double correctionParam) {
+    this(contexts, predicates, outcomeNames, correctionConstant, correctionParam, false);
+  }
+
+  /**
+   * Crea un modelo compacto de perceptrón.
+   *
+   * @param contexts Parámetros de cada predicado.
+   * @param predicates Predicados.
+   * @param outcomeNames Categorías.
+   */
+  public CompactMaxentModel(Context[] contexts, String[] predicates, String[] outcomeNames) {
+    this(contexts, predicates, outcomeNames, 0, 0, true);
+  }
+
+  private CompactMaxentModel(Context[] contexts, String[] predicates, String[] outcomeNames,
+                             int correctionConstant, double correctionParam, boolean perceptron) {
+    super(contexts, predicates, outcomeNames, correctionConstant, correctionParam);
+    this.modelType = perceptron ? ModelType.Perceptron : ModelType.Maxent;
+    this.perceptron = perceptron;
+    this.numOutcomes = outcomeNames.length;
+    this.constantInverse = correctionConstant == 0 ? 1 : 1.0 / correctionConstant;
+    this.correctionParam = correctionParam;
+    this.logPrior = Math.log(1.0 / numOutcomes);
+
+    this.predicates = predicates;
+    this.hashes = new int[predicates.length];
+    int capacity = Integer.highestOneBit(Math.max(2, predicates.length * 2 - 1)) << 1;
+    this.slots = new int[capacity];
+    this.mask = capacity - 1;
+    Arrays.fill(slots, EMPTY);
+    for (int i = 0; i < predicates.length; i++) {
+      hashes[i] = predicates[i].hashCode();
+      int slot = mix(hashes[i]) & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = i;
+    }
+
+    this.offsets = new int[contexts.length + 1];
+    for (int i = 0; i < contexts.length; i++) {
+      offsets[i + 1] = offsets[i] + contexts[i].getOutcomes().length;
+    }
+    this.outcomes = new int[offsets[contexts.length]];
+    this.parameters = new float[offsets[contexts.length]];
+    for (int i = 0; i < contexts.length; i++) {
+      int[] pattern = contexts[i].getOutcomes();
+      double[] values = contexts[i].getParameters();
+      for (int j = 0; j < pattern.length; j++) {
+        outcomes[offsets[i] + j] = pattern[j];
+        parameters[offsets[i] + j] = (float) values[j];
+      }
+    }
+  }
+
+  /**
+   * Crea la versión compacta de un modelo GIS o de perceptrón.
+   *
+   * @param model Modelo original.
+   * @return El modelo compacto.
+   * @throws IllegalArgumentException Si el tipo de modelo no está admitido.
+   */
+  @SuppressWarnings("unchecked")
+  public static CompactMaxentModel of(AbstractModel model) {
+    if (model instanceof CompactMaxentModel) {
+      return (CompactMaxentModel) model;
+    }
+    Object[] data = model.getDataStructures();
+    Context[] contexts = (Context[]) data[0];
+    IndexHashTable<String> predicateMap = (IndexHashTable<String>) data[1];
+    String[] outcomeNames = (String[]) data[2];
+    String[] predicates = predicateMap.toArray(new String[predicateMap.size()]);
+
+    switch (model.getModelType()) {
+      case Maxent:
+        return new CompactMaxentModel(contexts, predicates, outcomeNames, (Integer) data[3], (Double) data[4]);
+      case Perceptron:
+        return new CompactMaxentModel(contexts, predicates, outcomeNames);
+      default:
+        throw new IllegalArgumentException("Tipo de modelo no admitido: " + model.getModelType());
+    }
+  }
+
+  /**
+   * Mezcla los bits del hash para que la tabla reparta bien con cualquier tamaño.
+   */
+  private static int mix(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Devuelve el índice de un predicado.
+   *
+   * @param predicate Predicado.
+   * @return Su índice, o -1 si el modelo no lo conoce.
+   */
+  public int indexOf(String predicate) {
+    int hash = predicate.hashCode();
+    int slot = mix(hash) & mask;
+    int index;
+    while ((index = slots[slot]) != EMPTY) {
+      if (hashes[index] == hash && predicates[index].equals(predicate)) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  @Override
+  public double[] eval(String[] context) {
+    return eval(context, null, new double[numOutcomes]);
+  }
+
+  @Override
+  public double[] eval(String[] context, float[] values) {
+    return eval(context, values, new double[numOutcomes]);
+  }
+
+  @Override
+  public double[] eval(String[] context, double[] probs) {
+    return eval(context, null, probs);
+  }
+
+  /**
+   * Evalúa un contexto con valores opcionales por predicado.
+   *
+   * @param context Predicados activos.
+   * @param values Valor de cada predicado, o null para 1.
+   * @param outsums Array donde se devuelven las probabilidades, con una posición por categoría.
+   * @return {@code outsums}, con la probabilidad de cada categoría.
+   */
+  public double[] eval(String[] context, float[] values, double[] outsums) {
+    Arrays.fill(outsums, 0, numOutcomes, perceptron ? 0 : logPrior);
+    // La corrección de GIS, (1 - n / C) * p para una categoría con n características, es
+    // p + sum(-p) / C: se resta p con cada parámetro y se suma p al final
+    double correction = perceptron ? 0 : correctionParam;
+
+    for (int i = 0; i < context.length; i++) {
+      int index = indexOf(context[i]);
+      if (index < 0) {
+        continue;
+      }
+      double value = values == null ? 1 : values[i];
+      for (int k = offsets[index], end = offsets[index + 1]; k < end; k++) {
+        outsums[outcomes[k]] += parameters[k] * value - correction;
+      }
+    }
+
+    double scale = constantInverse;
+    if (perceptron) {
+      // Como PerceptronModel: se divide por el mayor valor absoluto (al menos 1)
+      double max = 1;
+      for (int o = 0; o < numOutcomes; o++) {
+        max = Math.max(max, Math.abs(outsums[o]));
+      }
+      scale = 1 / max;
+    }
+
+    double normal = 0;
+    for (int o = 0; o < numOutcomes; o++) {
+      outsums[o] = Math.exp(outsums[o] * scale + correction);
+      normal += outsums[o];
+    }
+    for (int o = 0; o < numOutcomes; o++) {
+      outsums[o] /= normal;
+    }
+    return outsums;
+  }
+}
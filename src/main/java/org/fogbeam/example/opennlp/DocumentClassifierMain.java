@@ -1,7 +1,19 @@
 package org.fogbeam.example.opennlp;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Logger;
 
 import opennlp.tools.doccat.DoccatModel;
@@ -14,12 +26,37 @@ public class DocumentClassifierMain {
 
   private static final Logger logger = Logger.getLogger(DocumentClassifierMain.class.getName());
 
+  /**
+   * @brief Guarda las probabilidades de cada categoría en la caché de resultados, separadas por espacios.
+   */
+  static final ResultCache.ValueCodec<double[]> OUTCOMES_CODEC = new ResultCache.ValueCodec<double[]>() {
+    @Override
+    public String encode(double[] outcomes) {
+      StringBuilder out = new StringBuilder();
+      for (double outcome : outcomes) {
+        out.append(outcome).append(' ');
+      }
+      return out.toString().trim();
+    }
+
+    @Override
+    public double[] decode(String text) {
+      return Arrays.stream(text.split(" ")).mapToDouble(Double::parseDouble).toArray();
+    }
+  };
+
   /**
    * @brief Método principal que ejecuta la clasificación de un documento basado en un modelo de categorización.
-   * @param args Argumentos de línea de comandos (no utilizados en este ejemplo).
+   * @details Si se indica un archivo o un directorio, clasifica en su lugar todos sus documentos en bloque.
+   * @param args Argumentos de línea de comandos:
+   *             {@code [archivo|directorio [-threads N] [-top K] [-cache N] [-cacheFile ruta]]}.
    * @throws Exception Lanza excepciones si ocurren errores durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
+    if (args.length > 0) {
+      classifyFile(args);
+      return;
+    }
 
     /**
      * @brief Flujo de entrada para cargar el modelo de categorización de documentos.
@@ -45,7 +82,7 @@ public class DocumentClassifierMain {
       /**
        * @brief Inicializa el categorizador de documentos basado en el modelo cargado.
        */
-      DocumentCategorizerME myCategorizer = new DocumentCategorizerME(m);
+      DocumentCategorizerME myCategorizer = HashedBagOfWordsFeatureGenerator.createCategorizer(m);
 
       /**
        * @brief Clasifica el texto de entrada y obtiene los resultados de probabilidad para cada categoría.
@@ -78,4 +115,76 @@ public class DocumentClassifierMain {
      */
     System.out.println("done");
   }
+
+  /**
+   * @brief Clasifica en bloque los documentos de un archivo (uno por línea) o de un directorio (uno por archivo).
+   * @details Los documentos se reparten entre varios hilos y cada resultado se escribe en una línea con el
+   * identificador del documento (número de línea o nombre de archivo) y las k categorías más probables con
+   * su probabilidad, separados por tabuladores, en el mismo orden que la entrada. Con {@code -cache N} los
+   * documentos repetidos se sirven de una caché de N resultados, y con {@code -cacheFile ruta} la caché se
+   * carga de ese archivo y se guarda en él al terminar.
+   * @param args Archivo o directorio de entrada seguido de las opciones {@code -threads N}, {@code -top K},
+   *             {@code -cache N} y {@code -cacheFile ruta}.
+   * @throws Exception Lanza excepciones si ocurren errores durante la ejecución.
+   */
+  private static void classifyFile(String[] args) throws Exception {
+    List<String> options = Arrays.asList(args);
+    int threads = Integer.parseInt(CommandLineOptions.option(options, "-threads",
+            Integer.toString(Runtime.getRuntime().availableProcessors())));
+    int topK = Integer.parseInt(CommandLineOptions.option(options, "-top", Integer.toString(BatchDocumentClassifier.DEFAULT_TOP_K)));
+    ResultCache<double[]> cache = CommandLineOptions.cache(options, OUTCOMES_CODEC, ResultCache.fingerprint(
+            ModelRegistry.getInstance().getModelFile(ModelRegistry.DOCCAT_MODEL), ""));
+    BatchDocumentClassifier classifier = new BatchDocumentClassifier(
+            ModelRegistry.getInstance().getDoccatModel(), threads, topK, cache);
+
+    File input = new File(args[0]);
+    long start = System.nanoTime();
+    long[] count = new long[1];
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+    if (input.isDirectory()) {
+      File[] files = input.listFiles(File::isFile);
+      Arrays.sort(files);
+      Iterator<BatchDocumentClassifier.Document> documents = Arrays.stream(files).map(file -> {
+        try {
+          return new BatchDocumentClassifier.Document(file.getName(),
+                  new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }).iterator();
+      classifier.classifyAll(documents, result -> write(result, out, count));
+    } else {
+      try (BufferedReader reader = Files.newBufferedReader(input.toPath(), StandardCharsets.UTF_8)) {
+        long[] lineNumber = new long[1];
+        Iterator<BatchDocumentClassifier.Document> documents = reader.lines()
+                .map(line -> new BatchDocumentClassifier.Document(Long.toString(++lineNumber[0]), line))
+                .filter(document -> !document.getText().trim().isEmpty())
+                .iterator();
+        classifier.classifyAll(documents, result -> write(result, out, count));
+      }
+    }
+    out.flush();
+
+    long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+    System.err.println(count[0] + " documentos en " + millis + " ms (" + count[0] * 1000 / millis + " documentos/s)");
+    if (cache != null) {
+      System.err.println(cache.getStats());
+      cache.save();
+    }
+    System.out.println("done");
+  }
+
+  /**
+   * @brief Escribe el resultado de un documento en la salida.
+   */
+  private static void write(BatchDocumentClassifier.Result result, Writer out, long[] count) {
+    try {
+      out.write(result.format());
+      out.write('\n');
+      count[0]++;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -0,0 +1,91 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.FeatureGenerator;
+
+/**
+ * Bolsa de palabras con hashing: cada token se convierte en el predicado {@code h=<cubo>},
+ * donde el cubo es el hash del token módulo un número fijo de cubos. Así el número de
+ * predicados del modelo no depende del vocabulario del corpus.
+ *
+ * Los modelos entrenados con estos predicados guardan el número de cubos en la propiedad
+ * {@link #BUCKETS_PROPERTY} del manifiesto; {@link #createCategorizer} la lee para
+ * construir el categorizador con el generador adecuado.
+ */
+public class HashedBagOfWordsFeatureGenerator implements FeatureGenerator {
+
+  /**
+   * Propiedad del manifiesto del modelo con el número de cubos.
+   */
+  public static final String BUCKETS_PROPERTY = "Hashed-Feature-Buckets";
+
+  /**
+   * Número de cubos.
+   */
+  private final int buckets;
+
+  /**
+   * Crea el generador.
+   *
+   * @param buckets Número de cubos.
+   */
+  public HashedBagOfWordsFeatureGenerator(int buckets) {
+    if (buckets < 1) {
+      throw new IllegalArgumentException("El número de cubos debe ser mayor que 0: " + buckets);
+    }
+    this.buckets = buckets;
+  }
+
+  @Override
+  public Collection<String> extractFeatures(String[] text) {
+    List<String> features = new ArrayList<>(text.length);
+    for (String token : text) {
+      features.add(predicate(bucket(token, buckets)));
+    }
+    return features;
+  }
+
+  /**
+   * Devuelve el cubo de un token. El hash de String se mezcla antes del módulo para que
+   * los bits bajos repartan bien cuando el número de cubos es potencia de dos.
+   *
+   * @param token Token.
+   * @param buckets Número de cubos.
+   * @return Cubo entre 0 y {@code buckets - 1}.
+   */
+  public static int bucket(String token, int buckets) {
+    int h = token.hashCode() * 0x9E3779B9;
+    h ^= h >>> 16;
+    return Math.floorMod(h, buckets);
+  }
+
+  /**
+   * Devuelve el nombre del predicado de un cubo.
+   *
+   * @param bucket Cubo.
+   * @return El predicado.
+   */
+  public static String predicate(int bucket) {
+    return "h=" + bucket;
+  }
+
+  /**
+   * Crea un categorizador para un modelo, con este generador si el modelo se entrenó con
+   * hashing o con el generador por defecto en caso contrario.
+   *
+   * @param model Modelo de categorización.
+   * @return El categorizador.
+   */
+  public static DocumentCategorizerME createCategorizer(DoccatModel model) {
+    String buckets = model.getManifestProperty(BUCKETS_PROPERTY);
+    if (buckets == null) {
+      return new DocumentCategorizerME(model);
+    }
+    return new DocumentCategorizerME(model, new HashedBagOfWordsFeatureGenerator(Integer.parseInt(buckets)));
+  }
+}
@@ -0,0 +1,67 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import opennlp.tools.namefind.TokenNameFinder;
+import opennlp.tools.util.Span;
+
+/**
+ * Detector de nombres que consulta primero un {@link NameDictionary} y solo usa el modelo
+ * estadístico en los tramos de la oración que el diccionario no ha resuelto.
+ *
+ * Los nombres del diccionario se aceptan tal cual. El detector de respaldo (normalmente un
+ * NameFinderME) se llama una vez por cada tramo de tokens entre dos nombres del diccionario,
+ * con los índices de sus resultados desplazados a la oración completa, así que una oración
+ * cubierta por el diccionario no pasa por el modelo. El modelo no ve los tokens que quedan
+ * fuera de cada tramo, lo que puede cambiar algún resultado en sus bordes.
+ *
+ * No es thread-safe si el detector de respaldo no lo es; el diccionario sí se puede compartir.
+ */
+public class HybridNameFinder implements TokenNameFinder {
+
+  private final NameDictionary dictionary;
+  private final TokenNameFinder fallback;
+
+  /**
+   * Crea un detector.
+   *
+   * @param dictionary Diccionario de nombres.
+   * @param fallback Detector para los tramos que el diccionario no resuelve.
+   */
+  public HybridNameFinder(NameDictionary dictionary, TokenNameFinder fallback) {
+    this.dictionary = dictionary;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public Span[] find(String[] tokens) {
+    Span[] known = dictionary.find(tokens);
+    if (known.length == 0) {
+      return fallback.find(tokens);
+    }
+
+    List<Span> names = new ArrayList<>(Arrays.asList(known));
+    int start = 0;
+    for (int i = 0; i <= known.length; i++) {
+      int end = i < known.length ? known[i].getStart() : tokens.length;
+      if (end > start) {
+        for (Span name : fallback.find(Arrays.copyOfRange(tokens, start, end))) {
+          names.add(new Span(name.getStart() + start, name.getEnd() + start, name.getType()));
+        }
+      }
+      if (i < known.length) {
+        start = known[i].getEnd();
+      }
+    }
+    Span[] result = names.toArray(new Span[0]);
+    Arrays.sort(result);
+    return result;
+  }
+
+  @Override
+  public void clearAdaptiveData() {
+    fallback.clearAdaptiveData();
+  }
+}
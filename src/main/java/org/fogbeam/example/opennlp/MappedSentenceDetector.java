@@ -0,0 +1,152 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.util.Span;
+
+/**
+ * Detector de oraciones para corpus grandes basado en archivos mapeados en memoria.
+ * El archivo se mapea por regiones con {@link FileChannel#map} y el texto UTF-8 se
+ * decodifica directamente desde la región mapeada a una ventana de caracteres
+ * reutilizable. Cada ventana se pasa a {@link SentenceDetector#sentPosDetect}; las
+ * últimas oraciones de la ventana se arrastran al inicio de la siguiente, ya que la
+ * última puede estar incompleta y la decisión sobre su inicio depende del contexto
+ * de la anterior.
+ */
+public class MappedSentenceDetector {
+
+  /**
+   * Tamaño por defecto de la ventana de caracteres.
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+
+  /**
+   * Tamaño máximo de cada región mapeada, en bytes.
+   */
+  private static final long MAX_REGION_SIZE = 256L * 1024 * 1024;
+
+  /**
+   * Número de oraciones que se arrastran de una ventana a la siguiente.
+   */
+  private static final int CARRIED_SENTENCES = 2;
+
+  /**
+   * Detector de oraciones usado sobre cada ventana.
+   */
+  private final SentenceDetector detector;
+
+  /**
+   * Ventana de caracteres reutilizable.
+   */
+  private final CharBuffer window;
+
+  /**
+   * Decodificador UTF-8 reutilizable.
+   */
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  /**
+   * Crea un detector con el tamaño de ventana por defecto.
+   *
+   * @param detector Detector de oraciones usado sobre cada ventana.
+   */
+  public MappedSentenceDetector(SentenceDetector detector) {
+    this(detector, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Crea un detector con un tamaño de ventana concreto.
+   *
+   * @param detector Detector de oraciones usado sobre cada ventana.
+   * @param windowSize Tamaño de la ventana, en caracteres. Una oración más larga que la
+   *                   ventana se corta al llenarla.
+   */
+  public MappedSentenceDetector(SentenceDetector detector, int windowSize) {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("El tamaño de ventana debe ser mayor que 0: " + windowSize);
+    }
+    this.detector = detector;
+    this.window = CharBuffer.allocate(windowSize);
+  }
+
+  /**
+   * Detecta las oraciones de un archivo UTF-8 y las entrega en orden al consumidor.
+   *
+   * @param file Archivo de entrada.
+   * @param sentences Consumidor que recibe cada oración detectada.
+   * @return Número de oraciones detectadas.
+   * @throws IOException Si ocurre un error al leer el archivo.
+   */
+  public long detect(Path file, Consumer<String> sentences) throws IOException {
+    long count = 0;
+    decoder.reset();
+    window.clear();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+      MappedByteBuffer region = null;
+      boolean endOfInput = false;
+
+      while (!endOfInput) {
+        // Llena la ventana decodificando desde las regiones mapeadas
+        while (window.hasRemaining()) {
+          if (region == null || !region.hasRemaining()) {
+            if (position >= size) {
+              decoder.flush(window);
+              endOfInput = true;
+              break;
+            }
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAX_REGION_SIZE, size - position));
+          }
+
+          int start = region.position();
+          boolean lastRegion = position + region.remaining() == size;
+          CoderResult result = decoder.decode(region, window, lastRegion);
+          position += region.position() - start;
+
+          if (result.isOverflow()) {
+            break;
+          }
+          if (region.hasRemaining()) {
+            // Carácter multibyte partido al final de la región: se vuelve a mapear desde él
+            region = null;
+          }
+        }
+
+        window.flip();
+        String text = window.toString();
+        Span[] spans = detector.sentPosDetect(text);
+
+        // Salvo al final de la entrada, las últimas oraciones se vuelven a detectar en la
+        // siguiente ventana; si una sola oración ocupa la ventana entera se emite cortada
+        int emitted = spans.length;
+        if (!endOfInput) {
+          emitted = Math.max(spans.length - CARRIED_SENTENCES, Math.min(spans.length, 1));
+        }
+        for (int i = 0; i < emitted; i++) {
+          sentences.accept(text.substring(spans[i].getStart(), spans[i].getEnd()));
+        }
+        count += emitted;
+
+        window.position(emitted < spans.length ? spans[emitted].getStart() : window.limit());
+        window.compact();
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,516 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.Parser;
+import opennlp.tools.parser.ParserFactory;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+
+/**
+ * Registro de modelos compartido por todo el proceso.
+ * Cada modelo se carga una única vez, la primera vez que se pide, y se guarda en una
+ * caché LRU limitada por memoria. Como los modelos son inmutables se comparten entre
+ * hilos; las instancias ME, que no son thread-safe, se entregan confinadas al hilo
+ * que las pide.
+ */
+public class ModelRegistry {
+
+  private static final Logger logger = Logger.getLogger(ModelRegistry.class.getName());
+
+  /**
+   * Archivos de modelo utilizados por los distintos componentes.
+   */
+  public static final String TOKENIZER_MODEL = "en-token.model";
+  public static final String SENTENCE_MODEL = "en-sent.model";
+  public static final String NAME_FINDER_MODEL = "en-ner-person.model";
+  public static final String POS_MODEL = "en-pos-maxent.bin";
+  public static final String CHUNKER_MODEL = "en-chunker.model";
+  public static final String PARSER_MODEL = "en-parser-chunking.bin";
+  public static final String DOCCAT_MODEL = "en-doccat.model";
+
+  /**
+   * Directorio de modelos por defecto.
+   */
+  public static final String DEFAULT_MODEL_DIR = "models";
+
+  /**
+   * Memoria máxima por defecto para la caché de modelos, en bytes.
+   */
+  public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+  /**
+   * Factor aproximado entre el tamaño en disco de un modelo comprimido y su tamaño en memoria.
+   */
+  private static final int IN_MEMORY_EXPANSION = 4;
+
+  /**
+   * Instancia compartida por todo el proceso.
+   */
+  private static final ModelRegistry INSTANCE = new ModelRegistry(DEFAULT_MODEL_DIR, DEFAULT_MAX_BYTES);
+
+  /**
+   * Carga un modelo a partir de un flujo de entrada.
+   *
+   * @param <T> Tipo de modelo.
+   */
+  @FunctionalInterface
+  public interface ModelLoader<T> {
+    T load(InputStream in) throws IOException;
+  }
+
+  /**
+   * Entrada de la caché: la carga (posiblemente en curso), su peso estimado y las instancias
+   * ME creadas con el modelo en cada hilo. Las instancias solo se referencian con fuerza desde
+   * aquí, así que al expulsar la entrada se liberan junto con el modelo.
+   */
+  private static class Entry {
+    final FutureTask<Object> task;
+    final long weight;
+    volatile Object model;
+    final Map<Thread, Object> instances = Collections.synchronizedMap(new WeakHashMap<>());
+
+    Entry(FutureTask<Object> task, long weight) {
+      this.task = task;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Instancia ME confinada a un hilo junto con la entrada de la caché de la que se creó.
+   * Ambas se guardan con referencias débiles para que el mapa de cada hilo no retenga
+   * modelos expulsados.
+   */
+  private static class ConfinedInstance {
+    final WeakReference<Entry> entry;
+    final WeakReference<Object> instance;
+
+    ConfinedInstance(Entry entry, Object instance) {
+      this.entry = new WeakReference<>(entry);
+      this.instance = new WeakReference<>(instance);
+    }
+  }
+
+  /**
+   * Directorio donde se buscan los modelos.
+   */
+  private final File modelDir;
+
+  /**
+   * Memoria máxima estimada de los modelos en caché, en bytes.
+   */
+  private final long maxBytes;
+
+  /**
+   * Caché de modelos en orden de acceso (LRU), por archivo y tipo de modelo.
+   */
+  private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Memoria estimada ocupada por los modelos en caché.
+   */
+  private long totalBytes;
+
+  /**
+   * Tamaño del haz del etiquetador POS y del chunker ({@link SequenceDecoding}).
+   */
+  private volatile int beamSize = SequenceDecoding.DEFAULT_BEAM_SIZE;
+
+  /**
+   * Instancias ME de cada hilo, por archivo y tipo de modelo.
+   */
+  private final ThreadLocal<Map<String, ConfinedInstance>> instances = ThreadLocal.withInitial(HashMap::new);
+
+  /**
+   * Crea un registro de modelos.
+   *
+   * @param modelDir Directorio donde se buscan los modelos.
+   * @param maxBytes Memoria máxima estimada para la caché, en bytes.
+   */
+  public ModelRegistry(String modelDir, long maxBytes) {
+    this.modelDir = new File(modelDir);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Devuelve el registro compartido por todo el proceso, que lee los modelos de {@code models/}.
+   *
+   * @return El registro compartido.
+   */
+  public static ModelRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Cambia el modo de decodificación de los etiquetadores POS y chunkers que entrega el
+   * registro. Solo afecta a las instancias que se creen después, así que debe llamarse
+   * antes de empezar a usarlas.
+   *
+   * @param beamSize Tamaño del haz; {@link SequenceDecoding#GREEDY} para la decodificación voraz.
+   */
+  public void setBeamSize(int beamSize) {
+    if (beamSize < 1) {
+      throw new IllegalArgumentException("El tamaño del haz debe ser mayor que 0: " + beamSize);
+    }
+    this.beamSize = beamSize;
+  }
+
+  /**
+   * @return El tamaño del haz de los etiquetadores POS y chunkers.
+   */
+  public int getBeamSize() {
+    return beamSize;
+  }
+
+  /**
+   * Devuelve un modelo, cargándolo si aún no está en caché. Si varios hilos piden a la
+   * vez un modelo que no está cargado, solo uno lo carga y el resto espera el resultado.
+   * Un mismo archivo cargado como tipos distintos ocupa entradas distintas.
+   *
+   * @param <T> Tipo de modelo.
+   * @param fileName Nombre del archivo del modelo dentro del directorio de modelos.
+   * @param type Clase del modelo.
+   * @param loader Función que construye el modelo a partir del archivo.
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public <T> T getModel(String fileName, Class<T> type, ModelLoader<T> loader) throws IOException {
+    return type.cast(entry(fileName, type, loader).model);
+  }
+
+  /**
+   * Devuelve la entrada de la caché de un modelo, ya cargado.
+   */
+  private Entry entry(String fileName, Class<?> type, ModelLoader<?> loader) throws IOException {
+    File file = new File(modelDir, fileName);
+    String key = key(fileName, type);
+    Entry entry;
+    boolean owner = false;
+
+    synchronized (cache) {
+      entry = cache.get(key);
+      if (entry == null) {
+        // Se pesa el archivo que se va a leer: la instantánea ocupa más que el modelo comprimido
+        long size = getModelFile(fileName).length();
+        entry = new Entry(new FutureTask<>(() -> load(file, loader)), size * IN_MEMORY_EXPANSION);
+        cache.put(key, entry);
+        totalBytes += entry.weight;
+        owner = true;
+        evict(key);
+      }
+    }
+
+    // La carga se hace fuera del bloqueo para no frenar el acceso a otros modelos
+    if (owner) {
+      entry.task.run();
+    }
+
+    try {
+      entry.model = entry.task.get();
+      return entry;
+    } catch (ExecutionException e) {
+      remove(key, entry);
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error al cargar el modelo " + file + ": " + e.getCause().getMessage(), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrumpido mientras se cargaba el modelo " + file, e);
+    }
+  }
+
+  private static String key(String fileName, Class<?> type) {
+    return fileName + "#" + type.getName();
+  }
+
+  /**
+   * Devuelve el archivo del que se carga un modelo: su instantánea si está al día
+   * ({@link ModelSnapshot}) o el archivo original en caso contrario.
+   *
+   * @param fileName Nombre del archivo del modelo dentro del directorio de modelos.
+   * @return El archivo que se lee al cargar el modelo.
+   */
+  public File getModelFile(String fileName) {
+    File file = new File(modelDir, fileName);
+    File snapshot = ModelSnapshot.snapshotFile(file);
+    return ModelSnapshot.isCurrent(snapshot, file) ? snapshot : file;
+  }
+
+  /**
+   * Libera un modelo de la caché. La próxima petición lo volverá a cargar.
+   *
+   * @param fileName Nombre del archivo del modelo.
+   */
+  public void invalidate(String fileName) {
+    synchronized (cache) {
+      Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Entry> entry = it.next();
+        if (entry.getKey().startsWith(fileName + "#")) {
+          it.remove();
+          totalBytes -= entry.getValue().weight;
+        }
+      }
+    }
+  }
+
+  /**
+   * Devuelve la memoria estimada que ocupan los modelos en caché.
+   *
+   * @return Memoria estimada, en bytes.
+   */
+  public long getCachedBytes() {
+    synchronized (cache) {
+      return totalBytes;
+    }
+  }
+
+  /**
+   * Devuelve el modelo de tokenización compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public TokenizerModel getTokenizerModel() throws IOException {
+    return getModel(TOKENIZER_MODEL, TokenizerModel.class, TokenizerModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de detección de oraciones compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public SentenceModel getSentenceModel() throws IOException {
+    return getModel(SENTENCE_MODEL, SentenceModel.class, SentenceModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de etiquetación POS compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public POSModel getPOSModel() throws IOException {
+    return getModel(POS_MODEL, POSModel.class, POSModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de chunking compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public ChunkerModel getChunkerModel() throws IOException {
+    return getModel(CHUNKER_MODEL, ChunkerModel.class, ChunkerModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de detección de nombres compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public TokenNameFinderModel getNameFinderModel() throws IOException {
+    return getModel(NAME_FINDER_MODEL, TokenNameFinderModel.class, TokenNameFinderModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de categorización de documentos compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public DoccatModel getDoccatModel() throws IOException {
+    return getModel(DOCCAT_MODEL, DoccatModel.class, DoccatModel::new);
+  }
+
+  /**
+   * Devuelve el modelo de análisis sintáctico compartido.
+   *
+   * @return El modelo cargado.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public ParserModel getParserModel() throws IOException {
+    return getModel(PARSER_MODEL, ParserModel.class, ParserModel::new);
+  }
+
+  /**
+   * Devuelve el tokenizador del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public TokenizerME getTokenizer() throws IOException {
+    return confined(TOKENIZER_MODEL, TokenizerModel.class, TokenizerModel::new, TokenizerME::new);
+  }
+
+  /**
+   * Devuelve el detector de oraciones del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public SentenceDetectorME getSentenceDetector() throws IOException {
+    return confined(SENTENCE_MODEL, SentenceModel.class, SentenceModel::new, SentenceDetectorME::new);
+  }
+
+  /**
+   * Devuelve el etiquetador POS del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public POSTaggerME getPOSTagger() throws IOException {
+    return confined(POS_MODEL, POSModel.class, POSModel::new, model -> SequenceDecoding.createPOSTagger(model, beamSize));
+  }
+
+  /**
+   * Devuelve el chunker del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public ChunkerME getChunker() throws IOException {
+    return confined(CHUNKER_MODEL, ChunkerModel.class, ChunkerModel::new, model -> SequenceDecoding.createChunker(model, beamSize));
+  }
+
+  /**
+   * Devuelve el detector de nombres del hilo actual. Los datos adaptativos se conservan
+   * entre llamadas; el llamante debe invocar {@code clearAdaptiveData()} entre documentos.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public NameFinderME getNameFinder() throws IOException {
+    return confined(NAME_FINDER_MODEL, TokenNameFinderModel.class, TokenNameFinderModel::new, NameFinderME::new);
+  }
+
+  /**
+   * Devuelve el categorizador de documentos del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public DocumentCategorizerME getDocumentCategorizer() throws IOException {
+    return confined(DOCCAT_MODEL, DoccatModel.class, DoccatModel::new, HashedBagOfWordsFeatureGenerator::createCategorizer);
+  }
+
+  /**
+   * Devuelve el analizador sintáctico del hilo actual.
+   *
+   * @return Instancia confinada al hilo que llama; no debe compartirse con otros hilos.
+   * @throws IOException Si el modelo no se puede cargar.
+   */
+  public Parser getParser() throws IOException {
+    return confined(PARSER_MODEL, ParserModel.class, ParserModel::new, ParserFactory::create);
+  }
+
+  /**
+   * Devuelve la instancia del hilo actual para un modelo, creándola si no existe o si
+   * el modelo se ha vuelto a cargar desde que se creó. La entrada de la caché retiene la
+   * instancia mientras el modelo siga en caché.
+   */
+  @SuppressWarnings("unchecked")
+  private <M, I> I confined(String fileName, Class<M> type, ModelLoader<M> loader, Function<M, I> factory)
+          throws IOException {
+    Entry entry = entry(fileName, type, loader);
+    String key = key(fileName, type);
+    Map<String, ConfinedInstance> threadInstances = instances.get();
+    ConfinedInstance confined = threadInstances.get(key);
+    Object instance = confined == null || confined.entry.get() != entry ? null : confined.instance.get();
+    if (instance == null) {
+      instance = factory.apply(type.cast(entry.model));
+      entry.instances.put(Thread.currentThread(), instance);
+      threadInstances.put(key, new ConfinedInstance(entry, instance));
+    }
+    return (I) instance;
+  }
+
+  /**
+   * Carga un modelo desde disco. Si junto al modelo hay una instantánea al día
+   * ({@link ModelSnapshot}), se carga de ella, que es mucho más rápido.
+   */
+  private static Object load(File file, ModelLoader<?> loader) throws IOException {
+    long start = System.nanoTime();
+    File snapshot = ModelSnapshot.snapshotFile(file);
+    if (ModelSnapshot.isCurrent(snapshot, file)) {
+      try {
+        Object model = ModelSnapshot.load(snapshot);
+        loaded(snapshot, System.nanoTime() - start);
+        return model;
+      } catch (IOException e) {
+        // Una instantánea dañada o de otra versión no impide usar el modelo original
+        logger.warning("No se ha podido cargar la instantánea " + snapshot + ", se usa " + file + ": "
+                + e.getMessage());
+      }
+    }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      Object model = loader.load(in);
+      loaded(file, System.nanoTime() - start);
+      return model;
+    }
+  }
+
+  private static void loaded(File file, long nanos) {
+    logger.info("Modelo " + file + " cargado en " + nanos / 1000000 + " ms");
+    Metrics.modelLoaded(file.getName(), nanos);
+  }
+
+  /**
+   * Expulsa los modelos usados hace más tiempo hasta volver por debajo del límite de
+   * memoria. El modelo recién pedido nunca se expulsa. Debe llamarse con el bloqueo de la caché.
+   */
+  private void evict(String keep) {
+    Iterator<Map.Entry<String, Entry>> it = cache.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      if (!eldest.getKey().equals(keep)) {
+        it.remove();
+        totalBytes -= eldest.getValue().weight;
+        logger.info("Modelo " + eldest.getKey() + " expulsado de la caché");
+      }
+    }
+  }
+
+  /**
+   * Elimina una entrada concreta de la caché, si sigue presente.
+   */
+  private void remove(String key, Entry entry) {
+    synchronized (cache) {
+      if (cache.get(key) == entry) {
+        cache.remove(key);
+        totalBytes -= entry.weight;
+      }
+    }
+  }
+}
@@ -0,0 +1,638 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import opennlp.model.AbstractModel;
+import opennlp.model.Context;
+import opennlp.model.IndexHashTable;
+import opennlp.tools.chunker.ChunkerFactory;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.dictionary.Dictionary;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.parser.ParserType;
+import opennlp.tools.parser.lang.en.HeadRules;
+import opennlp.tools.postag.POSDictionary;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.TagDictionary;
+import opennlp.tools.sentdetect.SentenceDetectorFactory;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerFactory;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.model.BaseModel;
+
+/**
+ * Instantánea binaria de un modelo de OpenNLP, que se carga mucho más rápido que el
+ * archivo original.
+ *
+ * Los modelos de OpenNLP son zips con artefactos que hay que descomprimir y analizar al
+ * cargarlos: el modelo maxent con sus predicados en UTF y un parámetro por línea, y el
+ * diccionario de etiquetas POS en XML. La instantánea guarda lo mismo ya analizado: los
+ * parámetros como arrays de primitivos, los patrones de categorías compartidos entre
+ * predicados y el diccionario de etiquetas con una tabla de etiquetas única. Se carga
+ * mapeando el archivo en memoria y reconstruyendo el modelo con sus constructores
+ * públicos, de modo que el resultado es un modelo normal de OpenNLP.
+ *
+ * Se admiten los modelos de tokenización, oraciones, POS, chunking, nombres, categorías
+ * de documentos y análisis sintáctico por chunks. La instantánea de {@code modelo.bin} se
+ * guarda junto a él como {@code modelo.bin.snapshot}; {@link ModelRegistry} la usa en lugar
+ * del modelo cuando está al día.
+ */
+public final class ModelSnapshot {
+
+  private static final Logger logger = Logger.getLogger(ModelSnapshot.class.getName());
+
+  /**
+   * Extensión de los archivos de instantánea.
+   */
+  public static final String EXTENSION = ".snapshot";
+
+  private static final int MAGIC = 0x4f4e4c53;
+  private static final int VERSION = 1;
+
+  private static final byte TOKENIZER = 1;
+  private static final byte SENTENCE = 2;
+  private static final byte POS = 3;
+  private static final byte CHUNKER = 4;
+  private static final byte NAME_FINDER = 5;
+  private static final byte DOCCAT = 6;
+  private static final byte PARSER = 7;
+
+  private static final byte GIS = 1;
+  private static final byte PERCEPTRON = 2;
+
+  private ModelSnapshot() {
+  }
+
+  /**
+   * Convierte en instantáneas los modelos indicados o, sin argumentos, todos los de {@code models/}.
+   *
+   * @param args Archivos de modelo.
+   * @throws Exception Si ocurre un error al convertir.
+   */
+  public static void main(String[] args) throws Exception {
+    List<File> models = new ArrayList<>();
+    if (args.length > 0) {
+      for (String arg : args) {
+        models.add(new File(arg));
+      }
+    } else {
+      File[] files = new File(ModelRegistry.DEFAULT_MODEL_DIR).listFiles(
+              file -> file.isFile() && !file.getName().endsWith(EXTENSION));
+      if (files != null) {
+        Arrays.sort(files);
+        models.addAll(Arrays.asList(files));
+      }
+    }
+
+    for (File model : models) {
+      try {
+        long start = System.nanoTime();
+        BaseModel loaded = loadOriginal(model);
+        long loadMillis = (System.nanoTime() - start) / 1000000;
+
+        File snapshot = snapshotFile(model);
+        write(loaded, snapshot);
+
+        start = System.nanoTime();
+        load(snapshot);
+        long snapshotMillis = (System.nanoTime() - start) / 1000000;
+        System.out.println(model + " -> " + snapshot + " (" + loadMillis + " ms -> " + snapshotMillis + " ms)");
+      } catch (IOException | IllegalArgumentException e) {
+        logger.severe("Error" + e.getMessage());
+      }
+    }
+    System.out.println("done");
+  }
+
+  /**
+   * Devuelve el archivo de instantánea de un modelo.
+   *
+   * @param model Archivo del modelo.
+   * @return El archivo de instantánea, junto al modelo.
+   */
+  public static File snapshotFile(File model) {
+    return new File(model.getPath() + EXTENSION);
+  }
+
+  /**
+   * Indica si una instantánea puede usarse en lugar de su modelo: existe y no es más
+   * antigua que el modelo, o el modelo no existe.
+   *
+   * @param snapshot Archivo de instantánea.
+   * @param model Archivo del modelo.
+   * @return true si la instantánea está al día.
+   */
+  public static boolean isCurrent(File snapshot, File model) {
+    return snapshot.isFile() && (!model.exists() || snapshot.lastModified() >= model.lastModified());
+  }
+
+  /**
+   * Carga un modelo desde su archivo original, averiguando el tipo por el manifiesto.
+   *
+   * @param file Archivo del modelo.
+   * @return El modelo.
+   * @throws IOException Si el modelo no se puede leer o su tipo no está admitido.
+   */
+  static BaseModel loadOriginal(File file) throws IOException {
+    Properties manifest = new Properties();
+    try (ZipInputStream zip = new ZipInputStream(new FileInputStream(file))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null && !entry.getName().equals("manifest.properties")) {
+        // Se busca solo el manifiesto
+      }
+      if (entry == null) {
+        throw new IOException("No es un modelo de OpenNLP: " + file);
+      }
+      manifest.load(zip);
+    }
+
+    String component = manifest.getProperty("Component-Name", "");
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      switch (component) {
+        case "TokenizerME": return new TokenizerModel(in);
+        case "SentenceDetectorME": return new SentenceModel(in);
+        case "POSTaggerME": return new POSModel(in);
+        case "ChunkerME": return new ChunkerModel(in);
+        case "NameFinderME": return new TokenNameFinderModel(in);
+        case "DocumentCategorizerME": return new DoccatModel(in);
+        case "Parser": return new ParserModel(in);
+        default: throw new IOException("Tipo de modelo no admitido en " + file + ": " + component);
+      }
+    }
+  }
+
+  /**
+   * Escribe la instantánea de un modelo. Se escribe en un archivo temporal que se renombra
+   * al terminar, para no dejar una instantánea a medias.
+   *
+   * @param model Modelo.
+   * @param file Archivo de instantánea.
+   * @throws IOException Si ocurre un error al escribir.
+   * @throws IllegalArgumentException Si el tipo de modelo no está admitido.
+   */
+  public static void write(BaseModel model, File file) throws IOException {
+    File temp = new File(file.getPath() + ".tmp");
+    boolean written = false;
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeModel(out, model);
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      written = true;
+    } finally {
+      // No se deja a medias el archivo temporal si falla la escritura
+      if (!written) {
+        Files.deleteIfExists(temp.toPath());
+      }
+    }
+  }
+
+  /**
+   * Carga un modelo desde su instantánea.
+   *
+   * @param file Archivo de instantánea.
+   * @return El modelo, del mismo tipo que el original.
+   * @throws IOException Si el archivo no se puede leer o no es una instantánea válida.
+   */
+  public static BaseModel load(File file) throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+        throw new IOException("No es una instantánea de modelo válida: " + file);
+      }
+      return readModel(in);
+    } catch (RuntimeException e) {
+      throw new IOException("Instantánea dañada " + file + ": " + e, e);
+    }
+  }
+
+  private static void writeModel(DataOutputStream out, BaseModel model) throws IOException {
+    if (model instanceof TokenizerModel) {
+      TokenizerModel tokenizer = (TokenizerModel) model;
+      out.writeByte(TOKENIZER);
+      writeHeader(out, model);
+      writeMaxent(out, tokenizer.getMaxentModel());
+      writeDictionary(out, tokenizer.getAbbreviations());
+      out.writeBoolean(tokenizer.useAlphaNumericOptimization());
+      writeString(out, tokenizer.getFactory().getAlphaNumericPattern().pattern());
+    } else if (model instanceof SentenceModel) {
+      SentenceModel sentence = (SentenceModel) model;
+      out.writeByte(SENTENCE);
+      writeHeader(out, model);
+      writeMaxent(out, sentence.getMaxentModel());
+      writeDictionary(out, sentence.getAbbreviations());
+      out.writeBoolean(sentence.useTokenEnd());
+      writeString(out, sentence.getEosCharacters() == null ? null : new String(sentence.getEosCharacters()));
+    } else if (model instanceof POSModel) {
+      POSModel pos = (POSModel) model;
+      out.writeByte(POS);
+      writeHeader(out, model);
+      writeMaxent(out, pos.getPosModel());
+      TagDictionary tags = pos.getFactory().getTagDictionary();
+      if (tags != null && !(tags instanceof POSDictionary)) {
+        throw new IllegalArgumentException("Diccionario de etiquetas no admitido: " + tags.getClass().getName());
+      }
+      writeTagDictionary(out, (POSDictionary) tags);
+      writeDictionary(out, pos.getNgramDictionary());
+    } else if (model instanceof ChunkerModel) {
+      out.writeByte(CHUNKER);
+      writeHeader(out, model);
+      writeMaxent(out, ((ChunkerModel) model).getChunkerModel());
+    } else if (model instanceof TokenNameFinderModel) {
+      out.writeByte(NAME_FINDER);
+      writeHeader(out, model);
+      writeMaxent(out, ((TokenNameFinderModel) model).getNameFinderModel());
+      writeBytes(out, model.<byte[]>getArtifact("generator.featuregen"));
+    } else if (model instanceof DoccatModel) {
+      out.writeByte(DOCCAT);
+      writeHeader(out, model);
+      writeMaxent(out, ((DoccatModel) model).getChunkerModel());
+    } else if (model instanceof ParserModel
+            && ((ParserModel) model).getParserType() == ParserType.CHUNKING) {
+      ParserModel parser = (ParserModel) model;
+      out.writeByte(PARSER);
+      writeHeader(out, model);
+      writeMaxent(out, parser.getBuildModel());
+      writeMaxent(out, parser.getCheckModel());
+      writeModel(out, parser.getParserTaggerModel());
+      writeModel(out, parser.getParserChunkerModel());
+      ByteArrayOutputStream rules = new ByteArrayOutputStream();
+      Writer writer = new OutputStreamWriter(rules, StandardCharsets.UTF_8);
+      parser.getHeadRules().serialize(writer);
+      writer.flush();
+      writeBytes(out, rules.toByteArray());
+    } else {
+      throw new IllegalArgumentException("Tipo de modelo no admitido: " + model.getClass().getName());
+    }
+  }
+
+  private static BaseModel readModel(ByteBuffer in) throws IOException {
+    byte type = in.get();
+    String language = readString(in);
+    Map<String, String> manifest = readManifest(in);
+
+    switch (type) {
+      case TOKENIZER: {
+        AbstractModel maxent = readMaxent(in);
+        Dictionary abbreviations = readDictionary(in);
+        boolean alphaNumeric = in.get() != 0;
+        Pattern pattern = Pattern.compile(readString(in));
+        return new TokenizerModel(maxent, manifest, new TokenizerFactory(language, abbreviations, alphaNumeric, pattern));
+      }
+      case SENTENCE: {
+        AbstractModel maxent = readMaxent(in);
+        Dictionary abbreviations = readDictionary(in);
+        boolean useTokenEnd = in.get() != 0;
+        String eos = readString(in);
+        return new SentenceModel(language, maxent, manifest, new SentenceDetectorFactory(language, useTokenEnd,
+                abbreviations, eos == null ? null : eos.toCharArray()));
+      }
+      case POS: {
+        AbstractModel maxent = readMaxent(in);
+        POSDictionary tags = readTagDictionary(in);
+        return new POSModel(language, maxent, manifest, new POSTaggerFactory(readDictionary(in), tags));
+      }
+      case CHUNKER:
+        return new ChunkerModel(language, readMaxent(in), manifest, new ChunkerFactory());
+      case NAME_FINDER: {
+        AbstractModel maxent = readMaxent(in);
+        return new TokenNameFinderModel(language, maxent, readBytes(in), new HashMap<String, Object>(), manifest);
+      }
+      case DOCCAT:
+        return new SnapshotDoccatModel(language, readMaxent(in), manifest);
+      case PARSER: {
+        AbstractModel build = readMaxent(in);
+        AbstractModel check = readMaxent(in);
+        POSModel tagger = (POSModel) readModel(in);
+        ChunkerModel chunker = (ChunkerModel) readModel(in);
+        HeadRules headRules = new HeadRules(new InputStreamReader(new ByteArrayInputStream(readBytes(in)),
+                StandardCharsets.UTF_8));
+        return new ParserModel(language, build, check, null, tagger, chunker, headRules,
+                ParserType.CHUNKING, manifest);
+      }
+      default:
+        throw new IOException("Tipo de modelo desconocido en la instantánea: " + type);
+    }
+  }
+
+  /**
+   * Escribe el idioma y las propiedades del manifiesto, que se conservan tal cual
+   * (versión de OpenNLP, datos de entrenamiento, propiedades propias...).
+   */
+  private static void writeHeader(DataOutputStream out, BaseModel model) throws IOException {
+    writeString(out, model.getLanguage());
+    Properties manifest = model.getArtifact("manifest.properties");
+    List<String> keys = new ArrayList<>(manifest.stringPropertyNames());
+    out.writeInt(keys.size());
+    for (String key : keys) {
+      writeString(out, key);
+      writeString(out, manifest.getProperty(key));
+    }
+  }
+
+  private static Map<String, String> readManifest(ByteBuffer in) {
+    int count = in.getInt();
+    Map<String, String> manifest = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      manifest.put(readString(in), readString(in));
+    }
+    return manifest;
+  }
+
+  /**
+   * Escribe un modelo maxent: categorías, predicados, la tabla de patrones de categorías
+   * (cada patrón una vez, aunque lo compartan muchos predicados) y todos los parámetros
+   * seguidos en un único array.
+   */
+  @SuppressWarnings("unchecked")
+  private static void writeMaxent(DataOutputStream out, AbstractModel model) throws IOException {
+    Object[] data = model.getDataStructures();
+    Context[] contexts = (Context[]) data[0];
+    IndexHashTable<String> predicateMap = (IndexHashTable<String>) data[1];
+    String[] outcomes = (String[]) data[2];
+    String[] predicates = predicateMap.toArray(new String[predicateMap.size()]);
+
+    if (model.getModelType() == AbstractModel.ModelType.Maxent) {
+      out.writeByte(GIS);
+      out.writeInt((Integer) data[3]);
+      out.writeDouble((Double) data[4]);
+    } else if (model.getModelType() == AbstractModel.ModelType.Perceptron) {
+      out.writeByte(PERCEPTRON);
+    } else {
+      throw new IllegalArgumentException("Tipo de modelo maxent no admitido: " + model.getModelType());
+    }
+
+    writeStrings(out, outcomes);
+    writeStrings(out, predicates);
+
+    Map<List<Integer>, Integer> patternIndex = new HashMap<>();
+    List<int[]> patterns = new ArrayList<>();
+    int[] predicatePatterns = new int[contexts.length];
+    int parameterCount = 0;
+    for (int i = 0; i < contexts.length; i++) {
+      int[] pattern = contexts[i].getOutcomes();
+      List<Integer> key = new ArrayList<>(pattern.length);
+      for (int outcome : pattern) {
+        key.add(outcome);
+      }
+      Integer index = patternIndex.get(key);
+      if (index == null) {
+        index = patterns.size();
+        patternIndex.put(key, index);
+        patterns.add(pattern);
+      }
+      predicatePatterns[i] = index;
+      parameterCount += pattern.length;
+    }
+
+    out.writeInt(patterns.size());
+    for (int[] pattern : patterns) {
+      writeInts(out, pattern);
+    }
+    writeInts(out, predicatePatterns);
+    out.writeInt(parameterCount);
+    ByteBuffer parameters = ByteBuffer.allocate(parameterCount * Double.BYTES);
+    for (Context context : contexts) {
+      for (double parameter : context.getParameters()) {
+        parameters.putDouble(parameter);
+      }
+    }
+    out.write(parameters.array());
+  }
+
+  private static AbstractModel readMaxent(ByteBuffer in) {
+    byte type = in.get();
+    int correctionConstant = 0;
+    double correctionParam = 0;
+    if (type == GIS) {
+      correctionConstant = in.getInt();
+      correctionParam = in.getDouble();
+    }
+    String[] outcomes = readStrings(in);
+    String[] predicates = readStrings(in);
+
+    int[][] patterns = new int[in.getInt()][];
+    for (int i = 0; i < patterns.length; i++) {
+      patterns[i] = readInts(in);
+    }
+    int[] predicatePatterns = readInts(in);
+    double[] parameters = new double[in.getInt()];
+    in.asDoubleBuffer().get(parameters);
+    in.position(in.position() + parameters.length * Double.BYTES);
+
+    Context[] contexts = new Context[predicatePatterns.length];
+    int offset = 0;
+    for (int i = 0; i < contexts.length; i++) {
+      int[] pattern = patterns[predicatePatterns[i]];
+      contexts[i] = new Context(pattern, Arrays.copyOfRange(parameters, offset, offset + pattern.length));
+      offset += pattern.length;
+    }
+
+    if (type == GIS) {
+      return new CompactMaxentModel(contexts, predicates, outcomes, correctionConstant, correctionParam);
+    }
+    return new CompactMaxentModel(contexts, predicates, outcomes);
+  }
+
+  /**
+   * Escribe el diccionario de etiquetas POS: la tabla de etiquetas distintas, las palabras,
+   * el número de etiquetas de cada palabra y los índices de todas las etiquetas seguidos.
+   */
+  private static void writeTagDictionary(DataOutputStream out, POSDictionary dictionary) throws IOException {
+    if (dictionary == null) {
+      out.writeBoolean(false);
+      return;
+    }
+    out.writeBoolean(true);
+    out.writeBoolean(dictionary.isCaseSensitive());
+
+    Map<String, Integer> tagIndex = new LinkedHashMap<>();
+    List<String> words = new ArrayList<>();
+    List<String[]> wordTags = new ArrayList<>();
+    int total = 0;
+    for (String word : dictionary) {
+      String[] tags = dictionary.getTags(word);
+      words.add(word);
+      wordTags.add(tags);
+      total += tags.length;
+      for (String tag : tags) {
+        tagIndex.putIfAbsent(tag, tagIndex.size());
+      }
+    }
+
+    int[] counts = new int[words.size()];
+    int[] indices = new int[total];
+    int next = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = wordTags.get(i).length;
+      for (String tag : wordTags.get(i)) {
+        indices[next++] = tagIndex.get(tag);
+      }
+    }
+    writeStrings(out, tagIndex.keySet().toArray(new String[0]));
+    writeStrings(out, words.toArray(new String[0]));
+    writeInts(out, counts);
+    writeInts(out, indices);
+  }
+
+  private static POSDictionary readTagDictionary(ByteBuffer in) {
+    if (in.get() == 0) {
+      return null;
+    }
+    POSDictionary dictionary = new POSDictionary(in.get() != 0);
+    String[] tagTable = readStrings(in);
+    String[] words = readStrings(in);
+    int[] counts = readInts(in);
+    int[] indices = readInts(in);
+    int next = 0;
+    for (int i = 0; i < words.length; i++) {
+      String[] tags = new String[counts[i]];
+      for (int j = 0; j < tags.length; j++) {
+        tags[j] = tagTable[indices[next++]];
+      }
+      dictionary.put(words[i], tags);
+    }
+    return dictionary;
+  }
+
+  /**
+   * Escribe un diccionario en su formato XML. Son diccionarios pequeños (abreviaturas,
+   * n-gramas) y así se conserva si distinguen mayúsculas.
+   */
+  private static void writeDictionary(DataOutputStream out, Dictionary dictionary) throws IOException {
+    if (dictionary == null) {
+      writeBytes(out, null);
+      return;
+    }
+    ByteArrayOutputStream xml = new ByteArrayOutputStream();
+    dictionary.serialize(xml);
+    writeBytes(out, xml.toByteArray());
+  }
+
+  private static Dictionary readDictionary(ByteBuffer in) throws IOException {
+    byte[] xml = readBytes(in);
+    return xml == null ? null : new Dictionary(new ByteArrayInputStream(xml));
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = readBytes(in);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Escribe una tabla de cadenas como las longitudes seguidas de todos los bytes juntos,
+   * para leerla con dos copias en bloque.
+   */
+  private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+    byte[][] encoded = new byte[values.length][];
+    int[] lengths = new int[values.length];
+    int total = 0;
+    for (int i = 0; i < values.length; i++) {
+      encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+      lengths[i] = encoded[i].length;
+      total += lengths[i];
+    }
+    writeInts(out, lengths);
+    out.writeInt(total);
+    for (byte[] value : encoded) {
+      out.write(value);
+    }
+  }
+
+  private static String[] readStrings(ByteBuffer in) {
+    int[] lengths = readInts(in);
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    String[] values = new String[lengths.length];
+    int offset = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new String(bytes, offset, lengths[i], StandardCharsets.UTF_8);
+      offset += lengths[i];
+    }
+    return values;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  private static byte[] readBytes(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] value = new byte[length];
+    in.get(value);
+    return value;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer in) {
+    int[] values = new int[in.getInt()];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + values.length * Integer.BYTES);
+    return values;
+  }
+
+  /**
+   * Modelo de categorización reconstruido desde una instantánea; el constructor con
+   * manifiesto de DoccatModel es protegido.
+   */
+  private static final class SnapshotDoccatModel extends DoccatModel {
+    SnapshotDoccatModel(String languageCode, AbstractModel model, Map<String, String> manifest) {
+      super(languageCode, model, manifest);
+    }
+  }
+}
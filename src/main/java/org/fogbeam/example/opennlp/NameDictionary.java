@@ -0,0 +1,468 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.util.Span;
+import opennlp.tools.util.StringUtil;
+
+/**
+ * Diccionario de nombres (gazetteer) compilado a un archivo binario que se mapea en memoria.
+ *
+ * Los nombres se guardan como un trie de tokens: cada nodo tiene sus aristas ordenadas por
+ * identificador de token, y los tokens se buscan en una tabla hash de direccionamiento
+ * abierto que compara los caracteres directamente en el archivo. Todo son arrays de enteros
+ * y de caracteres dentro del archivo mapeado, así que un diccionario de millones de nombres
+ * apenas ocupa heap: solo el mapeo y los nombres de los tipos.
+ *
+ * {@link #find(String[])} recorre el trie desde cada posición de la oración y devuelve las
+ * coincidencias más largas que no se solapan, de izquierda a derecha. Es thread-safe.
+ *
+ * El archivo de texto tiene un nombre por línea con los tokens separados por espacios, como
+ * los produce el tokenizador, y opcionalmente el tipo tras un tabulador; las líneas vacías y
+ * las que empiezan por {@code #} se ignoran. Para compilarlo:
+ * <pre>
+ *   NameDictionary names.txt names.dict [-type person]
+ * </pre>
+ */
+public final class NameDictionary {
+
+  private static final int MAGIC = 0x4E444943;
+  private static final int VERSION = 1;
+
+  /**
+   * Extensión de los diccionarios compilados.
+   */
+  public static final String EXTENSION = ".dict";
+
+  private final String[] types;
+  private final int entries;
+  private final IntBuffer tokenOffsets;
+  private final CharBuffer tokenChars;
+  private final IntBuffer slots;
+  private final int slotMask;
+  private final IntBuffer nodeTypes;
+  private final IntBuffer nodeEdges;
+  private final IntBuffer edgeTokens;
+  private final IntBuffer edgeTargets;
+
+  private NameDictionary(ByteBuffer data) throws IOException {
+    if (data.getInt() != MAGIC) {
+      throw new IOException("No es un diccionario de nombres compilado");
+    }
+    if (data.getInt() != VERSION) {
+      throw new IOException("Versión de diccionario no admitida");
+    }
+    int headerLength = data.getInt();
+    entries = data.getInt();
+    int tokenCount = data.getInt();
+    int charCount = data.getInt();
+    int slotCount = data.getInt();
+    int nodeCount = data.getInt();
+    int edgeCount = data.getInt();
+    types = new String[data.getInt()];
+    for (int i = 0; i < types.length; i++) {
+      char[] name = new char[data.getShort()];
+      for (int c = 0; c < name.length; c++) {
+        name[c] = data.getChar();
+      }
+      types[i] = new String(name);
+    }
+
+    data.position(headerLength);
+    tokenOffsets = ints(data, tokenCount + 1);
+    slots = ints(data, slotCount);
+    nodeTypes = ints(data, nodeCount);
+    nodeEdges = ints(data, nodeCount + 1);
+    edgeTokens = ints(data, edgeCount);
+    edgeTargets = ints(data, edgeCount);
+    tokenChars = data.slice().asCharBuffer();
+    if (tokenChars.limit() < charCount) {
+      throw new IOException("Diccionario truncado");
+    }
+    slotMask = slotCount - 1;
+  }
+
+  private static IntBuffer ints(ByteBuffer data, int count) {
+    ByteBuffer section = data.slice();
+    section.limit(4 * count);
+    data.position(data.position() + 4 * count);
+    return section.asIntBuffer();
+  }
+
+  /**
+   * Mapea en memoria un diccionario compilado.
+   *
+   * @param file Archivo compilado con {@link #compile(Path, Path, String)}.
+   * @return El diccionario.
+   * @throws IOException Si ocurre un error al leer el archivo o su formato no es válido.
+   */
+  public static NameDictionary open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("El diccionario supera los 2 GB: " + file);
+      }
+      return new NameDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @return Número de nombres del diccionario.
+   */
+  public int size() {
+    return entries;
+  }
+
+  /**
+   * Busca los nombres del diccionario en una oración tokenizada.
+   *
+   * @param tokens Tokens de la oración.
+   * @return Las coincidencias más largas que no se solapan, en orden, con el tipo del nombre.
+   */
+  public Span[] find(String[] tokens) {
+    int[] ids = new int[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      ids[i] = tokenId(tokens[i]);
+    }
+
+    List<Span> names = null;
+    int start = 0;
+    while (start < tokens.length) {
+      int node = 0;
+      int end = -1;
+      int type = -1;
+      for (int i = start; i < tokens.length && ids[i] >= 0; i++) {
+        node = child(node, ids[i]);
+        if (node < 0) {
+          break;
+        }
+        if (nodeTypes.get(node) >= 0) {
+          end = i + 1;
+          type = nodeTypes.get(node);
+        }
+      }
+
+      if (end < 0) {
+        start++;
+      } else {
+        if (names == null) {
+          names = new ArrayList<>();
+        }
+        names.add(new Span(start, end, types[type]));
+        start = end;
+      }
+    }
+    return names == null ? new Span[0] : names.toArray(new Span[0]);
+  }
+
+  /**
+   * Busca un token en la tabla hash.
+   *
+   * @return Su identificador, o -1 si no aparece en el diccionario.
+   */
+  private int tokenId(String token) {
+    for (int slot = mix(token.hashCode()) & slotMask; ; slot = (slot + 1) & slotMask) {
+      int id = slots.get(slot) - 1;
+      if (id < 0) {
+        return -1;
+      }
+      int offset = tokenOffsets.get(id);
+      if (tokenOffsets.get(id + 1) - offset == token.length() && matches(token, offset)) {
+        return id;
+      }
+    }
+  }
+
+  private boolean matches(String token, int offset) {
+    for (int i = 0; i < token.length(); i++) {
+      if (tokenChars.get(offset + i) != token.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Busca por bisección la arista de un nodo con un token.
+   *
+   * @return El nodo destino, o -1 si no hay arista.
+   */
+  private int child(int node, int token) {
+    int low = nodeEdges.get(node);
+    int high = nodeEdges.get(node + 1) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int value = edgeTokens.get(middle);
+      if (value < token) {
+        low = middle + 1;
+      } else if (value > token) {
+        high = middle - 1;
+      } else {
+        return edgeTargets.get(middle);
+      }
+    }
+    return -1;
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Compila un diccionario de texto. Se escribe en un archivo temporal que se renombra al
+   * terminar, o que se borra si algo falla. Si un nombre aparece varias veces, se queda el
+   * tipo de la primera.
+   *
+   * @param source Archivo de texto UTF-8 con un nombre por línea.
+   * @param target Archivo compilado.
+   * @param defaultType Tipo de los nombres que no lo indican.
+   * @return Número de nombres distintos.
+   * @throws IOException Si ocurre un error al leer o escribir.
+   */
+  public static int compile(Path source, Path target, String defaultType) throws IOException {
+    Map<String, Integer> tokenIds = new HashMap<>();
+    List<String> tokens = new ArrayList<>();
+    Map<String, Integer> typeIds = new HashMap<>();
+    List<String> types = new ArrayList<>();
+    List<int[]> names = new ArrayList<>();
+    List<Integer> nameTypes = new ArrayList<>();
+
+    try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        int tab = line.indexOf('\t');
+        String type = tab < 0 ? defaultType : line.substring(tab + 1).trim();
+        String[] nameTokens = split(tab < 0 ? line : line.substring(0, tab));
+        if (nameTokens.length == 0) {
+          continue;
+        }
+
+        int[] name = new int[nameTokens.length];
+        for (int i = 0; i < name.length; i++) {
+          Integer id = tokenIds.get(nameTokens[i]);
+          if (id == null) {
+            id = tokens.size();
+            tokenIds.put(nameTokens[i], id);
+            tokens.add(nameTokens[i]);
+          }
+          name[i] = id;
+        }
+        Integer typeId = typeIds.get(type);
+        if (typeId == null) {
+          typeId = types.size();
+          typeIds.put(type, typeId);
+          types.add(type);
+        }
+        names.add(name);
+        nameTypes.add(typeId);
+      }
+    }
+
+    // Orden lexicográfico estable: cada prefijo va antes que sus extensiones y, entre
+    // nombres repetidos, el primero del archivo va delante
+    Integer[] order = new Integer[names.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Arrays.compare(names.get(a), names.get(b)));
+
+    // Trie en anchura: el nodo k cubre los nombres [rangeStart[k], rangeEnd[k]) del orden,
+    // que comparten sus primeros depth[k] tokens
+    IntList rangeStart = new IntList();
+    IntList rangeEnd = new IntList();
+    IntList depth = new IntList();
+    IntList nodeTypes = new IntList();
+    IntList nodeEdges = new IntList();
+    IntList edgeTokens = new IntList();
+    IntList edgeTargets = new IntList();
+    rangeStart.add(0);
+    rangeEnd.add(order.length);
+    depth.add(0);
+    int entries = 0;
+    for (int node = 0; node < rangeStart.size(); node++) {
+      int from = rangeStart.get(node);
+      int to = rangeEnd.get(node);
+      int d = depth.get(node);
+
+      int type = -1;
+      if (from < to && names.get(order[from]).length == d) {
+        type = nameTypes.get(order[from]);
+        entries++;
+        while (from < to && names.get(order[from]).length == d) {
+          from++;
+        }
+      }
+      nodeTypes.add(type);
+      nodeEdges.add(edgeTokens.size());
+
+      while (from < to) {
+        int token = names.get(order[from])[d];
+        int groupEnd = from + 1;
+        while (groupEnd < to && names.get(order[groupEnd])[d] == token) {
+          groupEnd++;
+        }
+        edgeTokens.add(token);
+        edgeTargets.add(rangeStart.size());
+        rangeStart.add(from);
+        rangeEnd.add(groupEnd);
+        depth.add(d + 1);
+        from = groupEnd;
+      }
+    }
+    nodeEdges.add(edgeTokens.size());
+
+    int slotCount = Integer.highestOneBit(Math.max(2, tokens.size()) * 2 - 1) << 1;
+    int[] slots = new int[slotCount];
+    int[] tokenOffsets = new int[tokens.size() + 1];
+    for (int id = 0; id < tokens.size(); id++) {
+      String token = tokens.get(id);
+      tokenOffsets[id + 1] = tokenOffsets[id] + token.length();
+      int slot = mix(token.hashCode()) & (slotCount - 1);
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & (slotCount - 1);
+      }
+      slots[slot] = id + 1;
+    }
+
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream headerOut = new DataOutputStream(header);
+    headerOut.writeInt(entries);
+    headerOut.writeInt(tokens.size());
+    headerOut.writeInt(tokenOffsets[tokens.size()]);
+    headerOut.writeInt(slotCount);
+    headerOut.writeInt(nodeTypes.size());
+    headerOut.writeInt(edgeTokens.size());
+    headerOut.writeInt(types.size());
+    for (String type : types) {
+      headerOut.writeShort(type.length());
+      headerOut.writeChars(type);
+    }
+    // Las secciones de enteros empiezan alineadas a 4 bytes
+    int headerLength = (12 + header.size() + 3) & ~3;
+
+    Path temp = Paths.get(target + ".tmp");
+    boolean written = false;
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(headerLength);
+        header.writeTo(out);
+        while (out.size() < headerLength) {
+          out.writeByte(0);
+        }
+        writeInts(out, tokenOffsets, tokenOffsets.length);
+        writeInts(out, slots, slots.length);
+        writeInts(out, nodeTypes.values, nodeTypes.size());
+        writeInts(out, nodeEdges.values, nodeEdges.size());
+        writeInts(out, edgeTokens.values, edgeTokens.size());
+        writeInts(out, edgeTargets.values, edgeTargets.size());
+        for (String token : tokens) {
+          out.writeChars(token);
+        }
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      written = true;
+    } finally {
+      if (!written) {
+        Files.deleteIfExists(temp);
+      }
+    }
+    return entries;
+  }
+
+  private static void writeInts(OutputStream out, int[] values, int count) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    for (int i = 0; i < count; i++) {
+      if (!buffer.hasRemaining()) {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+      buffer.putInt(values[i]);
+    }
+    out.write(buffer.array(), 0, buffer.position());
+  }
+
+  /**
+   * Separa un nombre en tokens por los espacios en blanco.
+   */
+  private static String[] split(String name) {
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= name.length(); i++) {
+      if (i == name.length() || StringUtil.isWhitespace(name.charAt(i))) {
+        if (start >= 0) {
+          tokens.add(name.substring(start, i));
+          start = -1;
+        }
+      } else if (start < 0) {
+        start = i;
+      }
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  /**
+   * Lista de enteros que crece según se añaden, sin objetos por elemento.
+   */
+  private static final class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int size() {
+      return size;
+    }
+  }
+
+  /**
+   * Compila un diccionario de texto.
+   *
+   * @param args Archivo de texto, archivo compilado y, opcionalmente, {@code -type tipo}
+   *             (por defecto {@code person}).
+   * @throws Exception Si ocurre un error al compilar.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.out.println("Uso: NameDictionary <nombres.txt> <nombres" + EXTENSION + "> [-type person]");
+      return;
+    }
+    String type = CommandLineOptions.option(Arrays.asList(args), "-type", "person");
+    long start = System.nanoTime();
+    int entries = compile(Paths.get(args[0]), Paths.get(args[1]), type);
+    System.out.println(entries + " nombres compilados en " + args[1] + " en "
+            + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+}
@@ -3,9 +3,12 @@ package org.fogbeam.example.opennlp;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinder;
 import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.util.Span;
 
@@ -18,7 +21,8 @@ public class NameFinderMain {
 
   /**
    * @brief Método principal que realiza la detección de nombres en un conjunto de tokens.
-   * @param args Argumentos de línea de comandos (no utilizados en este ejemplo).
+   * @param args Argumentos de línea de comandos: {@code [-dict nombres.dict]}, un diccionario de
+   *             nombres compilado que se consulta antes que el modelo ({@link HybridNameFinder}).
    * @throws Exception Lanza excepciones si ocurren errores durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
@@ -36,9 +40,13 @@ public class NameFinderMain {
       TokenNameFinderModel model = new TokenNameFinderModel(modelIn);
 
       /**
-       * @brief Crea un detector de nombres basado en el modelo cargado.
+       * @brief Crea un detector de nombres basado en el modelo cargado y, si se indica, en un diccionario.
        */
-      NameFinderME nameFinder = new NameFinderME(model);
+      TokenNameFinder nameFinder = new NameFinderME(model);
+      String dictionary = CommandLineOptions.option(Arrays.asList(args), "-dict", null);
+      if (dictionary != null) {
+        nameFinder = new HybridNameFinder(NameDictionary.open(Paths.get(dictionary)), nameFinder);
+      }
 
       /**
        * @brief Tokens que representan un fragmento de texto para analizar.
@@ -0,0 +1,452 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import opennlp.tools.chunker.ChunkSample;
+import opennlp.tools.cmdline.parser.ParserTool;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.namefind.NameSample;
+import opennlp.tools.namefind.TokenNameFinder;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+import org.fogbeam.example.opennlp.metrics.StageMetrics;
+import org.fogbeam.example.opennlp.pool.BatchingNameFinder;
+import org.fogbeam.example.opennlp.pool.BatchingPOSTagger;
+
+/**
+ * Servidor HTTP residente que mantiene los modelos cargados en memoria, para no pagar el
+ * arranque de la JVM y la carga de modelos en cada llamada.
+ *
+ * Cada servicio se pide con {@code POST /<servicio>} y el texto en el cuerpo (UTF-8); la
+ * respuesta es texto plano UTF-8:
+ * <ul>
+ *   <li>{@code /sentences}: una oración por línea.</li>
+ *   <li>{@code /tokenize}: los tokens de cada línea de entrada, separados por espacios.</li>
+ *   <li>{@code /pos}: cada línea etiquetada como {@code palabra_ETIQUETA}.</li>
+ *   <li>{@code /chunk}: cada línea con sus chunks, como {@code [NP The_DT dog_NN ]}.</li>
+ *   <li>{@code /ner}: cada línea con los nombres marcados como {@code <START:person> ... <END>}.</li>
+ *   <li>{@code /parse}: el árbol de cada línea entre paréntesis.</li>
+ *   <li>{@code /doccat}: todo el cuerpo es un documento; se devuelven sus categorías con
+ *   su probabilidad, de mayor a menor, separadas por tabuladores.</li>
+ * </ul>
+ * {@code GET /health} responde {@code ok} y {@code GET /metrics} devuelve las {@link Metrics}
+ * en el formato de texto de Prometheus: la latencia de cada componente y de cada servicio
+ * ({@code http.<servicio>}), la longitud de las colas de los lotes y el tiempo de carga de
+ * cada modelo. Las peticiones se atienden en un grupo fijo de
+ * hilos; como los hilos se reutilizan, cada uno conserva sus instancias ME del
+ * {@link ModelRegistry} entre peticiones.
+ *
+ * Con {@link #enableBatching} las oraciones de {@code /pos} y {@code /ner} de peticiones
+ * concurrentes se agrupan en lotes ({@link BatchingPOSTagger}, {@link BatchingNameFinder}).
+ * En ese modo cada oración de {@code /ner} se trata como un documento independiente.
+ */
+public class NlpServer {
+
+  private static final Logger logger = Logger.getLogger(NlpServer.class.getName());
+
+  /**
+   * Puerto por defecto.
+   */
+  public static final int DEFAULT_PORT = 8090;
+
+  /**
+   * Tamaño máximo del cuerpo de una petición, en bytes.
+   */
+  private static final int MAX_REQUEST_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Servicio que transforma el texto de una petición en la respuesta.
+   */
+  @FunctionalInterface
+  private interface Service {
+    String handle(String text) throws IOException;
+  }
+
+  /**
+   * Registro del que se obtienen los modelos y las instancias de cada hilo.
+   */
+  private final ModelRegistry registry;
+
+  /**
+   * Servicios por nombre.
+   */
+  private final Map<String, Service> services = new LinkedHashMap<>();
+
+  /**
+   * Métricas de las peticiones de cada servicio.
+   */
+  private final Map<String, StageMetrics> requestMetrics = new LinkedHashMap<>();
+
+  private final HttpServer server;
+
+  private final ExecutorService executor;
+
+  /**
+   * Etiquetador y detector de nombres por lotes, o null si no se agrupan las peticiones.
+   */
+  private volatile BatchingPOSTagger batchingTagger;
+  private volatile BatchingNameFinder batchingNameFinder;
+
+  /**
+   * Diccionario de nombres que se consulta antes que el modelo en {@code /ner}, o null.
+   */
+  private volatile NameDictionary nameDictionary;
+
+  /**
+   * Crea el servidor, sin arrancarlo. Solo escucha en la interfaz local.
+   *
+   * @param registry Registro de modelos.
+   * @param port Puerto en el que escucha; 0 para uno libre.
+   * @param threads Número de hilos que atienden peticiones.
+   * @throws IOException Si no se puede abrir el puerto.
+   */
+  public NlpServer(ModelRegistry registry, int port, int threads) throws IOException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("El número de hilos debe ser mayor que 0: " + threads);
+    }
+    this.registry = registry;
+    services.put("sentences", this::sentences);
+    services.put("tokenize", this::tokenize);
+    services.put("pos", this::pos);
+    services.put("chunk", this::chunk);
+    services.put("ner", this::ner);
+    services.put("parse", this::parse);
+    services.put("doccat", this::doccat);
+    for (String name : services.keySet()) {
+      requestMetrics.put(name, Metrics.stage("http." + name));
+    }
+
+    this.executor = Executors.newFixedThreadPool(threads);
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::dispatch);
+  }
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Argumentos de línea de comandos:
+   *             {@code [-port N] [-threads N] [-batchSize N [-batchWait µs] [-batchWorkers N]] [-beam N|greedy]
+   *             [-dict nombres.dict] [-metrics]}. {@code -beam} fija la decodificación de {@code /pos} y
+   *             {@code /chunk} ({@link SequenceDecoding}); {@code -dict} añade un diccionario de nombres a
+   *             {@code /ner} ({@link HybridNameFinder}).
+   * @throws Exception Si ocurre un error al arrancar el servidor.
+   */
+  public static void main(String[] args) throws Exception {
+    List<String> options = Arrays.asList(args);
+    int port = Integer.parseInt(CommandLineOptions.option(options, "-port", Integer.toString(DEFAULT_PORT)));
+    int threads = Integer.parseInt(CommandLineOptions.option(options, "-threads",
+            Integer.toString(2 * Runtime.getRuntime().availableProcessors())));
+
+    if (options.contains("-metrics")) {
+      Metrics.setEnabled(true);
+    }
+
+    ModelRegistry.getInstance().setBeamSize(SequenceDecoding.beamSizeOption(options));
+    NlpServer server = new NlpServer(ModelRegistry.getInstance(), port, threads);
+    server.warmUp();
+    String dictionary = CommandLineOptions.option(options, "-dict", null);
+    if (dictionary != null) {
+      server.setNameDictionary(NameDictionary.open(Paths.get(dictionary)));
+    }
+    int batchSize = Integer.parseInt(CommandLineOptions.option(options, "-batchSize", "1"));
+    if (batchSize > 1) {
+      server.enableBatching(Integer.parseInt(CommandLineOptions.option(options, "-batchWorkers", "1")), batchSize,
+              Long.parseLong(CommandLineOptions.option(options, "-batchWait", "500")));
+    }
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    server.start();
+    System.out.println("Escuchando en http://localhost:" + server.getPort() + "/ con " + threads + " hilos");
+  }
+
+  /**
+   * Carga de antemano los modelos disponibles, para que la primera petición no pague la
+   * carga. Los modelos que faltan se omiten; sus servicios fallarán al pedirlos.
+   */
+  public void warmUp() {
+    List<Callable<?>> loaders = Arrays.asList(registry::getTokenizerModel, registry::getSentenceModel,
+            registry::getPOSModel, registry::getChunkerModel, registry::getNameFinderModel,
+            registry::getDoccatModel, registry::getParserModel);
+    for (Callable<?> loader : loaders) {
+      try {
+        loader.call();
+      } catch (Exception e) {
+        logger.warning("No se ha podido cargar un modelo: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Fija el diccionario de nombres que {@code /ner} consulta antes que el modelo.
+   *
+   * @param dictionary Diccionario, o null para usar solo el modelo.
+   */
+  public void setNameDictionary(NameDictionary dictionary) {
+    this.nameDictionary = dictionary;
+  }
+
+  /**
+   * Agrupa en lotes las oraciones de {@code /pos} y {@code /ner}. Debe llamarse antes de
+   * {@link #start}.
+   *
+   * @param workers Número de hilos de trabajo de cada componente.
+   * @param maxBatchSize Número máximo de oraciones por lote.
+   * @param maxWaitMicros Tiempo máximo que se espera para completar un lote, en microsegundos.
+   * @throws IOException Si los modelos no se pueden cargar.
+   */
+  public void enableBatching(int workers, int maxBatchSize, long maxWaitMicros) throws IOException {
+    batchingTagger = new BatchingPOSTagger(registry.getPOSModel(), workers, maxBatchSize, maxWaitMicros,
+            registry.getBeamSize());
+    batchingNameFinder = new BatchingNameFinder(registry.getNameFinderModel(), workers, maxBatchSize, maxWaitMicros);
+  }
+
+  /**
+   * Empieza a atender peticiones.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Deja de aceptar peticiones, espera brevemente a las que están en curso y libera los hilos.
+   */
+  public void stop() {
+    server.stop(1);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (batchingTagger != null) {
+      batchingTagger.close();
+      batchingNameFinder.close();
+    }
+  }
+
+  /**
+   * @return El puerto en el que escucha el servidor.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Atiende una petición: comprueba el método y la ruta y llama al servicio.
+   */
+  private void dispatch(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getPath();
+      String name = path.startsWith("/") ? path.substring(1) : path;
+      String method = exchange.getRequestMethod();
+
+      if (name.equals("health")) {
+        respond(exchange, 200, "ok\n");
+        return;
+      }
+      if (name.equals("metrics")) {
+        StringBuilder metrics = new StringBuilder();
+        Metrics.writeText(metrics);
+        respond(exchange, 200, metrics.toString());
+        return;
+      }
+      Service service = services.get(name);
+      if (service == null) {
+        respond(exchange, 404, "Servicio desconocido: " + path + ". Disponibles: " + services.keySet() + "\n");
+        return;
+      }
+      if (!"POST".equals(method)) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        respond(exchange, 405, "Usa POST con el texto en el cuerpo\n");
+        return;
+      }
+
+      String text = readBody(exchange.getRequestBody());
+      if (text == null) {
+        respond(exchange, 413, "La petición supera " + MAX_REQUEST_BYTES + " bytes\n");
+        return;
+      }
+      long start = Metrics.start();
+      String response = service.handle(text);
+      requestMetrics.get(name).stop(start, 1);
+      respond(exchange, 200, response);
+    } catch (Exception e) {
+      logger.severe("Error" + e.getMessage());
+      respond(exchange, 500, "Error: " + e.getMessage() + "\n");
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Lee el cuerpo de la petición como UTF-8.
+   *
+   * @return El texto, o null si supera el tamaño máximo.
+   */
+  private static String readBody(InputStream in) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      if (body.size() + read > MAX_REQUEST_BYTES) {
+        return null;
+      }
+      body.write(buffer, 0, read);
+    }
+    return new String(body.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  /**
+   * Aplica una transformación a cada línea no vacía del texto y une los resultados, uno por línea.
+   */
+  private static String perLine(String text, Service line) throws IOException {
+    StringBuilder out = new StringBuilder();
+    for (String sentence : text.split("\r?\n")) {
+      if (!sentence.trim().isEmpty()) {
+        out.append(line.handle(sentence)).append('\n');
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Tokeniza una línea con el tokenizador del hilo actual y mide la llamada.
+   */
+  private String[] tokens(String line) throws IOException {
+    long start = Metrics.start();
+    String[] tokens = registry.getTokenizer().tokenize(line);
+    Metrics.TOKENIZE.stop(start, tokens.length);
+    return tokens;
+  }
+
+  /**
+   * Etiqueta una oración, por lotes si están activados, y mide la llamada.
+   */
+  private String[] tags(String[] tokens) throws IOException {
+    long start = Metrics.start();
+    String[] tags = batchingTagger != null ? batchingTagger.tag(tokens) : registry.getPOSTagger().tag(tokens);
+    Metrics.POS.stop(start, tokens.length);
+    return tags;
+  }
+
+  private String sentences(String text) throws IOException {
+    long start = Metrics.start();
+    String[] sentences = registry.getSentenceDetector().sentDetect(text);
+    Metrics.SENTENCES.stop(start, sentences.length);
+    StringBuilder out = new StringBuilder();
+    for (String sentence : sentences) {
+      out.append(sentence).append('\n');
+    }
+    return out.toString();
+  }
+
+  private String tokenize(String text) throws IOException {
+    return perLine(text, line -> String.join(" ", tokens(line)));
+  }
+
+  private String pos(String text) throws IOException {
+    return perLine(text, line -> {
+      String[] tokens = tokens(line);
+      return new POSSample(tokens, tags(tokens)).toString();
+    });
+  }
+
+  private String chunk(String text) throws IOException {
+    return perLine(text, line -> {
+      String[] tokens = tokens(line);
+      String[] tags = tags(tokens);
+      long start = Metrics.start();
+      String[] chunks = registry.getChunker().chunk(tokens, tags);
+      Metrics.CHUNK.stop(start, tokens.length);
+      return new ChunkSample(tokens, tags, chunks).nicePrint().trim();
+    });
+  }
+
+  private String ner(String text) throws IOException {
+    NameDictionary dictionary = nameDictionary;
+    if (batchingNameFinder != null) {
+      TokenNameFinder batched = dictionary != null
+              ? new HybridNameFinder(dictionary, batchingNameFinder) : batchingNameFinder;
+      return perLine(text, line -> {
+        String[] tokens = tokens(line);
+        long start = Metrics.start();
+        Span[] names = batched.find(tokens);
+        Metrics.NER.stop(start, tokens.length);
+        return new NameSample(tokens, names, false).toString();
+      });
+    }
+    TokenNameFinder nameFinder = dictionary != null
+            ? new HybridNameFinder(dictionary, registry.getNameFinder()) : registry.getNameFinder();
+    try {
+      return perLine(text, line -> {
+        String[] tokens = tokens(line);
+        long start = Metrics.start();
+        Span[] names = nameFinder.find(tokens);
+        Metrics.NER.stop(start, tokens.length);
+        return new NameSample(tokens, names, false).toString();
+      });
+    } finally {
+      // Cada petición es un documento distinto
+      nameFinder.clearAdaptiveData();
+    }
+  }
+
+  private String parse(String text) throws IOException {
+    return perLine(text, line -> {
+      // ParserTool solo separa por espacios, así que se tokeniza antes con el modelo
+      String tokens = String.join(" ", tokens(line));
+      long start = Metrics.start();
+      Parse[] parses = ParserTool.parseLine(tokens, registry.getParser(), 1);
+      Metrics.PARSE.stop(start, 1);
+      StringBuffer out = new StringBuffer();
+      parses[0].show(out);
+      return out.toString();
+    });
+  }
+
+  private String doccat(String text) throws IOException {
+    DocumentCategorizerME categorizer = registry.getDocumentCategorizer();
+    long start = Metrics.start();
+    double[] outcomes = categorizer.categorize(text);
+    Metrics.DOCCAT.stop(start, 1);
+    StringBuilder out = new StringBuilder();
+    for (int index : BatchDocumentClassifier.topIndices(outcomes, outcomes.length)) {
+      if (out.length() > 0) {
+        out.append('\t');
+      }
+      out.append(categorizer.getCategory(index)).append(':').append(String.format("%.4f", outcomes[index]));
+    }
+    return out.append('\n').toString();
+  }
+}
@@ -0,0 +1,239 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.util.Span;
+import opennlp.tools.util.StringUtil;
+
+/**
+ * Tokenización que devuelve posiciones en lugar de cadenas.
+ *
+ * Tokenizer.tokenize crea un String por token; quien solo necesita saber dónde empieza y
+ * acaba cada token (un índice, o escribir los tokens en otro sitio) puede usar esta clase,
+ * que escribe pares (inicio, fin) en un {@code int[]} o un {@link IntBuffer} del llamador,
+ * reutilizable entre llamadas. Los métodos {@code write} escriben los tokens directamente
+ * desde el texto original, sin crear cadenas.
+ *
+ * TokenizerME separa primero por espacios en blanco y decide cada fragmento por separado,
+ * así que los cortes de un fragmento solo dependen de su texto. Esta clase separa ella misma
+ * por espacios, sobre el texto original, y guarda en una caché los cortes de cada fragmento;
+ * un fragmento repetido no vuelve a pasar por el modelo ni crea ningún objeto. El resultado
+ * es el mismo que con tokenizePos para cualquier tokenizador que trate así los fragmentos
+ * (TokenizerME, SimpleTokenizer, WhitespaceTokenizer).
+ *
+ * No es thread-safe: cada hilo debe usar su propia instancia.
+ */
+public class OffsetTokenizer {
+
+  /**
+   * Número de entradas de la caché de fragmentos.
+   */
+  private static final int CACHE_SIZE = 1 << 14;
+
+  /**
+   * Longitud máxima de los fragmentos que se guardan en la caché.
+   */
+  private static final int MAX_CACHED_LENGTH = 48;
+
+  /**
+   * Tokenizador subyacente, usado con los fragmentos que no están en la caché.
+   */
+  private final Tokenizer tokenizer;
+
+  /**
+   * Caché de acceso directo: fragmento, su hash y sus tokens como pares (inicio, fin)
+   * relativos al fragmento. Una entrada nueva sustituye a la que ocupaba su posición.
+   */
+  private final String[] cachedPieces = new String[CACHE_SIZE];
+  private final int[] cachedHashes = new int[CACHE_SIZE];
+  private final int[][] cachedOffsets = new int[CACHE_SIZE][];
+
+  /**
+   * Destino de la llamada en curso: un array o un IntBuffer.
+   */
+  private int[] targetArray;
+  private IntBuffer targetBuffer;
+  private int count;
+
+  /**
+   * Crea un tokenizador de posiciones.
+   *
+   * @param tokenizer Tokenizador subyacente.
+   */
+  public OffsetTokenizer(Tokenizer tokenizer) {
+    this.tokenizer = tokenizer;
+  }
+
+  /**
+   * Tokeniza un texto y guarda el inicio y el fin de cada token en {@code offsets}: el token
+   * i ocupa {@code offsets[2*i]} (inclusive) a {@code offsets[2*i+1]} (exclusive). Si el array
+   * es demasiado pequeño se llenan los pares que caben; el valor devuelto indica el tamaño
+   * necesario. Como cada token ocupa al menos un carácter, un array del doble de la longitud
+   * del texto siempre basta.
+   *
+   * @param text Texto a tokenizar.
+   * @param offsets Destino de las posiciones.
+   * @return Número de tokens del texto.
+   */
+  public int tokenize(CharSequence text, int[] offsets) {
+    targetArray = offsets;
+    try {
+      return tokenize(text);
+    } finally {
+      targetArray = null;
+    }
+  }
+
+  /**
+   * Tokeniza un texto y añade el inicio y el fin de cada token a {@code offsets}, a partir de
+   * su posición actual.
+   *
+   * @param text Texto a tokenizar.
+   * @param offsets Destino de las posiciones.
+   * @return Número de tokens del texto.
+   * @throws BufferOverflowException Si no caben todas las posiciones; en ese caso la posición
+   *                                 del buffer no cambia.
+   */
+  public int tokenize(CharSequence text, IntBuffer offsets) {
+    int position = offsets.position();
+    targetBuffer = offsets;
+    try {
+      return tokenize(text);
+    } catch (BufferOverflowException e) {
+      offsets.position(position);
+      throw e;
+    } finally {
+      targetBuffer = null;
+    }
+  }
+
+  /**
+   * Separa el texto por espacios en blanco, como WhitespaceTokenizer, y tokeniza cada fragmento.
+   */
+  private int tokenize(CharSequence text) {
+    count = 0;
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      while (i < length && StringUtil.isWhitespace(text.charAt(i))) {
+        i++;
+      }
+      int start = i;
+      int hash = 0;
+      while (i < length && !StringUtil.isWhitespace(text.charAt(i))) {
+        hash = 31 * hash + text.charAt(i);
+        i++;
+      }
+      if (i > start) {
+        addPiece(text, start, i, hash);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Añade los tokens de un fragmento sin espacios, desde la caché o con el tokenizador.
+   *
+   * @param hash Hash del fragmento, igual al de String.hashCode.
+   */
+  private void addPiece(CharSequence text, int start, int end, int hash) {
+    if (end - start == 1) {
+      add(start, end);
+      return;
+    }
+
+    int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+    int[] pieceOffsets;
+    if (cachedHashes[slot] == hash && matches(cachedPieces[slot], text, start, end)) {
+      pieceOffsets = cachedOffsets[slot];
+    } else {
+      String piece = text.subSequence(start, end).toString();
+      Span[] spans = tokenizer.tokenizePos(piece);
+      pieceOffsets = new int[spans.length * 2];
+      for (int i = 0; i < spans.length; i++) {
+        pieceOffsets[2 * i] = spans[i].getStart();
+        pieceOffsets[2 * i + 1] = spans[i].getEnd();
+      }
+      if (piece.length() <= MAX_CACHED_LENGTH) {
+        cachedPieces[slot] = piece;
+        cachedHashes[slot] = hash;
+        cachedOffsets[slot] = pieceOffsets;
+      }
+    }
+
+    for (int i = 0; i < pieceOffsets.length; i += 2) {
+      add(start + pieceOffsets[i], start + pieceOffsets[i + 1]);
+    }
+  }
+
+  private static boolean matches(String piece, CharSequence text, int start, int end) {
+    if (piece == null || piece.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < piece.length(); i++) {
+      if (piece.charAt(i) != text.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void add(int start, int end) {
+    if (targetBuffer != null) {
+      if (targetBuffer.remaining() < 2) {
+        throw new BufferOverflowException();
+      }
+      targetBuffer.put(start);
+      targetBuffer.put(end);
+    } else if (2 * count + 1 < targetArray.length) {
+      targetArray[2 * count] = start;
+      targetArray[2 * count + 1] = end;
+    }
+    count++;
+  }
+
+  /**
+   * Escribe tokens, uno por línea, a partir de sus posiciones en el texto original.
+   *
+   * @param text Texto original.
+   * @param offsets Posiciones devueltas por {@link #tokenize(CharSequence, int[])}.
+   * @param count Número de tokens.
+   * @param out Destino de los tokens.
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  public static void write(CharSequence text, int[] offsets, int count, Writer out) throws IOException {
+    for (int i = 0; i < count; i++) {
+      int start = offsets[2 * i];
+      int end = offsets[2 * i + 1];
+      if (text instanceof String) {
+        // Writer.append haría subSequence, que crea una cadena nueva
+        out.write((String) text, start, end - start);
+      } else {
+        for (int c = start; c < end; c++) {
+          out.write(text.charAt(c));
+        }
+      }
+      out.write('\n');
+    }
+  }
+
+  /**
+   * Escribe tokens, uno por línea, a partir de sus posiciones en un array de caracteres.
+   *
+   * @param text Texto original.
+   * @param offsets Posiciones de los tokens, relativas al inicio de {@code text}.
+   * @param count Número de tokens.
+   * @param out Destino de los tokens.
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  public static void write(char[] text, int[] offsets, int count, Writer out) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.write(text, offsets[2 * i], offsets[2 * i + 1] - offsets[2 * i]);
+      out.write('\n');
+    }
+  }
+}
@@ -1,10 +1,16 @@
 package org.fogbeam.example.opennlp;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import opennlp.tools.cmdline.parser.ParserTool;
+import opennlp.tools.parser.AbstractBottomUpParser;
 import opennlp.tools.parser.Parse;
 import opennlp.tools.parser.Parser;
 import opennlp.tools.parser.ParserFactory;
@@ -18,10 +24,17 @@ public class ParserMain {
 
   /**
    * @brief Método principal que realiza el análisis sintáctico de una oración de ejemplo.
-   * @param args Argumentos de línea de comandos (no se utilizan en este ejemplo).
+   * @details Si se indica un archivo, analiza en su lugar todas sus oraciones con {@link BatchParser}.
+   * @param args Argumentos de línea de comandos:
+   *             {@code [archivo [-threads N] [-budget ms] [-beam K] [-cache N] [-cacheFile ruta]]}.
    * @throws Exception Lanza excepciones en caso de errores durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
+    if (args.length > 0) {
+      parseFile(args);
+      return;
+    }
+
     /**
      * @brief Carga el modelo de análisis sintáctico desde un archivo binario.
      */
@@ -84,4 +97,60 @@ public class ParserMain {
      */
     System.out.println("done");
   }
+
+  /**
+   * @brief Analiza un archivo con una oración tokenizada por línea, repartiendo las oraciones entre varios hilos.
+   * @details Las oraciones que agotan su presupuesto de tiempo reciben un análisis superficial de chunks.
+   * Al terminar se imprime la latencia por oración y cuántas oraciones recibieron el análisis superficial.
+   * Con {@code -cache N} las oraciones repetidas se sirven de una caché de N árboles, y con
+   * {@code -cacheFile ruta} la caché se carga de ese archivo y se guarda en él al terminar.
+   * @param args Archivo de entrada seguido de las opciones {@code -threads N}, {@code -budget ms},
+   *             {@code -beam K}, {@code -cache N} y {@code -cacheFile ruta}.
+   * @throws Exception Lanza excepciones en caso de errores durante la ejecución.
+   */
+  private static void parseFile(String[] args) throws Exception {
+    List<String> options = Arrays.asList(args);
+    int threads = Integer.parseInt(CommandLineOptions.option(options, "-threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+    long budget = Long.parseLong(CommandLineOptions.option(options, "-budget", Long.toString(BatchParser.DEFAULT_TIME_BUDGET_MILLIS)));
+    int beam = Integer.parseInt(CommandLineOptions.option(options, "-beam", Integer.toString(AbstractBottomUpParser.defaultBeamSize)));
+
+    ResultCache<Parse> cache = CommandLineOptions.cache(options, BatchParser.PARSE_CODEC, ResultCache.fingerprint(
+            ModelRegistry.getInstance().getModelFile(ModelRegistry.PARSER_MODEL), "beam=" + beam));
+
+    BatchParser parser = new BatchParser(ModelRegistry.getInstance().getParserModel(), threads, budget, beam, cache);
+    List<Long> latencies = new ArrayList<>();
+    int[] shallow = new int[1];
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+      parser.parseAll(reader.lines().filter(line -> !line.trim().isEmpty()).iterator(), result -> {
+        StringBuffer out = new StringBuffer();
+        result.getParse().show(out);
+        System.out.println(out);
+        latencies.add(result.getNanos());
+        if (result.isShallow()) {
+          shallow[0]++;
+        }
+      });
+    }
+
+    if (!latencies.isEmpty()) {
+      latencies.sort(null);
+      System.out.printf("%d oraciones, %d con análisis superficial; latencia p50 %d ms, p99 %d ms, máxima %d ms%n",
+              latencies.size(), shallow[0], percentile(latencies, 50), percentile(latencies, 99),
+              latencies.get(latencies.size() - 1) / 1000000);
+    }
+    if (cache != null) {
+      System.out.println(cache.getStats());
+      cache.save();
+    }
+    System.out.println("done");
+  }
+
+  /**
+   * @brief Devuelve un percentil, en milisegundos, de una lista ordenada de latencias en nanosegundos.
+   */
+  private static long percentile(List<Long> sorted, int percentile) {
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(0, index)) / 1000000;
+  }
 }
@@ -3,6 +3,7 @@ package org.fogbeam.example.opennlp;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
@@ -21,7 +22,8 @@ public class PartOfSpeechTaggerMain {
   /**
    * Método principal que carga un modelo de etiquetación de partes de la oración y procesa una oración de ejemplo.
    *
-   * @param args Argumentos de línea de comandos (no se usan en este ejemplo).
+   * @param args Argumentos de línea de comandos: {@code [-beam N|greedy]}, el tamaño del haz
+   *             de la decodificación ({@link SequenceDecoding}).
    */
   public static void main(String[] args) {
     /**
@@ -41,9 +43,9 @@ public class PartOfSpeechTaggerMain {
       POSModel model = new POSModel(modelIn);
 
       /**
-       * Crea un etiquetador POS basado en el modelo cargado.
+       * Crea un etiquetador POS basado en el modelo cargado, con el modo de decodificación elegido.
        */
-      POSTaggerME tagger = new POSTaggerME(model);
+      POSTaggerME tagger = SequenceDecoding.createPOSTagger(model, SequenceDecoding.beamSizeOption(Arrays.asList(args)));
 
       /**
        * Oración de ejemplo a etiquetar.
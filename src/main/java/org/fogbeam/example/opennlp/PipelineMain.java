@@ -0,0 +1,103 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+import org.fogbeam.example.opennlp.pipeline.AnnotatedSentence;
+import org.fogbeam.example.opennlp.pipeline.AnnotationPipeline;
+
+/**
+ * Clase principal que pasa uno o más archivos de texto por el pipeline completo de anotación:
+ * detección de oraciones, tokenización, etiquetación POS, chunking y detección de nombres.
+ * Cada párrafo (bloque de líneas separado por una línea en blanco) se envía como un documento,
+ * por lo que los archivos nunca se cargan completos en memoria. Con {@code -Dnlp.metrics=true}
+ * se muestran al terminar las métricas de cada etapa ({@link Metrics}).
+ */
+public class PipelineMain {
+
+  private static final Logger logger = Logger.getLogger(PipelineMain.class.getName());
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Rutas de los archivos de entrada.
+   * @throws Exception Si ocurre un error durante la ejecución.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.out.println("Por favor, proporciona uno o más archivos de entrada.");
+      return;
+    }
+
+    try (AnnotationPipeline pipeline = new AnnotationPipeline(ModelRegistry.getInstance(), PipelineMain::print)) {
+      for (String filePath : args) {
+        submitParagraphs(filePath, pipeline);
+      }
+    } catch (IOException e) {
+      logger.severe("Error" + e.getMessage());
+    }
+
+    if (Metrics.isEnabled()) {
+      // Con -Dnlp.metrics=true se muestra la latencia de cada etapa al terminar
+      StringBuilder metrics = new StringBuilder();
+      Metrics.writeText(metrics);
+      System.err.print(metrics);
+    }
+    System.out.println("done");
+  }
+
+  /**
+   * Envía cada párrafo de un archivo al pipeline como un documento independiente.
+   *
+   * @param filePath Ruta del archivo.
+   * @param pipeline Pipeline de anotación.
+   * @throws IOException Si ocurre un error al leer el archivo.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera sitio en el pipeline.
+   */
+  private static void submitParagraphs(String filePath, AnnotationPipeline pipeline)
+          throws IOException, InterruptedException {
+    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+      StringBuilder paragraph = new StringBuilder();
+      int count = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty()) {
+          if (paragraph.length() > 0) {
+            pipeline.submit(filePath + "#" + count++, paragraph.toString());
+            paragraph.setLength(0);
+          }
+        } else {
+          paragraph.append(line).append('\n');
+        }
+      }
+      if (paragraph.length() > 0) {
+        pipeline.submit(filePath + "#" + count, paragraph.toString());
+      }
+    }
+  }
+
+  /**
+   * Imprime una oración anotada: cada token con sus etiquetas POS y de chunking, y los nombres encontrados.
+   *
+   * @param sentence Oración anotada.
+   */
+  private static synchronized void print(AnnotatedSentence sentence) {
+    StringBuilder out = new StringBuilder();
+    out.append('[').append(sentence.getDocumentId()).append(' ').append(sentence.getSentenceIndex()).append("] ");
+    String[] tokens = sentence.getTokens();
+    for (int i = 0; i < tokens.length; i++) {
+      out.append(tokens[i]).append('/').append(sentence.getPosTags()[i])
+              .append('/').append(sentence.getChunkTags()[i]).append(' ');
+    }
+    for (Span name : sentence.getNames()) {
+      out.append("\n  name: ").append(String.join(" ", Arrays.copyOfRange(tokens, name.getStart(), name.getEnd())));
+    }
+    System.out.println(out);
+  }
+}
@@ -0,0 +1,356 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Caché acotada de resultados de componentes costosos (análisis sintáctico, clasificación
+ * de documentos) para textos que se repiten.
+ *
+ * La clave es un hash del texto normalizado (Unicode NFC, espacios colapsados y sin
+ * espacios en los extremos), de modo que la caché no guarda los textos. Cuando se llena
+ * se descarta la entrada usada hace más tiempo (LRU). Lleva la cuenta de aciertos, fallos
+ * y desalojos, y puede guardarse en disco para sobrevivir a un reinicio.
+ *
+ * El archivo lleva en la cabecera una huella de lo que produjo los resultados (archivo del
+ * modelo, su tamaño y fecha, y los ajustes que influyen en el resultado) y el codificador de
+ * los valores. Si al cargarlo no coinciden con los actuales, el archivo se descarta para no
+ * servir resultados de otro modelo o de otros ajustes.
+ *
+ * Los valores se comparten entre todos los que piden el mismo texto, por lo que no deben
+ * modificarse.
+ *
+ * @param <V> Tipo de resultado.
+ */
+public class ResultCache<V> {
+
+  private static final Logger logger = Logger.getLogger(ResultCache.class.getName());
+
+  /**
+   * Número máximo de entradas por defecto.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+  private static final int MAGIC = 0x52434348;
+  private static final int VERSION = 2;
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  /**
+   * Convierte los resultados a texto y de vuelta, para guardar la caché en disco.
+   *
+   * @param <V> Tipo de resultado.
+   */
+  public interface ValueCodec<V> {
+    String encode(V value);
+
+    V decode(String text);
+  }
+
+  /**
+   * Número máximo de entradas.
+   */
+  private final int maxEntries;
+
+  /**
+   * Archivo donde se guarda la caché, o null si solo vive en memoria.
+   */
+  private final File file;
+
+  /**
+   * Codificador de los resultados para el archivo.
+   */
+  private final ValueCodec<V> codec;
+
+  /**
+   * Huella del modelo y los ajustes que producen los resultados.
+   */
+  private final String fingerprint;
+
+  /**
+   * Resultados en orden de acceso (LRU), por hash del texto normalizado.
+   */
+  private final LinkedHashMap<String, V> entries;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Crea una caché en memoria.
+   *
+   * @param maxEntries Número máximo de entradas.
+   */
+  public ResultCache(int maxEntries) {
+    this(maxEntries, null, null, null);
+  }
+
+  /**
+   * Crea una caché que se guarda en un archivo. Si el archivo existe y su huella coincide,
+   * se cargan sus entradas; si no coincide, se descarta.
+   *
+   * @param maxEntries Número máximo de entradas.
+   * @param file Archivo de la caché, o null para no guardarla.
+   * @param codec Codificador de los resultados; obligatorio si se indica archivo.
+   * @param fingerprint Huella del modelo y los ajustes ({@link #fingerprint}); obligatoria si se indica archivo.
+   * @throws IllegalArgumentException Si el archivo existe pero no se puede leer.
+   */
+  public ResultCache(int maxEntries, File file, ValueCodec<V> codec, String fingerprint) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("El tamaño de la caché debe ser mayor que 0: " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.file = file;
+    this.codec = codec;
+    this.fingerprint = fingerprint;
+    this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        if (size() > ResultCache.this.maxEntries) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+
+    if (file != null && file.isFile()) {
+      try {
+        load();
+      } catch (IOException e) {
+        throw new IllegalArgumentException("No se puede leer la caché " + file + ": " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Calcula la huella de unos resultados: el nombre, tamaño y fecha de modificación del
+   * archivo del modelo y los ajustes que influyen en el resultado.
+   *
+   * @param model Archivo del modelo que produce los resultados.
+   * @param settings Ajustes que influyen en el resultado, por ejemplo {@code "beam=20"}.
+   * @return La huella.
+   */
+  public static String fingerprint(File model, String settings) {
+    return model.getName() + ";" + model.length() + ";" + model.lastModified() + ";" + settings;
+  }
+
+  /**
+   * Normaliza un texto para que variaciones de espaciado o de composición Unicode
+   * compartan entrada.
+   *
+   * @param text Texto original.
+   * @return El texto normalizado.
+   */
+  public static String normalize(String text) {
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+    return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+  }
+
+  /**
+   * Calcula la clave de un texto: los primeros 128 bits del SHA-256 del texto normalizado.
+   *
+   * @param text Texto original.
+   * @return La clave, en hexadecimal.
+   */
+  static String key(String text) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] hash = digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8));
+    StringBuilder key = new StringBuilder(32);
+    for (int i = 0; i < 16; i++) {
+      key.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Devuelve el resultado de un texto si está en caché.
+   *
+   * @param text Texto original.
+   * @return El resultado, o null si no está.
+   */
+  public V getIfPresent(String text) {
+    String key = key(text);
+    synchronized (entries) {
+      V value = entries.get(key);
+      if (value != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Guarda el resultado de un texto.
+   *
+   * @param text Texto original.
+   * @param value Resultado.
+   */
+  public void put(String text, V value) {
+    String key = key(text);
+    synchronized (entries) {
+      entries.put(key, value);
+    }
+  }
+
+  /**
+   * Devuelve el resultado de un texto, calculándolo y guardándolo si no está en caché.
+   * El cálculo se hace fuera del bloqueo, así que dos hilos que pidan a la vez el mismo
+   * texto pueden calcularlo ambos.
+   *
+   * @param text Texto original.
+   * @param compute Calcula el resultado a partir del texto original.
+   * @return El resultado.
+   */
+  public V get(String text, Function<String, V> compute) {
+    V value = getIfPresent(text);
+    if (value == null) {
+      value = compute.apply(text);
+      put(text, value);
+    }
+    return value;
+  }
+
+  /**
+   * @return Número de entradas en caché.
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * @return Número de consultas que encontraron el resultado.
+   */
+  public long getHits() {
+    synchronized (entries) {
+      return hits;
+    }
+  }
+
+  /**
+   * @return Número de consultas que no encontraron el resultado.
+   */
+  public long getMisses() {
+    synchronized (entries) {
+      return misses;
+    }
+  }
+
+  /**
+   * @return Número de entradas descartadas por falta de sitio.
+   */
+  public long getEvictions() {
+    synchronized (entries) {
+      return evictions;
+    }
+  }
+
+  /**
+   * @return Proporción de consultas que encontraron el resultado, entre 0 y 1.
+   */
+  public double getHitRate() {
+    synchronized (entries) {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  /**
+   * Devuelve un resumen de las métricas de la caché.
+   *
+   * @return Aciertos, fallos, tasa de aciertos, entradas y desalojos.
+   */
+  public String getStats() {
+    synchronized (entries) {
+      return String.format("caché: %d aciertos, %d fallos (%.1f%%), %d entradas, %d desalojos",
+              hits, misses, 100 * getHitRate(), entries.size(), evictions);
+    }
+  }
+
+  /**
+   * Guarda la caché en su archivo, si tiene. Se escribe en un archivo temporal que se
+   * renombra al terminar, para no dejar una caché a medias.
+   *
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  public void save() throws IOException {
+    if (file == null) {
+      return;
+    }
+    List<Map.Entry<String, V>> snapshot;
+    synchronized (entries) {
+      snapshot = new ArrayList<>(entries.entrySet());
+    }
+
+    File parent = file.getAbsoluteFile().getParentFile();
+    Files.createDirectories(parent.toPath());
+    File temp = new File(parent, file.getName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(fingerprint);
+      out.writeUTF(codec.getClass().getName());
+      out.writeInt(snapshot.size());
+      // Del menos al más usado, para que al cargar se conserve el orden LRU
+      for (Map.Entry<String, V> entry : snapshot) {
+        out.writeUTF(entry.getKey());
+        byte[] value = codec.encode(entry.getValue()).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(value.length);
+        out.write(value);
+      }
+    }
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void load() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("formato no reconocido");
+      }
+      if (in.readInt() != VERSION || !in.readUTF().equals(fingerprint)
+              || !in.readUTF().equals(codec.getClass().getName())) {
+        logger.info("La caché " + file + " es de otro modelo, otros ajustes u otra versión; se descarta");
+        return;
+      }
+      int count = in.readInt();
+      synchronized (entries) {
+        for (int i = 0; i < count; i++) {
+          String key = in.readUTF();
+          byte[] value = new byte[in.readInt()];
+          in.readFully(value);
+          entries.put(key, codec.decode(new String(value, StandardCharsets.UTF_8)));
+        }
+        // Las entradas que no caben al cargar con un tamaño menor no cuentan como desalojos
+        evictions = 0;
+      }
+    }
+  }
+}
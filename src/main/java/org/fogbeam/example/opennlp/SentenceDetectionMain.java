@@ -3,6 +3,7 @@ package org.fogbeam.example.opennlp;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
@@ -20,8 +21,11 @@ public class SentenceDetectionMain {
 
   /**
    * Método principal que carga un modelo de detección de oraciones y procesa datos de ejemplo.
+   * El archivo de entrada se lee mapeado en memoria por ventanas, por lo que puede ser
+   * arbitrariamente grande.
    *
-   * @param args Argumentos de línea de comandos (no se usan en este ejemplo).
+   * @param args Argumentos de línea de comandos: ruta opcional del archivo de entrada
+   *             (por defecto {@code demo_data/en-sent1.demo}).
    * @throws Exception Si ocurre un error durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
@@ -31,9 +35,9 @@ public class SentenceDetectionMain {
     InputStream modelIn = new FileInputStream("models/en-sent.model");
 
     /**
-     * Flujo de entrada para los datos de ejemplo que serán procesados.
+     * Archivo con los datos de ejemplo que serán procesados.
      */
-    InputStream demoDataIn = new FileInputStream("demo_data/en-sent1.demo");
+    String demoDataFile = args.length > 0 ? args[0] : "demo_data/en-sent1.demo";
 
     try {
       /**
@@ -47,21 +51,10 @@ public class SentenceDetectionMain {
       SentenceDetectorME sentenceDetector = new SentenceDetectorME(model);
 
       /**
-       * Convierte el flujo de entrada de los datos de ejemplo a una cadena.
+       * Detecta oraciones en los datos de ejemplo y las imprime en la consola a medida que se encuentran.
        */
-      String demoData = convertStreamToString(demoDataIn);
-
-      /**
-       * Detecta oraciones en los datos de ejemplo.
-       */
-      String sentences[] = sentenceDetector.sentDetect(demoData);
-
-      /**
-       * Imprime las oraciones detectadas en la consola.
-       */
-      for (String sentence : sentences) {
-        System.out.println(sentence + "\n");
-      }
+      new MappedSentenceDetector(sentenceDetector).detect(Paths.get(demoDataFile),
+              sentence -> System.out.println(sentence + "\n"));
     } catch (Exception e) {
       logger.severe("Error" + e.getMessage());
     } finally {
@@ -75,31 +68,8 @@ public class SentenceDetectionMain {
           logger.severe("Error" + e.getMessage());
         }
       }
-
-      /**
-       * Cierra el flujo de entrada de los datos de ejemplo si está abierto.
-       */
-      if (demoDataIn != null) {
-        try {
-          demoDataIn.close();
-        } catch (Exception e) {
-          logger.severe("Error" + e.getMessage());
-        }
-      }
     }
 
     System.out.println("done");
   }
-
-  /**
-   * Convierte un flujo de entrada en una cadena de texto.
-   *
-   * @param is Flujo de entrada que se desea convertir.
-   * @return El contenido del flujo de entrada como una cadena.
-   */
-  static String convertStreamToString(java.io.InputStream is) {
-    java.util.Scanner s = new java.util.Scanner(is).useDelimiter("\\A");
-    return s.hasNext() ? s.next() : "";
-  }
 }
-
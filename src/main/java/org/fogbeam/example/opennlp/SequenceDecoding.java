@@ -0,0 +1,182 @@
+package org.fogbeam.example.opennlp;
+
+import java.util.Arrays;
+import java.util.List;
+
+import opennlp.model.MaxentModel;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.util.BeamSearch;
+import opennlp.tools.util.BeamSearchContextGenerator;
+import opennlp.tools.util.Sequence;
+import opennlp.tools.util.SequenceValidator;
+
+/**
+ * Modos de decodificación del etiquetador POS y del chunker.
+ *
+ * POSTaggerME y ChunkerME buscan la mejor secuencia de etiquetas con una búsqueda en haz
+ * (beam search) de tamaño 3 por defecto. Con un haz mayor se exploran más secuencias; con
+ * {@link #GREEDY} se elige en cada token la etiqueta válida más probable, sin mantener
+ * secuencias alternativas. Es lo mismo que un haz de tamaño 1, pero sin el coste fijo de
+ * BeamSearch, que en cada token ordena todas las probabilidades y crea una secuencia nueva
+ * copiando la anterior.
+ *
+ * {@code training.DecodingReport} mide la precisión y la velocidad de cada modo sobre un corpus.
+ */
+public final class SequenceDecoding {
+
+  /**
+   * Tamaño de haz que selecciona la decodificación voraz.
+   */
+  public static final int GREEDY = 1;
+
+  /**
+   * Tamaño de haz por defecto de OpenNLP.
+   */
+  public static final int DEFAULT_BEAM_SIZE = POSTaggerME.DEFAULT_BEAM_SIZE;
+
+  private SequenceDecoding() {
+  }
+
+  /**
+   * Crea un etiquetador POS con el tamaño de haz indicado.
+   *
+   * @param model Modelo POS.
+   * @param beamSize Tamaño del haz; {@link #GREEDY} para la decodificación voraz.
+   * @return El etiquetador, que como POSTaggerME no es thread-safe.
+   */
+  public static POSTaggerME createPOSTagger(POSModel model, int beamSize) {
+    checkBeamSize(beamSize);
+    return beamSize == GREEDY ? new GreedyPOSTagger(model) : new POSTaggerME(model, beamSize, 0);
+  }
+
+  /**
+   * Crea un chunker con el tamaño de haz indicado.
+   *
+   * @param model Modelo de chunking.
+   * @param beamSize Tamaño del haz; {@link #GREEDY} para la decodificación voraz.
+   * @return El chunker, que como ChunkerME no es thread-safe.
+   */
+  public static ChunkerME createChunker(ChunkerModel model, int beamSize) {
+    checkBeamSize(beamSize);
+    return beamSize == GREEDY ? new GreedyChunker(model) : new ChunkerME(model, beamSize);
+  }
+
+  /**
+   * Lee el tamaño de haz de la opción {@code -beam}; {@code -beam greedy} equivale a 1.
+   *
+   * @param options Argumentos de línea de comandos.
+   * @return El tamaño de haz, o {@link #DEFAULT_BEAM_SIZE} si no se indica.
+   */
+  public static int beamSizeOption(List<String> options) {
+    return parseBeamSize(CommandLineOptions.option(options, "-beam", Integer.toString(DEFAULT_BEAM_SIZE)));
+  }
+
+  /**
+   * Convierte un tamaño de haz escrito en la línea de comandos; {@code greedy} equivale a 1.
+   *
+   * @param value Número o {@code greedy}.
+   * @return El tamaño de haz.
+   * @throws NumberFormatException Si no es un número ni {@code greedy}.
+   */
+  public static int parseBeamSize(String value) {
+    return "greedy".equalsIgnoreCase(value) ? GREEDY : Integer.parseInt(value);
+  }
+
+  private static void checkBeamSize(int beamSize) {
+    if (beamSize < 1) {
+      throw new IllegalArgumentException("El tamaño del haz debe ser mayor que 0: " + beamSize);
+    }
+  }
+
+  /**
+   * POSTaggerME con búsqueda voraz.
+   */
+  private static final class GreedyPOSTagger extends POSTaggerME {
+    GreedyPOSTagger(POSModel model) {
+      super(model, GREEDY, 0);
+      beam = new GreedySearch<>(contextGen, posModel, model.getFactory().getSequenceValidator());
+    }
+  }
+
+  /**
+   * ChunkerME con búsqueda voraz.
+   */
+  private static final class GreedyChunker extends ChunkerME {
+    GreedyChunker(ChunkerModel model) {
+      super(model, GREEDY);
+      beam = new GreedySearch<>(model.getFactory().getContextGenerator(), this.model,
+              model.getFactory().getSequenceValidator());
+    }
+  }
+
+  /**
+   * Búsqueda voraz con la interfaz de BeamSearch: en cada posición se evalúa el modelo una
+   * vez y se toma la etiqueta válida más probable. Si ninguna etiqueta es válida se toma la
+   * más probable, como haría un haz que no puede descartarla.
+   */
+  private static final class GreedySearch<T> extends BeamSearch<T> {
+
+    /**
+     * Validador de la secuencia, o null; el de BeamSearch es privado.
+     */
+    private final SequenceValidator<T> validator;
+
+    GreedySearch(BeamSearchContextGenerator<T> contextGenerator, MaxentModel model, SequenceValidator<T> validator) {
+      super(GREEDY, contextGenerator, model, validator, 0);
+      this.validator = validator;
+    }
+
+    @Override
+    public Sequence[] bestSequences(int numSequences, T[] sequence, Object[] additionalContext,
+                                    double minSequenceScore) {
+      return new Sequence[]{bestSequence(sequence, additionalContext)};
+    }
+
+    @Override
+    public Sequence bestSequence(T[] sequence, Object[] additionalContext) {
+      Object[] context = additionalContext != null ? additionalContext : new Object[0];
+      String[] outcomes = new String[sequence.length];
+      double[] probabilities = new double[sequence.length];
+      double[] scores = new double[model.getNumOutcomes()];
+
+      for (int i = 0; i < sequence.length; i++) {
+        // Los generadores de contexto solo miran las posiciones anteriores a i
+        model.eval(cg.getContext(i, sequence, outcomes, context), scores);
+        int best = 0;
+        for (int o = 1; o < scores.length; o++) {
+          if (scores[o] > scores[best]) {
+            best = o;
+          }
+        }
+
+        if (validator != null) {
+          // Los validadores sí miran la longitud de las etiquetas anteriores
+          String[] previous = Arrays.copyOf(outcomes, i);
+          if (!validator.validSequence(i, sequence, previous, model.getOutcome(best))) {
+            int valid = -1;
+            for (int o = 0; o < scores.length; o++) {
+              if ((valid < 0 || scores[o] > scores[valid])
+                      && validator.validSequence(i, sequence, previous, model.getOutcome(o))) {
+                valid = o;
+              }
+            }
+            if (valid >= 0) {
+              best = valid;
+            }
+          }
+        }
+        outcomes[i] = model.getOutcome(best);
+        probabilities[i] = scores[best];
+      }
+
+      Sequence result = new Sequence();
+      for (int i = 0; i < outcomes.length; i++) {
+        result.add(outcomes[i], probabilities[i]);
+      }
+      return result;
+    }
+  }
+}
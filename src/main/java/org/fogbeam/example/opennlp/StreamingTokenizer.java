@@ -0,0 +1,132 @@
+package org.fogbeam.example.opennlp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import opennlp.tools.tokenize.Tokenizer;
+
+/**
+ * Tokenizador en streaming con memoria constante.
+ * Lee la entrada en bloques de tamaño fijo, corta cada bloque en un límite de línea
+ * (o, si no hay ninguno, en un espacio en blanco), tokeniza el bloque y escribe los
+ * tokens inmediatamente. Como TokenizerME separa primero por espacios en blanco, el
+ * resultado es el mismo que tokenizando el texto completo de una vez, salvo para
+ * secuencias sin espacios más largas que el propio bloque, que se parten.
+ */
+public class StreamingTokenizer {
+
+  /**
+   * Tamaño de bloque por defecto, en caracteres.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Tokenizador usado para cada bloque.
+   */
+  private final OffsetTokenizer tokenizer;
+
+  /**
+   * Búfer reutilizable donde se acumula el bloque actual.
+   */
+  private final char[] buffer;
+
+  /**
+   * Posiciones reutilizables de los tokens del bloque actual.
+   */
+  private int[] offsets = new int[0];
+
+  /**
+   * Crea un tokenizador en streaming con el tamaño de bloque por defecto.
+   *
+   * @param tokenizer Tokenizador usado para cada bloque.
+   */
+  public StreamingTokenizer(Tokenizer tokenizer) {
+    this(tokenizer, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Crea un tokenizador en streaming.
+   *
+   * @param tokenizer Tokenizador usado para cada bloque.
+   * @param chunkSize Tamaño máximo de bloque, en caracteres.
+   */
+  public StreamingTokenizer(Tokenizer tokenizer, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("El tamaño de bloque debe ser mayor que 0: " + chunkSize);
+    }
+    this.tokenizer = new OffsetTokenizer(tokenizer);
+    this.buffer = new char[chunkSize];
+  }
+
+  /**
+   * Tokeniza todo el contenido de la entrada y escribe un token por línea en la salida.
+   *
+   * @param in Entrada de texto.
+   * @param out Destino de los tokens.
+   * @return Número de tokens escritos.
+   * @throws IOException Si ocurre un error de lectura o escritura.
+   */
+  public long tokenize(Reader in, Writer out) throws IOException {
+    long count = 0;
+    int length = 0;
+    int read;
+    while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length < buffer.length) {
+        continue;
+      }
+
+      // Bloque lleno: tokeniza hasta el último límite y conserva el resto
+      int cut = findBoundary(length);
+      count += tokenizeChunk(cut, out);
+      System.arraycopy(buffer, cut, buffer, 0, length - cut);
+      length -= cut;
+    }
+
+    if (length > 0) {
+      count += tokenizeChunk(length, out);
+    }
+    return count;
+  }
+
+  /**
+   * Busca el punto de corte del bloque: tras el último salto de línea o, en su defecto,
+   * tras el último espacio en blanco. Si el bloque no contiene ninguno se corta al final.
+   *
+   * @param length Número de caracteres válidos en el búfer.
+   * @return Número de caracteres que se tokenizan en este bloque.
+   */
+  private int findBoundary(int length) {
+    int lastWhitespace = -1;
+    for (int i = length - 1; i >= 0; i--) {
+      if (buffer[i] == '\n') {
+        return i + 1;
+      }
+      if (lastWhitespace < 0 && Character.isWhitespace(buffer[i])) {
+        lastWhitespace = i;
+      }
+    }
+    return lastWhitespace >= 0 ? lastWhitespace + 1 : length;
+  }
+
+  /**
+   * Tokeniza los primeros caracteres del búfer y escribe los tokens directamente desde el
+   * búfer, sin crear una cadena por token.
+   *
+   * @param length Número de caracteres a tokenizar.
+   * @param out Destino de los tokens.
+   * @return Número de tokens escritos.
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  private int tokenizeChunk(int length, Writer out) throws IOException {
+    // Cada token ocupa al menos un carácter, así que nunca hay más tokens que caracteres
+    if (offsets.length < length * 2) {
+      offsets = new int[length * 2];
+    }
+    int count = tokenizer.tokenize(CharBuffer.wrap(buffer, 0, length), offsets);
+    OffsetTokenizer.write(buffer, offsets, count, out);
+    return count;
+  }
+}
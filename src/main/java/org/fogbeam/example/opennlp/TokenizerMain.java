@@ -1,6 +1,9 @@
 package org.fogbeam.example.opennlp;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
 import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
@@ -19,13 +22,25 @@ public class TokenizerMain {
   /**
    * Método principal del programa.
    * Procesa uno o más archivos proporcionados como argumentos y guarda los tokens en un archivo de salida.
+   * Con la opción {@code -threads N} los archivos se reparten entre N hilos, manteniendo el orden de salida.
    *
-   * @param args Argumentos de línea de comandos que representan rutas a archivos de entrada.
+   * @param args Argumentos de línea de comandos: {@code [-threads N] archivo...}.
    * @throws Exception Si ocurre un error durante la ejecución.
    */
   public static void main(String[] args) throws Exception {
+    // Separa la opción de hilos de las rutas de entrada
+    int threads = 1;
+    List<String> filePaths = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-threads".equals(args[i]) && i + 1 < args.length) {
+        threads = Integer.parseInt(args[++i]);
+      } else {
+        filePaths.add(args[i]);
+      }
+    }
+
     // Verifica que al menos un archivo de entrada ha sido proporcionado
-    if (args.length == 0) {
+    if (filePaths.isEmpty()) {
       System.out.println("Por favor, proporciona uno o más archivos de entrada.");
       return;
     }
@@ -47,34 +62,26 @@ public class TokenizerMain {
     BufferedWriter writer = new BufferedWriter(new FileWriter("output_tokens.txt"));
 
     try {
-      // Procesar cada archivo proporcionado como argumento
-      for (String filePath : args) {
-        File inputFile = new File(filePath);
-
-        /**
-         * Verifica si el archivo de entrada existe y es válido.
-         */
-        if (inputFile.exists() && inputFile.isFile()) {
-          System.out.println("Procesando archivo: " + filePath);
-
-          // Leer el contenido del archivo
-          String content = readFile(inputFile);
+      if (threads > 1) {
+        new BatchTokenizer(model, threads).tokenizeFiles(filePaths, writer);
+      } else {
+        // Procesar cada archivo proporcionado como argumento
+        for (String filePath : filePaths) {
+          File inputFile = new File(filePath);
 
           /**
-           * Tokeniza el contenido del archivo.
+           * Verifica si el archivo de entrada existe y es válido.
            */
-          String[] tokens = tokenizer.tokenize(content);
+          if (inputFile.exists() && inputFile.isFile()) {
+            System.out.println("Procesando archivo: " + filePath);
 
-          /**
-           * Escribe los tokens generados en el archivo de salida.
-           */
-          writer.write("Tokens de: " + filePath + "\n");
-          for (String token : tokens) {
-            writer.write(token + "\n");
+            /**
+             * Tokeniza el contenido del archivo en bloques y escribe los tokens en el archivo de salida.
+             */
+            tokenizeFile(inputFile, tokenizer, writer);
+          } else {
+            System.out.println("El archivo " + filePath + " no existe o no es un archivo válido.");
           }
-          writer.write("\n-----\n");
-        } else {
-          System.out.println("El archivo " + filePath + " no existe o no es un archivo válido.");
         }
       }
     } catch (Exception e) {
@@ -99,21 +106,19 @@ public class TokenizerMain {
   }
 
   /**
-   * Lee el contenido de un archivo y lo devuelve como una cadena de texto.
+   * Tokeniza un archivo en streaming y escribe sus tokens en la salida, precedidos de una
+   * cabecera con su ruta. El archivo nunca se carga completo en memoria.
    *
-   * @param file Archivo que se desea leer.
-   * @return Contenido del archivo como una cadena.
-   * @throws IOException Si ocurre un error al leer el archivo.
+   * @param file Archivo que se desea tokenizar.
+   * @param tokenizer Tokenizador a utilizar.
+   * @param writer Destino de los tokens.
+   * @throws IOException Si ocurre un error al leer el archivo o al escribir.
    */
-  private static String readFile(File file) throws IOException {
-    StringBuilder content = new StringBuilder();
-    BufferedReader reader = new BufferedReader(new FileReader(file));
-    String line;
-    while ((line = reader.readLine()) != null) {
-      content.append(line).append("\n");
+  static void tokenizeFile(File file, Tokenizer tokenizer, Writer writer) throws IOException {
+    writer.write("Tokens de: " + file.getPath() + "\n");
+    try (Reader reader = new FileReader(file)) {
+      new StreamingTokenizer(tokenizer).tokenize(reader, writer);
     }
-    reader.close();
-    return content.toString();
+    writer.write("\n-----\n");
   }
 }
-
@@ -0,0 +1,144 @@
+package org.fogbeam.example.opennlp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias thread-safe con cubos log-lineales, al estilo de HdrHistogram.
+ *
+ * Los valores menores que 64 ns tienen un cubo cada uno; a partir de ahí cada potencia de
+ * dos se divide en 32 cubos, de modo que el error relativo de un percentil es como mucho
+ * del 3 %, sea cual sea la escala. Registrar un valor es un cálculo de bits y un incremento
+ * atómico, sin reservar memoria. Los valores de 2^40 ns (unos 18 minutos) o más se acumulan
+ * en un cubo de desbordamiento, cuyo percentil es el máximo registrado.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+  /**
+   * Mayor desplazamiento de los cubos normales: el último acaba en 2^40 - 1 ns.
+   */
+  private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS - 1;
+
+  /**
+   * Cubos lineales, cubos log-lineales y el de desbordamiento, que es el último.
+   */
+  private static final int BUCKETS = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKETS + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Registra una latencia.
+   *
+   * @param nanos Latencia en nanosegundos; los valores negativos se cuentan como 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucket(value));
+    count.increment();
+    sum.add(value);
+    long current;
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+      // reintenta hasta que el máximo sea al menos este valor
+    }
+  }
+
+  /**
+   * @return Número de valores registrados.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return Suma de los valores registrados, en nanosegundos.
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * @return Mayor valor registrado, en nanosegundos.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Calcula un percentil.
+   *
+   * @param percentile Percentil entre 0 y 100.
+   * @return El valor del percentil en nanosegundos (límite superior de su cubo, sin pasar del
+   *         máximo registrado), o 0 si no hay valores.
+   */
+  public long getPercentile(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(upperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Borra todos los valores.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    max.set(0);
+  }
+
+  /**
+   * @return El cubo de un valor no negativo.
+   */
+  static int bucket(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    if (shift > MAX_SHIFT) {
+      return BUCKETS - 1;
+    }
+    int top = (int) (value >>> shift);
+    return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+  }
+
+  /**
+   * @return El mayor valor que cae en un cubo, o Long.MAX_VALUE para el de desbordamiento.
+   */
+  static long upperBound(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    }
+    if (bucket == BUCKETS - 1) {
+      return Long.MAX_VALUE;
+    }
+    int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+    long top = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((top + 1) << shift) - 1;
+  }
+}
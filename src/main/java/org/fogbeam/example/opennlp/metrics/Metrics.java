@@ -0,0 +1,250 @@
+package org.fogbeam.example.opennlp.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de los componentes de NLP: latencia y elementos procesados por etapa,
+ * indicadores como la longitud de las colas y tiempos de carga de los modelos.
+ *
+ * Están desactivadas por defecto; se activan con {@link #setEnabled(boolean)} o con la
+ * propiedad del sistema {@code -Dnlp.metrics=true}. Desactivadas, medir una llamada cuesta
+ * una lectura de un campo volatile. Al activarlas se publican por JMX en el dominio
+ * {@value #JMX_DOMAIN}, y {@link #writeText(StringBuilder)} las escribe en el formato de
+ * texto de Prometheus.
+ */
+public final class Metrics {
+
+  private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+
+  /**
+   * Dominio JMX de las métricas.
+   */
+  public static final String JMX_DOMAIN = "org.fogbeam.example.opennlp";
+
+  private static final ConcurrentMap<String, StageMetrics> stages = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Long> modelLoads = new ConcurrentHashMap<>();
+
+  /**
+   * Etapas de los componentes.
+   */
+  public static final StageMetrics SENTENCES = stage("sentences");
+  public static final StageMetrics TOKENIZE = stage("tokenize");
+  public static final StageMetrics POS = stage("pos");
+  public static final StageMetrics CHUNK = stage("chunk");
+  public static final StageMetrics NER = stage("ner");
+  public static final StageMetrics DOCCAT = stage("doccat");
+  public static final StageMetrics PARSE = stage("parse");
+
+  private static volatile boolean enabled;
+  private static boolean registered;
+
+  static {
+    if (Boolean.getBoolean("nlp.metrics")) {
+      setEnabled(true);
+    }
+  }
+
+  private Metrics() {
+  }
+
+  /**
+   * Activa o desactiva la medición. La primera vez que se activa se publican las métricas por JMX.
+   *
+   * @param enable true para medir.
+   */
+  public static synchronized void setEnabled(boolean enable) {
+    enabled = enable;
+    if (enable && !registered) {
+      registered = true;
+      register("type=Metrics", new MetricsMXBean() {
+        @Override
+        public Map<String, Long> getGauges() {
+          Map<String, Long> values = new TreeMap<>();
+          gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+          return values;
+        }
+
+        @Override
+        public Map<String, Long> getModelLoadMillis() {
+          Map<String, Long> values = new TreeMap<>();
+          modelLoads.forEach((model, nanos) -> values.put(model, TimeUnit.NANOSECONDS.toMillis(nanos)));
+          return values;
+        }
+      });
+      for (StageMetrics stage : stages.values()) {
+        register("type=Stage,name=" + stage.getName(), stage);
+      }
+    }
+  }
+
+  /**
+   * @return true si se está midiendo.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Marca el inicio de una llamada medida.
+   *
+   * @return El instante actual en nanosegundos, o 0 si las métricas están desactivadas.
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Devuelve las métricas de una etapa, creándolas si no existen.
+   *
+   * @param name Nombre de la etapa.
+   * @return Las métricas de la etapa.
+   */
+  public static StageMetrics stage(String name) {
+    StageMetrics stage = stages.get(name);
+    if (stage != null) {
+      return stage;
+    }
+    synchronized (Metrics.class) {
+      stage = stages.computeIfAbsent(name, StageMetrics::new);
+      if (registered) {
+        register("type=Stage,name=" + name, stage);
+      }
+      return stage;
+    }
+  }
+
+  /**
+   * Registra un indicador, sustituyendo al que tuviera el mismo nombre.
+   *
+   * @param name Nombre del indicador.
+   * @param value Proporciona el valor actual; debe ser thread-safe y barato.
+   */
+  public static void gauge(String name, LongSupplier value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Elimina un indicador, por ejemplo cuando se cierra la cola que mide.
+   *
+   * @param name Nombre del indicador.
+   */
+  public static void removeGauge(String name) {
+    gauges.remove(name);
+  }
+
+  /**
+   * Registra un indicador sin sustituir a otro con el mismo nombre: si el nombre ya está en
+   * uso, se le añade un sufijo {@code -2}, {@code -3}, etc. Sirve para componentes de los que
+   * puede haber varias instancias a la vez.
+   *
+   * @param name Nombre preferido del indicador.
+   * @param value Proporciona el valor actual; debe ser thread-safe y barato.
+   * @return El nombre con el que se ha registrado, que debe usarse para eliminarlo.
+   */
+  public static String addGauge(String name, LongSupplier value) {
+    String unique = name;
+    for (int n = 2; gauges.putIfAbsent(unique, value) != null; n++) {
+      unique = name + "-" + n;
+    }
+    return unique;
+  }
+
+  /**
+   * Elimina un indicador solo si sigue registrado con el mismo proveedor, para no quitar el
+   * de otra instancia que lo haya sustituido.
+   *
+   * @param name Nombre del indicador.
+   * @param value Proveedor con el que se registró.
+   */
+  public static void removeGauge(String name, LongSupplier value) {
+    gauges.remove(name, value);
+  }
+
+  /**
+   * Registra el tiempo de carga de un modelo. Se registra aunque las métricas estén
+   * desactivadas, porque ocurre pocas veces.
+   *
+   * @param model Archivo del modelo.
+   * @param nanos Tiempo de carga en nanosegundos.
+   */
+  public static void modelLoaded(String model, long nanos) {
+    modelLoads.put(model, nanos);
+  }
+
+  /**
+   * Escribe todas las métricas en el formato de texto de Prometheus.
+   *
+   * @param out Destino.
+   */
+  public static void writeText(StringBuilder out) {
+    Map<String, StageMetrics> sorted = new TreeMap<>(stages);
+
+    out.append("# TYPE nlp_stage_latency_seconds summary\n");
+    for (StageMetrics stage : sorted.values()) {
+      LatencyHistogram latency = stage.getLatency();
+      String label = "stage=\"" + stage.getName() + "\"";
+      for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+        line(out, "nlp_stage_latency_seconds", label + ",quantile=\"" + quantile + "\"",
+                latency.getPercentile(quantile * 100) / 1e9);
+      }
+      line(out, "nlp_stage_latency_seconds_sum", label, latency.getSum() / 1e9);
+      line(out, "nlp_stage_latency_seconds_count", label, latency.getCount());
+    }
+    out.append("# TYPE nlp_stage_latency_max_seconds gauge\n");
+    for (StageMetrics stage : sorted.values()) {
+      line(out, "nlp_stage_latency_max_seconds", "stage=\"" + stage.getName() + "\"", stage.getLatency().getMax() / 1e9);
+    }
+    out.append("# TYPE nlp_stage_items_total counter\n");
+    for (StageMetrics stage : sorted.values()) {
+      line(out, "nlp_stage_items_total", "stage=\"" + stage.getName() + "\"", stage.getItems());
+    }
+
+    out.append("# TYPE nlp_gauge gauge\n");
+    for (Map.Entry<String, LongSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+      line(out, "nlp_gauge", "name=\"" + gauge.getKey() + "\"", gauge.getValue().getAsLong());
+    }
+    out.append("# TYPE nlp_model_load_seconds gauge\n");
+    for (Map.Entry<String, Long> load : new TreeMap<>(modelLoads).entrySet()) {
+      line(out, "nlp_model_load_seconds", "model=\"" + load.getKey() + "\"", load.getValue() / 1e9);
+    }
+  }
+
+  private static void line(StringBuilder out, String metric, String labels, double value) {
+    out.append(metric).append('{').append(labels).append("} ");
+    if (value == Math.rint(value)) {
+      out.append((long) value);
+    } else {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+
+  /**
+   * Publica un bean por JMX.
+   *
+   * @param properties Propiedades del ObjectName dentro de {@link #JMX_DOMAIN}.
+   */
+  private static void register(String properties, Object bean) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(JMX_DOMAIN + ":" + properties);
+      if (!server.isRegistered(objectName)) {
+        server.registerMBean(bean, objectName);
+      }
+    } catch (JMException e) {
+      logger.severe("Error" + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.fogbeam.example.opennlp.metrics;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de los indicadores y de los tiempos de carga de los modelos.
+ */
+public interface MetricsMXBean {
+
+  /**
+   * @return Valor actual de cada indicador (por ejemplo, la longitud de una cola), por nombre.
+   */
+  Map<String, Long> getGauges();
+
+  /**
+   * @return Tiempo de la última carga de cada modelo, en milisegundos, por archivo.
+   */
+  Map<String, Long> getModelLoadMillis();
+}
@@ -0,0 +1,126 @@
+package org.fogbeam.example.opennlp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una etapa: histograma de latencias y contador de elementos procesados.
+ *
+ * Se usa con {@link Metrics#start()}:
+ * <pre>
+ *   long start = Metrics.start();
+ *   String[] tags = tagger.tag(tokens);
+ *   Metrics.POS.stop(start, tokens.length);
+ * </pre>
+ * Con las métricas desactivadas {@code start()} devuelve 0 y {@code stop} no hace nada, así
+ * que el coste es una lectura de un campo volatile.
+ */
+public class StageMetrics implements StageMetricsMBean {
+
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private final String name;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder items = new LongAdder();
+  private volatile long since = System.nanoTime();
+
+  StageMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return Nombre de la etapa.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Registra una llamada.
+   *
+   * @param start Valor devuelto por {@link Metrics#start()} antes de la llamada; si es 0 (métricas
+   *              desactivadas) no se registra nada.
+   * @param processed Número de elementos procesados en la llamada.
+   */
+  public void stop(long start, long processed) {
+    if (start == 0) {
+      return;
+    }
+    latency.record(System.nanoTime() - start);
+    items.add(processed);
+  }
+
+  /**
+   * Registra una llamada ya medida por quien llama, si las métricas están activadas.
+   *
+   * @param nanos Duración de la llamada, en nanosegundos.
+   * @param processed Número de elementos procesados en la llamada.
+   */
+  public void record(long nanos, long processed) {
+    if (!Metrics.isEnabled()) {
+      return;
+    }
+    latency.record(nanos);
+    items.add(processed);
+  }
+
+  /**
+   * @return El histograma de latencias.
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  @Override
+  public long getCount() {
+    return latency.getCount();
+  }
+
+  @Override
+  public long getItems() {
+    return items.sum();
+  }
+
+  @Override
+  public double getItemsPerSecond() {
+    double seconds = (System.nanoTime() - since) / 1e9;
+    return seconds > 0 ? items.sum() / seconds : 0;
+  }
+
+  @Override
+  public double getMeanMillis() {
+    long count = latency.getCount();
+    return count == 0 ? 0 : latency.getSum() / NANOS_PER_MILLI / count;
+  }
+
+  @Override
+  public double getP50Millis() {
+    return latency.getPercentile(50) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP90Millis() {
+    return latency.getPercentile(90) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return latency.getPercentile(99) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP999Millis() {
+    return latency.getPercentile(99.9) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return latency.getMax() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public void reset() {
+    latency.reset();
+    items.reset();
+    since = System.nanoTime();
+  }
+}
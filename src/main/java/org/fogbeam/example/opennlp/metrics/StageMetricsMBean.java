@@ -0,0 +1,39 @@
+package org.fogbeam.example.opennlp.metrics;
+
+/**
+ * Vista JMX de las métricas de una etapa.
+ */
+public interface StageMetricsMBean {
+
+  /**
+   * @return Número de llamadas medidas.
+   */
+  long getCount();
+
+  /**
+   * @return Número de elementos procesados (tokens, oraciones, documentos...).
+   */
+  long getItems();
+
+  /**
+   * @return Elementos procesados por segundo desde que se crearon o reiniciaron las métricas.
+   */
+  double getItemsPerSecond();
+
+  double getMeanMillis();
+
+  double getP50Millis();
+
+  double getP90Millis();
+
+  double getP99Millis();
+
+  double getP999Millis();
+
+  double getMaxMillis();
+
+  /**
+   * Reinicia las métricas de la etapa.
+   */
+  void reset();
+}
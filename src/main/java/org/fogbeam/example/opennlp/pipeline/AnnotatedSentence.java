@@ -0,0 +1,98 @@
+package org.fogbeam.example.opennlp.pipeline;
+
+import opennlp.tools.util.Span;
+
+/**
+ * Oración que recorre el pipeline de anotación. Cada etapa rellena su parte: la
+ * tokenización, las etiquetas POS, las etiquetas de chunking y los nombres.
+ * El paso entre etapas se hace a través de colas bloqueantes, que garantizan la
+ * visibilidad de los campos escritos por la etapa anterior.
+ */
+public class AnnotatedSentence {
+
+  private final String documentId;
+  private final int sentenceIndex;
+  private final String text;
+  private String[] tokens;
+  private String[] posTags;
+  private String[] chunkTags;
+  private Span[] names;
+
+  /**
+   * Crea una oración sin anotar.
+   *
+   * @param documentId Identificador del documento de origen.
+   * @param sentenceIndex Posición de la oración dentro del documento.
+   * @param text Texto de la oración.
+   */
+  public AnnotatedSentence(String documentId, int sentenceIndex, String text) {
+    this.documentId = documentId;
+    this.sentenceIndex = sentenceIndex;
+    this.text = text;
+  }
+
+  /**
+   * @return El identificador del documento de origen.
+   */
+  public String getDocumentId() {
+    return documentId;
+  }
+
+  /**
+   * @return La posición de la oración dentro del documento, empezando en 0.
+   */
+  public int getSentenceIndex() {
+    return sentenceIndex;
+  }
+
+  /**
+   * @return El texto de la oración.
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * @return Los tokens de la oración.
+   */
+  public String[] getTokens() {
+    return tokens;
+  }
+
+  /**
+   * @return La etiqueta POS de cada token.
+   */
+  public String[] getPosTags() {
+    return posTags;
+  }
+
+  /**
+   * @return La etiqueta de chunking de cada token.
+   */
+  public String[] getChunkTags() {
+    return chunkTags;
+  }
+
+  /**
+   * @return Los nombres encontrados, como rangos de tokens.
+   */
+  public Span[] getNames() {
+    return names;
+  }
+
+  void setTokens(String[] tokens) {
+    this.tokens = tokens;
+  }
+
+  void setPosTags(String[] posTags) {
+    this.posTags = posTags;
+  }
+
+  void setChunkTags(String[] chunkTags) {
+    this.chunkTags = chunkTags;
+  }
+
+  void setNames(Span[] names) {
+    this.names = names;
+  }
+}
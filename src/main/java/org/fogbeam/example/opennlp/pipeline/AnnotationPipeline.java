@@ -0,0 +1,302 @@
+package org.fogbeam.example.opennlp.pipeline;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.ModelRegistry;
+import org.fogbeam.example.opennlp.metrics.Metrics;
+
+/**
+ * Pipeline de anotación en streaming:
+ * oraciones → tokens → etiquetas POS → chunks y nombres.
+ * Cada etapa tiene su propio grupo de hilos y se comunica con la siguiente mediante una
+ * cola acotada; cuando una etapa se retrasa, las colas se llenan y las etapas anteriores
+ * (y finalmente quien envía documentos) se bloquean, de modo que la memoria usada no
+ * depende del tamaño del corpus. Cada hilo usa sus propias instancias ME, obtenidas del
+ * {@link ModelRegistry}.
+ *
+ * Las oraciones anotadas se entregan al consumidor desde los hilos de la última etapa,
+ * sin un orden garantizado entre documentos; el consumidor debe ser thread-safe.
+ */
+public class AnnotationPipeline implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(AnnotationPipeline.class.getName());
+
+  /**
+   * Marca de fin de flujo que se propaga por las colas al cerrar el pipeline.
+   */
+  private static final Object END = new Object();
+
+  /**
+   * Entrega el resultado de una etapa a la siguiente.
+   */
+  @FunctionalInterface
+  private interface Emitter {
+    void emit(AnnotatedSentence sentence) throws InterruptedException;
+  }
+
+  /**
+   * Trabajo que realiza una etapa sobre cada elemento de su cola de entrada.
+   */
+  @FunctionalInterface
+  private interface StageFunction<I> {
+    void apply(I item, Emitter out) throws Exception;
+  }
+
+  /**
+   * Documento pendiente de dividir en oraciones.
+   */
+  private static class Document {
+    final String id;
+    final String text;
+
+    Document(String id, String text) {
+      this.id = id;
+      this.text = text;
+    }
+  }
+
+  /**
+   * Etapa del pipeline: una cola de entrada acotada y un grupo de hilos que la consumen.
+   */
+  private class Stage<I> {
+    final String name;
+    final BlockingQueue<Object> input;
+    final int workers;
+    final StageFunction<I> function;
+    final AtomicInteger running;
+    final ExecutorService executor;
+    final LongSupplier queueSize;
+    final String gauge;
+    Stage<?> next;
+    Consumer<AnnotatedSentence> sink;
+
+    Stage(String name, int workers, int queueCapacity, StageFunction<I> function) {
+      this.name = name;
+      this.input = new ArrayBlockingQueue<>(queueCapacity);
+      this.workers = workers;
+      this.function = function;
+      this.running = new AtomicInteger(workers);
+      // Nombre único por si hay varios pipelines abiertos a la vez
+      this.queueSize = () -> input.size();
+      this.gauge = Metrics.addGauge("pipeline." + name + ".queue", queueSize);
+      AtomicInteger threadCount = new AtomicInteger();
+      this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+        Thread thread = new Thread(runnable, "pipeline-" + name + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    void start() {
+      for (int i = 0; i < workers; i++) {
+        executor.execute(this::run);
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    void run() {
+      Emitter out = next != null ? sentence -> next.input.put(sentence) : sentence -> sink.accept(sentence);
+      try {
+        while (true) {
+          Object item = input.take();
+          if (item == END) {
+            break;
+          }
+          try {
+            function.apply((I) item, out);
+          } catch (InterruptedException e) {
+            throw e;
+          } catch (Exception e) {
+            fail(name, e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // El último hilo en terminar propaga el fin de flujo a la etapa siguiente
+        if (running.decrementAndGet() == 0 && next != null) {
+          next.signalEnd();
+        }
+      }
+    }
+
+    void signalEnd() {
+      try {
+        for (int i = 0; i < workers; i++) {
+          input.put(END);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Etapas del pipeline, en orden.
+   */
+  private final List<Stage<?>> stages = new ArrayList<>();
+
+  /**
+   * Primera etapa, que recibe los documentos.
+   */
+  private final Stage<Document> sentenceStage;
+
+  /**
+   * Primer error producido en alguna etapa.
+   */
+  private final AtomicReference<Exception> error = new AtomicReference<>();
+
+  /**
+   * Indica si el pipeline ya se ha cerrado.
+   */
+  private boolean closed;
+
+  /**
+   * Crea un pipeline con un hilo por procesador en cada etapa.
+   *
+   * @param registry Registro del que se obtienen los modelos.
+   * @param sink Consumidor thread-safe de las oraciones anotadas.
+   */
+  public AnnotationPipeline(ModelRegistry registry, Consumer<AnnotatedSentence> sink) {
+    this(registry, Runtime.getRuntime().availableProcessors(), 1024, sink);
+  }
+
+  /**
+   * Crea y arranca el pipeline.
+   *
+   * @param registry Registro del que se obtienen los modelos.
+   * @param workersPerStage Número de hilos de cada etapa.
+   * @param queueCapacity Capacidad de la cola de entrada de cada etapa.
+   * @param sink Consumidor thread-safe de las oraciones anotadas.
+   */
+  public AnnotationPipeline(ModelRegistry registry, int workersPerStage, int queueCapacity,
+                            Consumer<AnnotatedSentence> sink) {
+    sentenceStage = new Stage<>("sentences", workersPerStage, queueCapacity, (Document document, Emitter out) -> {
+      long start = Metrics.start();
+      String[] sentences = registry.getSentenceDetector().sentDetect(document.text);
+      Metrics.SENTENCES.stop(start, sentences.length);
+      for (int i = 0; i < sentences.length; i++) {
+        out.emit(new AnnotatedSentence(document.id, i, sentences[i]));
+      }
+    });
+    Stage<AnnotatedSentence> tokenStage = new Stage<>("tokens", workersPerStage, queueCapacity,
+            (AnnotatedSentence sentence, Emitter out) -> {
+              long start = Metrics.start();
+              sentence.setTokens(registry.getTokenizer().tokenize(sentence.getText()));
+              Metrics.TOKENIZE.stop(start, sentence.getTokens().length);
+              out.emit(sentence);
+            });
+    Stage<AnnotatedSentence> posStage = new Stage<>("pos", workersPerStage, queueCapacity,
+            (AnnotatedSentence sentence, Emitter out) -> {
+              long start = Metrics.start();
+              sentence.setPosTags(registry.getPOSTagger().tag(sentence.getTokens()));
+              Metrics.POS.stop(start, sentence.getTokens().length);
+              out.emit(sentence);
+            });
+    Stage<AnnotatedSentence> chunkAndNameStage = new Stage<>("chunks-names", workersPerStage, queueCapacity,
+            (AnnotatedSentence sentence, Emitter out) -> {
+              long start = Metrics.start();
+              sentence.setChunkTags(registry.getChunker().chunk(sentence.getTokens(), sentence.getPosTags()));
+              Metrics.CHUNK.stop(start, sentence.getTokens().length);
+              NameFinderME nameFinder = registry.getNameFinder();
+              start = Metrics.start();
+              Span[] names = nameFinder.find(sentence.getTokens());
+              Metrics.NER.stop(start, sentence.getTokens().length);
+              // Las oraciones de un documento se reparten entre hilos: no se comparte contexto adaptativo
+              nameFinder.clearAdaptiveData();
+              sentence.setNames(names);
+              out.emit(sentence);
+            });
+
+    stages.add(sentenceStage);
+    stages.add(tokenStage);
+    stages.add(posStage);
+    stages.add(chunkAndNameStage);
+    for (int i = 0; i < stages.size() - 1; i++) {
+      stages.get(i).next = stages.get(i + 1);
+    }
+    chunkAndNameStage.sink = sink;
+
+    for (Stage<?> stage : stages) {
+      stage.start();
+    }
+  }
+
+  /**
+   * Envía un documento al pipeline. Se bloquea si la primera etapa tiene la cola llena.
+   *
+   * @param documentId Identificador del documento, que acompaña a cada una de sus oraciones.
+   * @param text Texto del documento.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera sitio en la cola.
+   */
+  public void submit(String documentId, String text) throws InterruptedException {
+    if (closed) {
+      throw new IllegalStateException("El pipeline ya está cerrado");
+    }
+    sentenceStage.input.put(new Document(documentId, text));
+  }
+
+  /**
+   * Espera a que se procesen todos los documentos enviados y detiene los hilos. Si se
+   * interrumpe el hilo mientras espera, deja de esperar, detiene las etapas sin terminar
+   * el trabajo pendiente y conserva la marca de interrupción.
+   *
+   * @throws IOException Si alguna etapa falló al procesar un elemento, o si se interrumpió la espera
+   *                     ({@link InterruptedIOException}).
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      sentenceStage.signalEnd();
+      try {
+        for (Stage<?> stage : stages) {
+          stage.executor.shutdown();
+          stage.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+      } catch (InterruptedException e) {
+        for (Stage<?> stage : stages) {
+          stage.executor.shutdownNow();
+        }
+        Thread.currentThread().interrupt();
+        InterruptedIOException interrupted = new InterruptedIOException(
+                "Interrumpido mientras se esperaba el fin del pipeline de anotación");
+        interrupted.initCause(e);
+        throw interrupted;
+      } finally {
+        for (Stage<?> stage : stages) {
+          Metrics.removeGauge(stage.gauge, stage.queueSize);
+        }
+      }
+    }
+
+    Exception e = error.get();
+    if (e != null) {
+      throw new IOException("Error en el pipeline de anotación: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Registra un error de una etapa. El elemento se descarta y el pipeline continúa.
+   */
+  private void fail(String stageName, Exception e) {
+    error.compareAndSet(null, e);
+    logger.severe("Error en la etapa " + stageName + ": " + e.getMessage());
+  }
+}
@@ -0,0 +1,72 @@
+package org.fogbeam.example.opennlp.pool;
+
+import java.util.concurrent.CompletableFuture;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinder;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.util.Span;
+
+/**
+ * Detector de nombres thread-safe que agrupa en lotes las oraciones que llegan a la vez
+ * mediante un {@link MicroBatcher}. Como las oraciones de un lote vienen de llamadas
+ * distintas, los datos adaptativos se borran después de cada una y cada oración se trata
+ * como un documento independiente.
+ */
+public class BatchingNameFinder implements TokenNameFinder, AutoCloseable {
+
+  private final MicroBatcher<NameFinderME, String[], Span[]> batcher;
+
+  /**
+   * Crea un detector.
+   *
+   * @param model Modelo de detección de nombres compartido.
+   * @param workers Número de hilos de trabajo, cada uno con su instancia de NameFinderME.
+   * @param maxBatchSize Número máximo de oraciones por lote.
+   * @param maxWaitMicros Tiempo máximo que se espera para completar un lote, en microsegundos.
+   */
+  public BatchingNameFinder(TokenNameFinderModel model, int workers, int maxBatchSize, long maxWaitMicros) {
+    this.batcher = new MicroBatcher<>("ner-batch", workers, maxBatchSize, maxWaitMicros,
+            () -> new NameFinderME(model), NameFinderME::find, NameFinderME::clearAdaptiveData);
+  }
+
+  /**
+   * Busca nombres en una oración tokenizada.
+   *
+   * @param tokens Tokens de la oración.
+   * @return Los nombres encontrados como rangos de tokens.
+   */
+  @Override
+  public Span[] find(String[] tokens) {
+    return batcher.process(tokens);
+  }
+
+  /**
+   * No hace nada: los datos adaptativos ya se borran después de cada oración.
+   */
+  @Override
+  public void clearAdaptiveData() {
+  }
+
+  /**
+   * Encola una oración sin esperar el resultado.
+   *
+   * @param tokens Tokens de la oración.
+   * @return Futuro con los nombres encontrados.
+   */
+  public CompletableFuture<Span[]> findAsync(String[] tokens) {
+    return batcher.submit(tokens);
+  }
+
+  /**
+   * @return El batcher, para consultar sus métricas.
+   */
+  public MicroBatcher<NameFinderME, String[], Span[]> getBatcher() {
+    return batcher;
+  }
+
+  @Override
+  public void close() {
+    batcher.close();
+  }
+}
@@ -0,0 +1,89 @@
+package org.fogbeam.example.opennlp.pool;
+
+import java.util.concurrent.CompletableFuture;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+
+import org.fogbeam.example.opennlp.SequenceDecoding;
+
+/**
+ * Etiquetador POS thread-safe que agrupa en lotes las oraciones que llegan a la vez
+ * mediante un {@link MicroBatcher}. Pensado para muchas peticiones pequeñas y
+ * concurrentes, como las de un servidor; para pocas llamadas es preferible
+ * {@link PooledPOSTagger}, que no añade espera.
+ */
+public class BatchingPOSTagger implements AutoCloseable {
+
+  private final MicroBatcher<POSTaggerME, String[], TaggedSequence> batcher;
+
+  /**
+   * Crea un etiquetador.
+   *
+   * @param model Modelo POS compartido.
+   * @param workers Número de hilos de trabajo, cada uno con su instancia de POSTaggerME.
+   * @param maxBatchSize Número máximo de oraciones por lote.
+   * @param maxWaitMicros Tiempo máximo que se espera para completar un lote, en microsegundos.
+   */
+  public BatchingPOSTagger(POSModel model, int workers, int maxBatchSize, long maxWaitMicros) {
+    this(model, workers, maxBatchSize, maxWaitMicros, SequenceDecoding.DEFAULT_BEAM_SIZE);
+  }
+
+  /**
+   * Crea un etiquetador con un modo de decodificación concreto.
+   *
+   * @param model Modelo POS compartido.
+   * @param workers Número de hilos de trabajo, cada uno con su instancia de POSTaggerME.
+   * @param maxBatchSize Número máximo de oraciones por lote.
+   * @param maxWaitMicros Tiempo máximo que se espera para completar un lote, en microsegundos.
+   * @param beamSize Tamaño del haz; {@link SequenceDecoding#GREEDY} para la decodificación voraz.
+   */
+  public BatchingPOSTagger(POSModel model, int workers, int maxBatchSize, long maxWaitMicros, int beamSize) {
+    this.batcher = new MicroBatcher<>("pos-batch", workers, maxBatchSize, maxWaitMicros,
+            () -> SequenceDecoding.createPOSTagger(model, beamSize),
+            (tagger, sentence) -> new TaggedSequence(tagger.tag(sentence), tagger.probs()),
+            tagger -> { });
+  }
+
+  /**
+   * Etiqueta una oración tokenizada.
+   *
+   * @param sentence Tokens de la oración.
+   * @return La etiqueta POS de cada token.
+   */
+  public String[] tag(String[] sentence) {
+    return batcher.process(sentence).getTags();
+  }
+
+  /**
+   * Etiqueta una oración tokenizada y devuelve también la probabilidad de cada etiqueta.
+   *
+   * @param sentence Tokens de la oración.
+   * @return Las etiquetas POS y sus probabilidades.
+   */
+  public TaggedSequence tagWithProbabilities(String[] sentence) {
+    return batcher.process(sentence);
+  }
+
+  /**
+   * Encola una oración sin esperar el resultado.
+   *
+   * @param sentence Tokens de la oración.
+   * @return Futuro con las etiquetas POS y sus probabilidades.
+   */
+  public CompletableFuture<TaggedSequence> tagAsync(String[] sentence) {
+    return batcher.submit(sentence);
+  }
+
+  /**
+   * @return El batcher, para consultar sus métricas.
+   */
+  public MicroBatcher<POSTaggerME, String[], TaggedSequence> getBatcher() {
+    return batcher;
+  }
+
+  @Override
+  public void close() {
+    batcher.close();
+  }
+}
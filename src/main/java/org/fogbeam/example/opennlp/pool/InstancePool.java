@@ -0,0 +1,169 @@
+package org.fogbeam.example.opennlp.pool;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pool acotado de instancias no thread-safe.
+ * Las instancias se crean bajo demanda hasta el tamaño máximo; cuando todas están en
+ * uso, el hilo que pide una espera a que otro la devuelva. Al devolver una instancia
+ * se ejecuta una acción de limpieza para que no arrastre estado entre usos.
+ *
+ * @param <T> Tipo de instancia.
+ */
+public class InstancePool<T> {
+
+  /**
+   * Intervalo, en milisegundos, con el que un hilo en espera vuelve a comprobar si puede
+   * crear una instancia porque otra se ha descartado.
+   */
+  private static final long RETRY_MILLIS = 50;
+
+  /**
+   * Instancias libres.
+   */
+  private final BlockingQueue<T> idle = new LinkedBlockingQueue<>();
+
+  /**
+   * Número de instancias creadas hasta ahora.
+   */
+  private final AtomicInteger created = new AtomicInteger();
+
+  /**
+   * Número máximo de instancias.
+   */
+  private final int maxSize;
+
+  /**
+   * Crea nuevas instancias.
+   */
+  private final Supplier<T> factory;
+
+  /**
+   * Limpia el estado de una instancia al devolverla al pool.
+   */
+  private final Consumer<T> reset;
+
+  /**
+   * Crea un pool sin acción de limpieza.
+   *
+   * @param maxSize Número máximo de instancias.
+   * @param factory Crea nuevas instancias.
+   */
+  public InstancePool(int maxSize, Supplier<T> factory) {
+    this(maxSize, factory, instance -> { });
+  }
+
+  /**
+   * Crea un pool.
+   *
+   * @param maxSize Número máximo de instancias.
+   * @param factory Crea nuevas instancias.
+   * @param reset Limpia el estado de una instancia al devolverla al pool.
+   */
+  public InstancePool(int maxSize, Supplier<T> factory, Consumer<T> reset) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("El tamaño del pool debe ser mayor que 0: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.factory = factory;
+    this.reset = reset;
+  }
+
+  /**
+   * Toma una instancia del pool, creándola si aún no se ha alcanzado el máximo o
+   * esperando a que quede una libre en caso contrario. Mientras espera vuelve a comprobar
+   * periódicamente el número de instancias, porque las que fallan al limpiarse se descartan
+   * sin volver al pool.
+   *
+   * @return Una instancia de uso exclusivo hasta que se devuelva con {@link #release}.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera.
+   */
+  public T acquire() throws InterruptedException {
+    T instance = idle.poll();
+    while (instance == null) {
+      if (created.incrementAndGet() <= maxSize) {
+        try {
+          return factory.get();
+        } catch (RuntimeException e) {
+          created.decrementAndGet();
+          throw e;
+        }
+      }
+      created.decrementAndGet();
+      instance = idle.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return instance;
+  }
+
+  /**
+   * Limpia una instancia y la devuelve al pool.
+   *
+   * @param instance Instancia obtenida con {@link #acquire}.
+   */
+  public void release(T instance) {
+    try {
+      reset.accept(instance);
+      idle.offer(instance);
+    } catch (RuntimeException e) {
+      // Una instancia que no se puede limpiar se descarta y se creará otra
+      created.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Ejecuta una tarea con una instancia del pool y la devuelve al terminar. Si la tarea
+   * falla y además falla la devolución, el error de la devolución se añade como suprimido.
+   *
+   * @param <R> Tipo del resultado.
+   * @param task Tarea que usa la instancia.
+   * @return El resultado de la tarea.
+   * @throws IllegalStateException Si se interrumpe el hilo mientras espera una instancia.
+   */
+  public <R> R execute(Function<T, R> task) {
+    T instance;
+    try {
+      instance = acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrumpido mientras se esperaba una instancia del pool", e);
+    }
+    R result;
+    try {
+      result = task.apply(instance);
+    } catch (RuntimeException | Error e) {
+      try {
+        release(instance);
+      } catch (RuntimeException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    release(instance);
+    return result;
+  }
+
+  /**
+   * Devuelve el número máximo de instancias.
+   *
+   * @return Tamaño máximo del pool.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Devuelve el número de instancias libres en este momento.
+   *
+   * @return Instancias libres.
+   */
+  public int getIdleCount() {
+    return idle.size();
+  }
+}
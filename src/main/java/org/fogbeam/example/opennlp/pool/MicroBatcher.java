@@ -0,0 +1,287 @@
+package org.fogbeam.example.opennlp.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.fogbeam.example.opennlp.metrics.Metrics;
+
+/**
+ * Agrupa en lotes las peticiones pequeñas que llegan a la vez desde muchos hilos.
+ *
+ * Cada hilo de trabajo tiene su propia instancia (no thread-safe) y la mantiene mientras
+ * vive el batcher. Un hilo espera la primera petición y, a partir de ahí, sigue recogiendo
+ * hasta completar {@code maxBatchSize} o hasta que pasen {@code maxWaitMicros}; luego
+ * procesa el lote seguido con la misma instancia y completa el futuro de cada petición
+ * por separado. Así, con mucha carga, los hilos que llaman no compiten por instancias y
+ * cada instancia procesa muchas peticiones seguidas con sus datos ya en caché, a cambio
+ * de una latencia extra de como mucho {@code maxWaitMicros}. Con poca carga un lote se
+ * cierra en cuanto se agota la espera, aunque tenga una sola petición.
+ *
+ * Cualquier error de una petición, incluidos los {@link Error}, se entrega en su futuro y el
+ * hilo de trabajo sigue con las demás, para que nadie quede esperando un resultado.
+ *
+ * @param <T> Tipo de instancia.
+ * @param <I> Tipo de petición.
+ * @param <O> Tipo de resultado.
+ */
+public class MicroBatcher<T, I, O> implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(MicroBatcher.class.getName());
+
+  /**
+   * Petición pendiente junto con el futuro de quien la hizo.
+   */
+  private static final class Request<I, O> {
+    final I input;
+    final CompletableFuture<O> result = new CompletableFuture<>();
+
+    Request(I input) {
+      this.input = input;
+    }
+  }
+
+  /**
+   * Marca que indica a un hilo de trabajo que debe terminar.
+   */
+  private static final Request<Object, Object> STOP = new Request<>(null);
+
+  /**
+   * Peticiones pendientes.
+   */
+  private final BlockingQueue<Request<I, O>> queue = new LinkedBlockingQueue<>();
+
+  /**
+   * Número máximo de peticiones por lote.
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Tiempo máximo que se espera para completar un lote, en nanosegundos.
+   */
+  private final long maxWaitNanos;
+
+  /**
+   * Procesa una petición con una instancia.
+   */
+  private final BiFunction<T, I, O> task;
+
+  /**
+   * Limpia el estado de una instancia después de cada petición.
+   */
+  private final Consumer<T> reset;
+
+  private final List<Thread> workers = new ArrayList<>();
+
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+
+  /**
+   * Bloqueo que comparten {@link #submit} y {@link #close}, para que ninguna petición se
+   * encole después de cerrar.
+   */
+  private final Object lock = new Object();
+
+  private boolean closed;
+
+  /**
+   * Nombre del indicador de la longitud de la cola en {@link Metrics}, único por batcher.
+   */
+  private final String gauge;
+
+  /**
+   * Proveedor del indicador, para eliminarlo solo si sigue siendo el registrado.
+   */
+  private final LongSupplier queueSize = () -> queue.size();
+
+  /**
+   * Crea un batcher y arranca sus hilos de trabajo.
+   *
+   * @param name Nombre de los hilos de trabajo.
+   * @param workers Número de hilos de trabajo, cada uno con su instancia.
+   * @param maxBatchSize Número máximo de peticiones por lote.
+   * @param maxWaitMicros Tiempo máximo que se espera para completar un lote, en microsegundos.
+   * @param factory Crea la instancia de cada hilo de trabajo; desde ese momento solo la usa ese hilo.
+   * @param task Procesa una petición con una instancia.
+   * @param reset Limpia el estado de una instancia después de cada petición.
+   */
+  public MicroBatcher(String name, int workers, int maxBatchSize, long maxWaitMicros,
+                      Supplier<T> factory, BiFunction<T, I, O> task, Consumer<T> reset) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("El número de hilos debe ser mayor que 0: " + workers);
+    }
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("El tamaño del lote debe ser mayor que 0: " + maxBatchSize);
+    }
+    if (maxWaitMicros < 0) {
+      throw new IllegalArgumentException("La espera no puede ser negativa: " + maxWaitMicros);
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+    this.task = task;
+    this.reset = reset;
+    this.gauge = Metrics.addGauge(name + ".queue", queueSize);
+
+    // Las instancias se crean aquí para que un error al crearlas llegue a quien construye el batcher
+    for (int i = 0; i < workers; i++) {
+      T instance = factory.get();
+      Thread worker = new Thread(() -> run(instance), name + "-" + i);
+      worker.setDaemon(true);
+      this.workers.add(worker);
+      worker.start();
+    }
+  }
+
+  /**
+   * Encola una petición.
+   *
+   * @param input Petición.
+   * @return Futuro que se completa con el resultado de la petición o con su error.
+   * @throws IllegalStateException Si el batcher está cerrado.
+   */
+  public CompletableFuture<O> submit(I input) {
+    Request<I, O> request = new Request<>(input);
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("El batcher está cerrado");
+      }
+      queue.add(request);
+    }
+    return request.result;
+  }
+
+  /**
+   * Encola una petición y espera su resultado.
+   *
+   * @param input Petición.
+   * @return El resultado.
+   * @throws IllegalStateException Si el batcher está cerrado o se interrumpe el hilo mientras espera.
+   */
+  public O process(I input) {
+    try {
+      return submit(input).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrumpido mientras se esperaba un resultado", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new CompletionException(e.getCause());
+    }
+  }
+
+  /**
+   * @return Número de lotes procesados.
+   */
+  public long getBatchCount() {
+    return batches.get();
+  }
+
+  /**
+   * @return Tamaño medio de los lotes procesados.
+   */
+  public double getAverageBatchSize() {
+    long count = batches.get();
+    return count == 0 ? 0 : (double) requests.get() / count;
+  }
+
+  /**
+   * Deja de aceptar peticiones y espera a que se procesen las que ya están en cola.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void close() {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (int i = 0; i < workers.size(); i++) {
+        queue.add((Request<I, O>) (Request<?, ?>) STOP);
+      }
+    }
+    Metrics.removeGauge(gauge, queueSize);
+    try {
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Peticiones que quedaron detrás de las marcas de fin, o todas si se interrumpió la espera
+    Request<I, O> request;
+    while ((request = queue.poll()) != null) {
+      request.result.completeExceptionally(new IllegalStateException("El batcher está cerrado"));
+    }
+  }
+
+  /**
+   * Bucle de un hilo de trabajo: forma lotes y los procesa con su instancia.
+   */
+  private void run(T instance) {
+    List<Request<I, O>> batch = new ArrayList<>(maxBatchSize);
+    boolean stop = false;
+
+    while (!stop) {
+      try {
+        Request<I, O> first = queue.take();
+        if (first == STOP) {
+          break;
+        }
+        batch.add(first);
+
+        // Completa el lote mientras no se agote la espera
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+          Request<I, O> next = queue.poll();
+          if (next == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+              break;
+            }
+          }
+          if (next == STOP) {
+            stop = true;
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        stop = true;
+      }
+
+      for (Request<I, O> request : batch) {
+        try {
+          request.result.complete(task.apply(instance, request.input));
+        } catch (Throwable e) {
+          request.result.completeExceptionally(e);
+        }
+        try {
+          reset.accept(instance);
+        } catch (Throwable e) {
+          logger.severe("Error" + e.getMessage());
+        }
+      }
+      if (!batch.isEmpty()) {
+        batches.incrementAndGet();
+        requests.addAndGet(batch.size());
+        batch.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package org.fogbeam.example.opennlp.pool;
+
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.SequenceDecoding;
+
+/**
+ * Chunker thread-safe respaldado por un pool de instancias de ChunkerME.
+ */
+public class PooledChunker {
+
+  private final InstancePool<ChunkerME> pool;
+
+  /**
+   * Crea un chunker con una instancia por procesador disponible.
+   *
+   * @param model Modelo de chunking compartido.
+   */
+  public PooledChunker(ChunkerModel model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Crea un chunker.
+   *
+   * @param model Modelo de chunking compartido.
+   * @param poolSize Número máximo de instancias de ChunkerME.
+   */
+  public PooledChunker(ChunkerModel model, int poolSize) {
+    this(model, poolSize, SequenceDecoding.DEFAULT_BEAM_SIZE);
+  }
+
+  /**
+   * Crea un chunker con un modo de decodificación concreto.
+   *
+   * @param model Modelo de chunking compartido.
+   * @param poolSize Número máximo de instancias de ChunkerME.
+   * @param beamSize Tamaño del haz; {@link SequenceDecoding#GREEDY} para la decodificación voraz.
+   */
+  public PooledChunker(ChunkerModel model, int poolSize, int beamSize) {
+    this.pool = new InstancePool<>(poolSize, () -> SequenceDecoding.createChunker(model, beamSize));
+  }
+
+  /**
+   * Calcula las etiquetas de chunking de una oración.
+   *
+   * @param tokens Tokens de la oración.
+   * @param posTags Etiquetas POS de los tokens.
+   * @return La etiqueta de chunking de cada token.
+   */
+  public String[] chunk(String[] tokens, String[] posTags) {
+    return pool.execute(chunker -> chunker.chunk(tokens, posTags));
+  }
+
+  /**
+   * Calcula los chunks de una oración como rangos de tokens.
+   *
+   * @param tokens Tokens de la oración.
+   * @param posTags Etiquetas POS de los tokens.
+   * @return Un span por chunk, con su tipo.
+   */
+  public Span[] chunkAsSpans(String[] tokens, String[] posTags) {
+    return pool.execute(chunker -> chunker.chunkAsSpans(tokens, posTags));
+  }
+
+  /**
+   * Calcula las etiquetas de chunking de una oración junto con su probabilidad.
+   *
+   * @param tokens Tokens de la oración.
+   * @param posTags Etiquetas POS de los tokens.
+   * @return Las etiquetas de chunking y sus probabilidades.
+   */
+  public TaggedSequence chunkWithProbabilities(String[] tokens, String[] posTags) {
+    return pool.execute(chunker -> new TaggedSequence(chunker.chunk(tokens, posTags), chunker.probs()));
+  }
+}
@@ -0,0 +1,61 @@
+package org.fogbeam.example.opennlp.pool;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.util.Span;
+
+/**
+ * Detector de nombres thread-safe respaldado por un pool de instancias de NameFinderME.
+ * Los datos adaptativos se borran cada vez que una instancia vuelve al pool, de modo
+ * que cada llamada se trata como un documento independiente.
+ */
+public class PooledNameFinder {
+
+  private final InstancePool<NameFinderME> pool;
+
+  /**
+   * Crea un detector con una instancia por procesador disponible.
+   *
+   * @param model Modelo de detección de nombres compartido.
+   */
+  public PooledNameFinder(TokenNameFinderModel model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Crea un detector.
+   *
+   * @param model Modelo de detección de nombres compartido.
+   * @param poolSize Número máximo de instancias de NameFinderME.
+   */
+  public PooledNameFinder(TokenNameFinderModel model, int poolSize) {
+    this.pool = new InstancePool<>(poolSize, () -> new NameFinderME(model), NameFinderME::clearAdaptiveData);
+  }
+
+  /**
+   * Busca nombres en una oración tokenizada.
+   *
+   * @param tokens Tokens de la oración.
+   * @return Los nombres encontrados como rangos de tokens.
+   */
+  public Span[] find(String[] tokens) {
+    return pool.execute(finder -> finder.find(tokens));
+  }
+
+  /**
+   * Busca nombres en todas las oraciones de un documento con la misma instancia, de
+   * modo que los datos adaptativos se comparten dentro del documento.
+   *
+   * @param sentences Oraciones tokenizadas del documento.
+   * @return Los nombres encontrados en cada oración.
+   */
+  public Span[][] find(String[][] sentences) {
+    return pool.execute(finder -> {
+      Span[][] names = new Span[sentences.length][];
+      for (int i = 0; i < sentences.length; i++) {
+        names[i] = finder.find(sentences[i]);
+      }
+      return names;
+    });
+  }
+}
@@ -0,0 +1,66 @@
+package org.fogbeam.example.opennlp.pool;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+
+import org.fogbeam.example.opennlp.SequenceDecoding;
+
+/**
+ * Etiquetador POS thread-safe respaldado por un pool de instancias de POSTaggerME.
+ * Las probabilidades se leen con la misma instancia que etiquetó la oración, por lo
+ * que {@link #tagWithProbabilities} es coherente aunque haya llamadas concurrentes.
+ */
+public class PooledPOSTagger {
+
+  private final InstancePool<POSTaggerME> pool;
+
+  /**
+   * Crea un etiquetador con una instancia por procesador disponible.
+   *
+   * @param model Modelo POS compartido.
+   */
+  public PooledPOSTagger(POSModel model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Crea un etiquetador.
+   *
+   * @param model Modelo POS compartido.
+   * @param poolSize Número máximo de instancias de POSTaggerME.
+   */
+  public PooledPOSTagger(POSModel model, int poolSize) {
+    this(model, poolSize, SequenceDecoding.DEFAULT_BEAM_SIZE);
+  }
+
+  /**
+   * Crea un etiquetador con un modo de decodificación concreto.
+   *
+   * @param model Modelo POS compartido.
+   * @param poolSize Número máximo de instancias de POSTaggerME.
+   * @param beamSize Tamaño del haz; {@link SequenceDecoding#GREEDY} para la decodificación voraz.
+   */
+  public PooledPOSTagger(POSModel model, int poolSize, int beamSize) {
+    this.pool = new InstancePool<>(poolSize, () -> SequenceDecoding.createPOSTagger(model, beamSize));
+  }
+
+  /**
+   * Etiqueta una oración tokenizada.
+   *
+   * @param sentence Tokens de la oración.
+   * @return La etiqueta POS de cada token.
+   */
+  public String[] tag(String[] sentence) {
+    return pool.execute(tagger -> tagger.tag(sentence));
+  }
+
+  /**
+   * Etiqueta una oración tokenizada y devuelve también la probabilidad de cada etiqueta.
+   *
+   * @param sentence Tokens de la oración.
+   * @return Las etiquetas POS y sus probabilidades.
+   */
+  public TaggedSequence tagWithProbabilities(String[] sentence) {
+    return pool.execute(tagger -> new TaggedSequence(tagger.tag(sentence), tagger.probs()));
+  }
+}
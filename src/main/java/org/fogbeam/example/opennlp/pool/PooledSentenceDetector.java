@@ -0,0 +1,43 @@
+package org.fogbeam.example.opennlp.pool;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.util.Span;
+
+/**
+ * Detector de oraciones thread-safe respaldado por un pool de instancias de SentenceDetectorME.
+ */
+public class PooledSentenceDetector implements SentenceDetector {
+
+  private final InstancePool<SentenceDetectorME> pool;
+
+  /**
+   * Crea un detector con una instancia por procesador disponible.
+   *
+   * @param model Modelo de detección de oraciones compartido.
+   */
+  public PooledSentenceDetector(SentenceModel model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Crea un detector.
+   *
+   * @param model Modelo de detección de oraciones compartido.
+   * @param poolSize Número máximo de instancias de SentenceDetectorME.
+   */
+  public PooledSentenceDetector(SentenceModel model, int poolSize) {
+    this.pool = new InstancePool<>(poolSize, () -> new SentenceDetectorME(model));
+  }
+
+  @Override
+  public String[] sentDetect(String s) {
+    return pool.execute(detector -> detector.sentDetect(s));
+  }
+
+  @Override
+  public Span[] sentPosDetect(String s) {
+    return pool.execute(detector -> detector.sentPosDetect(s));
+  }
+}
@@ -0,0 +1,43 @@
+package org.fogbeam.example.opennlp.pool;
+
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+/**
+ * Tokenizador thread-safe respaldado por un pool de instancias de TokenizerME.
+ */
+public class PooledTokenizer implements Tokenizer {
+
+  private final InstancePool<TokenizerME> pool;
+
+  /**
+   * Crea un tokenizador con una instancia por procesador disponible.
+   *
+   * @param model Modelo de tokenización compartido.
+   */
+  public PooledTokenizer(TokenizerModel model) {
+    this(model, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Crea un tokenizador.
+   *
+   * @param model Modelo de tokenización compartido.
+   * @param poolSize Número máximo de instancias de TokenizerME.
+   */
+  public PooledTokenizer(TokenizerModel model, int poolSize) {
+    this.pool = new InstancePool<>(poolSize, () -> new TokenizerME(model));
+  }
+
+  @Override
+  public String[] tokenize(String s) {
+    return pool.execute(tokenizer -> tokenizer.tokenize(s));
+  }
+
+  @Override
+  public Span[] tokenizePos(String s) {
+    return pool.execute(tokenizer -> tokenizer.tokenizePos(s));
+  }
+}
@@ -0,0 +1,42 @@
+package org.fogbeam.example.opennlp.pool;
+
+/**
+ * Resultado de etiquetar una secuencia de tokens: una etiqueta por token y su probabilidad.
+ */
+public class TaggedSequence {
+
+  /**
+   * Etiqueta asignada a cada token.
+   */
+  private final String[] tags;
+
+  /**
+   * Probabilidad de cada etiqueta.
+   */
+  private final double[] probabilities;
+
+  /**
+   * Crea un resultado de etiquetación.
+   *
+   * @param tags Etiqueta asignada a cada token.
+   * @param probabilities Probabilidad de cada etiqueta.
+   */
+  public TaggedSequence(String[] tags, double[] probabilities) {
+    this.tags = tags;
+    this.probabilities = probabilities;
+  }
+
+  /**
+   * @return La etiqueta asignada a cada token.
+   */
+  public String[] getTags() {
+    return tags;
+  }
+
+  /**
+   * @return La probabilidad de cada etiqueta.
+   */
+  public double[] getProbabilities() {
+    return probabilities;
+  }
+}
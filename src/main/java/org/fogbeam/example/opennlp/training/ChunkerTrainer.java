@@ -5,6 +5,7 @@ package org.fogbeam.example.opennlp.training;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 
@@ -20,28 +21,9 @@ import opennlp.tools.util.TrainingParameters;
 
 public class ChunkerTrainer {
   public static void main( String[] args ) throws Exception {
-    Charset charset = Charset.forName( "UTF-8" );
+    ChunkerModel model = ParallelTraining.train( "chunker", args,
+            ChunkerTrainer::train, ChunkerModel::getChunkerModel );
 
-    // without enough training data, you get a NPE...
-    // ObjectStream<String> lineStream = new PlainTextByLineStream(
-    //		new FileInputStream( "training_data/en-chunker.train" ), charset );
-
-
-    ObjectStream<String> lineStream = new PlainTextByLineStream(
-            new FileInputStream( "training_data/conll2000-chunker.train" ), charset );
-
-
-    ObjectStream<ChunkSample> sampleStream = new ChunkSampleStream(
-            lineStream );
-    ChunkerModel model;
-    try {
-      model = ChunkerME.train( "en", sampleStream,
-              new DefaultChunkerContextGenerator(),
-              TrainingParameters.defaultParams() );
-    }
-    finally {
-      sampleStream.close();
-    }
     OutputStream modelOut = null;
     String modelFile = "models/en-chunker.model";
     try {
@@ -56,4 +38,38 @@ public class ChunkerTrainer {
 
     System.out.println( "done" );
   }
+
+  public static ChunkerModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<ChunkSample> sampleStream = samples();
+    try {
+      return train( sampleStream, params );
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static ChunkerModel train( ObjectStream<ChunkSample> samples, TrainingParameters params ) throws IOException {
+    return ChunkerME.train( "en", samples,
+            new DefaultChunkerContextGenerator(), params );
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<ChunkSample> samples() throws IOException {
+    // without enough training data, you get a NPE...
+    // String trainingFile = "training_data/en-chunker.train";
+    String trainingFile = "training_data/conll2000-chunker.train";
+
+    return SampleCache.open( trainingFile, SampleCodecs.CHUNK, () -> {
+      Charset charset = Charset.forName( "UTF-8" );
+      ObjectStream<String> lineStream = new PlainTextByLineStream(
+              new FileInputStream( trainingFile ), charset );
+      return new ChunkSampleStream( lineStream );
+    } );
+  }
 }
@@ -0,0 +1,423 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import opennlp.tools.chunker.ChunkSample;
+import opennlp.tools.chunker.ChunkerEvaluator;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.doccat.DocumentCategorizerEvaluator;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.NameSample;
+import opennlp.tools.namefind.TokenNameFinderEvaluator;
+import opennlp.tools.postag.POSEvaluator;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorEvaluator;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceSample;
+import opennlp.tools.sentdetect.SentenceSampleStream;
+import opennlp.tools.tokenize.TokenSample;
+import opennlp.tools.tokenize.TokenizerEvaluator;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.util.CollectionObjectStream;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.eval.FMeasure;
+import opennlp.tools.util.model.BaseModel;
+
+import org.fogbeam.example.opennlp.CommandLineOptions;
+
+/**
+ * Validación cruzada de k particiones para los entrenadores de este paquete.
+ *
+ * Reparte las muestras del corpus de entrenamiento en k particiones (la muestra i va a la
+ * partición i mod k) y, por cada partición, entrena un modelo con las demás y lo evalúa con
+ * ella. Las particiones se entrenan en paralelo, por tandas de tantas como hilos, cada una
+ * con un solo hilo de GIS, como en {@link ParameterSweep}. De cada partición se informa de
+ * la precisión, la cobertura y el F1, y de las muestras por segundo que procesa el modelo al
+ * evaluarlas. Esta velocidad se mide cuando ha terminado la tanda, una partición detrás de
+ * otra, repitiendo la evaluación de sus muestras durante al menos
+ * {@value #MIN_TIMING_MILLIS} ms para calentar y otros tantos para medir, de modo que no
+ * dependa de los entrenamientos en curso, del compilador JIT ni de lo que tarde una sola
+ * muestra. Después se libera el modelo, así que nunca hay más modelos en memoria que
+ * hilos. Para el etiquetador POS y el clasificador de documentos, que asignan una
+ * etiqueta a cada token o documento, las tres medidas coinciden con la exactitud.
+ *
+ * Si el componente tiene un conjunto de evaluación aparte (el detector de oraciones usa
+ * {@code eval_data/en-sent.eval}), se entrena además un modelo con todo el corpus y se
+ * evalúa con ese conjunto.
+ *
+ * Uso: {@code CrossValidation <componente|all> [-folds 10] [-jobs N] [-iterations 100]
+ * [-cutoff 5] [-minF1 F] [-minRate N]}. Con {@code -minF1} y {@code -minRate} el programa
+ * termina con código 1 si el F1 medio o las muestras por segundo medias de algún componente
+ * quedan por debajo, para poder condicionar la promoción de un modelo a ambas cosas.
+ *
+ * El analizador sintáctico no se incluye: OpenNLP 1.5.3 no tiene evaluador para él.
+ */
+public class CrossValidation {
+
+  private static final Logger logger = Logger.getLogger(CrossValidation.class.getName());
+
+  /**
+   * Conjunto de evaluación aparte del detector de oraciones.
+   */
+  public static final String SENTENCE_EVAL = "eval_data/en-sent.eval";
+
+  /**
+   * Tiempo mínimo, en milisegundos, durante el que se repite la evaluación para calentar y para medir la velocidad.
+   */
+  private static final long MIN_TIMING_MILLIS = 250;
+
+  /**
+   * Evalúa un modelo con unas muestras.
+   */
+  @FunctionalInterface
+  interface ModelEvaluator<S, M> {
+    Scores evaluate(M model, List<S> samples) throws IOException;
+  }
+
+  /**
+   * Precisión, cobertura y F1 de una evaluación.
+   */
+  static final class Scores {
+    final double precision;
+    final double recall;
+    final double f1;
+
+    Scores(double precision, double recall, double f1) {
+      this.precision = precision;
+      this.recall = recall;
+      this.f1 = f1;
+    }
+
+    static Scores of(FMeasure measure) {
+      // FMeasure devuelve -1 cuando no hay ningún acierto
+      return new Scores(measure.getPrecisionScore(), measure.getRecallScore(),
+              Math.max(0, measure.getFMeasure()));
+    }
+
+    static Scores accuracy(double accuracy) {
+      return new Scores(accuracy, accuracy, accuracy);
+    }
+  }
+
+  /**
+   * Componente que se puede validar: cómo obtener sus muestras, entrenarlo y evaluarlo.
+   */
+  static final class Component<S, M extends BaseModel> {
+    private final String unit;
+    private final SampleCache.SampleParser<S> samples;
+    private final ParameterSweep.SampleTrainer<S, M> trainer;
+    private final ModelEvaluator<S, M> evaluator;
+    private final SampleCache.SampleParser<S> heldOut;
+
+    Component(String unit, SampleCache.SampleParser<S> samples, ParameterSweep.SampleTrainer<S, M> trainer,
+              ModelEvaluator<S, M> evaluator, SampleCache.SampleParser<S> heldOut) {
+      this.unit = unit;
+      this.samples = samples;
+      this.trainer = trainer;
+      this.evaluator = evaluator;
+      this.heldOut = heldOut;
+    }
+  }
+
+  /**
+   * Componentes disponibles, por nombre.
+   */
+  static final Map<String, Component<?, ?>> COMPONENTS = new LinkedHashMap<>();
+
+  static {
+    COMPONENTS.put("chunker", new Component<>("oraciones", ChunkerTrainer::samples, ChunkerTrainer::train,
+            (model, test) -> {
+              ChunkerEvaluator evaluator = new ChunkerEvaluator(new ChunkerME(model));
+              evaluator.evaluate(new CollectionObjectStream<ChunkSample>(test));
+              return Scores.of(evaluator.getFMeasure());
+            }, null));
+    COMPONENTS.put("pos", new Component<>("oraciones", PartOfSpeechTaggerTrainer::samples,
+            PartOfSpeechTaggerTrainer::train,
+            (model, test) -> {
+              POSEvaluator evaluator = new POSEvaluator(new POSTaggerME(model));
+              evaluator.evaluate(new CollectionObjectStream<POSSample>(test));
+              return Scores.accuracy(evaluator.getWordAccuracy());
+            }, null));
+    COMPONENTS.put("namefinder", new Component<>("oraciones", NameFinderTrainer::samples, NameFinderTrainer::train,
+            (model, test) -> {
+              TokenNameFinderEvaluator evaluator = new TokenNameFinderEvaluator(new NameFinderME(model));
+              evaluator.evaluate(new CollectionObjectStream<NameSample>(test));
+              return Scores.of(evaluator.getFMeasure());
+            }, null));
+    COMPONENTS.put("tokenizer", new Component<>("oraciones", TokenizerTrainer::samples, TokenizerTrainer::train,
+            (model, test) -> {
+              TokenizerEvaluator evaluator = new TokenizerEvaluator(new TokenizerME(model));
+              evaluator.evaluate(new CollectionObjectStream<TokenSample>(test));
+              return Scores.of(evaluator.getFMeasure());
+            }, null));
+    COMPONENTS.put("sentence", new Component<>("párrafos", SentenceDetectionTrainer::samples,
+            SentenceDetectionTrainer::train,
+            (model, test) -> {
+              SentenceDetectorEvaluator evaluator = new SentenceDetectorEvaluator(new SentenceDetectorME(model));
+              evaluator.evaluate(new CollectionObjectStream<SentenceSample>(test));
+              return Scores.of(evaluator.getFMeasure());
+            },
+            () -> new SentenceSampleStream(new PlainTextByLineStream(
+                    new FileInputStream(SENTENCE_EVAL), Charset.forName("UTF-8")))));
+    COMPONENTS.put("doccat", new Component<>("documentos", DocumentClassifierTrainer::samples,
+            DocumentClassifierTrainer::train,
+            (model, test) -> {
+              DocumentCategorizerEvaluator evaluator =
+                      new DocumentCategorizerEvaluator(new DocumentCategorizerME(model));
+              evaluator.evaluate(test.iterator());
+              return Scores.accuracy(evaluator.getAccuracy());
+            }, null));
+  }
+
+  /**
+   * Resultado de entrenar y evaluar una partición.
+   */
+  static final class Result {
+    final String name;
+    int trainSize;
+    int testSize;
+    Scores scores;
+    double samplesPerSecond;
+    long trainingMillis;
+    String error;
+
+    Result(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Componente y opciones de la validación.
+   * @throws Exception Si ocurre un error al leer las muestras.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0 || !(COMPONENTS.containsKey(args[0]) || "all".equals(args[0]))) {
+      System.out.println("Uso: CrossValidation <" + String.join("|", COMPONENTS.keySet())
+              + "|all> [-folds 10] [-jobs N] [-iterations 100] [-cutoff 5] [-minF1 F] [-minRate N]");
+      return;
+    }
+
+    int folds = Integer.parseInt(CommandLineOptions.option(args, "-folds", "10"));
+    int jobs = Integer.parseInt(CommandLineOptions.option(args, "-jobs",
+            Integer.toString(Runtime.getRuntime().availableProcessors())));
+    TrainingParameters params = ParallelTraining.parameters(1);
+    params.put(TrainingParameters.ITERATIONS_PARAM, CommandLineOptions.option(args, "-iterations", "100"));
+    params.put(TrainingParameters.CUTOFF_PARAM, CommandLineOptions.option(args, "-cutoff", "5"));
+    double minF1 = Double.parseDouble(CommandLineOptions.option(args, "-minF1", "0"));
+    double minRate = Double.parseDouble(CommandLineOptions.option(args, "-minRate", "0"));
+
+    List<String> names = new ArrayList<>("all".equals(args[0]) ? COMPONENTS.keySet() : List.of(args[0]));
+    boolean passed = true;
+    for (String name : names) {
+      Component<?, ?> component = COMPONENTS.get(name);
+      List<Result> results = validate(component, folds, jobs, params);
+      passed &= print(name, component.unit, results, minF1, minRate);
+    }
+    if (!passed) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Entrena y evalúa cada partición y, si el componente lo tiene, el conjunto de evaluación aparte.
+   * Los modelos se entrenan en paralelo por tandas de {@code jobs}; al terminar cada tanda sus
+   * modelos se evalúan de uno en uno y se liberan antes de empezar la siguiente.
+   *
+   * @param component Componente que se valida.
+   * @param folds Número de particiones; si hay menos muestras, una partición por muestra.
+   * @param jobs Número máximo de entrenamientos simultáneos, y de modelos en memoria.
+   * @param params Parámetros de entrenamiento, compartidos por todas las particiones.
+   * @return Los resultados de las particiones y, al final, el del conjunto aparte.
+   * @throws IOException Si ocurre un error al leer las muestras.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera los entrenamientos.
+   */
+  static <S, M extends BaseModel> List<Result> validate(Component<S, M> component, int folds, int jobs,
+          TrainingParameters params) throws IOException, InterruptedException {
+    List<S> samples = read(component.samples);
+    if (samples.size() < 2) {
+      throw new IOException("El corpus no tiene muestras suficientes para la validación cruzada");
+    }
+    if (folds > samples.size()) {
+      logger.warning("Solo hay " + samples.size() + " muestras; se usan " + samples.size() + " particiones");
+      folds = samples.size();
+    }
+
+    List<S> heldOut = component.heldOut == null ? null : read(component.heldOut);
+    int tasks = heldOut == null ? folds : folds + 1;
+    List<Result> results = new ArrayList<>();
+    for (int i = 0; i < tasks; i++) {
+      results.add(new Result(i < folds ? Integer.toString(i + 1) : "aparte"));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(jobs);
+    try {
+      for (int first = 0; first < tasks; first += jobs) {
+        int last = Math.min(tasks, first + jobs);
+        List<Future<M>> futures = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+          List<S> train = i < folds ? split(samples, folds, i, false) : samples;
+          Result result = results.get(i);
+          futures.add(executor.submit(() -> train(component, params, result, train)));
+        }
+
+        List<M> models = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+          try {
+            models.add(futures.get(i - first).get());
+          } catch (ExecutionException e) {
+            logger.severe("Error" + e.getCause());
+            results.get(i).error = String.valueOf(e.getCause());
+            models.add(null);
+          }
+        }
+
+        // Se evalúa cuando ha terminado la tanda, para que la velocidad no dependa de
+        // entrenamientos en curso
+        for (int i = first; i < last; i++) {
+          M model = models.set(i - first, null);
+          if (model != null) {
+            try {
+              evaluate(component, results.get(i), model, i < folds ? split(samples, folds, i, true) : heldOut);
+            } catch (IOException | RuntimeException e) {
+              logger.severe("Error" + e);
+              results.get(i).error = String.valueOf(e);
+            }
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  /**
+   * Devuelve las muestras de prueba de una partición (la muestra i es de la partición
+   * i mod k) o, si {@code test} es false, las de entrenamiento.
+   */
+  private static <S> List<S> split(List<S> samples, int folds, int fold, boolean test) {
+    List<S> part = new ArrayList<>();
+    for (int i = 0; i < samples.size(); i++) {
+      if ((i % folds == fold) == test) {
+        part.add(samples.get(i));
+      }
+    }
+    return part;
+  }
+
+  /**
+   * Entrena el modelo de una partición, guardando el tiempo de entrenamiento en su resultado.
+   */
+  private static <S, M extends BaseModel> M train(Component<S, M> component, TrainingParameters params,
+          Result result, List<S> train) throws IOException {
+    result.trainSize = train.size();
+    long start = System.nanoTime();
+    M model = component.trainer.train(new CollectionObjectStream<S>(train), params);
+    result.trainingMillis = (System.nanoTime() - start) / 1000000;
+    return model;
+  }
+
+  /**
+   * Evalúa el modelo de una partición, guardando las medidas en su resultado. La evaluación
+   * se repite durante {@link #MIN_TIMING_MILLIS} para calentar y otro tanto para medir la velocidad.
+   */
+  private static <S, M extends BaseModel> void evaluate(Component<S, M> component, Result result, M model,
+          List<S> test) throws IOException {
+    result.testSize = test.size();
+    long start = System.nanoTime();
+    do {
+      component.evaluator.evaluate(model, test);
+    } while (System.nanoTime() - start < MIN_TIMING_MILLIS * 1000000);
+
+    start = System.nanoTime();
+    result.scores = component.evaluator.evaluate(model, test);
+    long evaluated = test.size();
+    while (System.nanoTime() - start < MIN_TIMING_MILLIS * 1000000) {
+      component.evaluator.evaluate(model, test);
+      evaluated += test.size();
+    }
+    long nanos = System.nanoTime() - start;
+    result.samplesPerSecond = evaluated / (nanos / 1e9);
+  }
+
+  /**
+   * Lee todas las muestras de un corpus.
+   */
+  private static <S> List<S> read(SampleCache.SampleParser<S> source) throws IOException {
+    List<S> samples = new ArrayList<>();
+    ObjectStream<S> stream = source.open();
+    try {
+      S sample;
+      while ((sample = stream.read()) != null) {
+        samples.add(sample);
+      }
+    } finally {
+      stream.close();
+    }
+    return samples;
+  }
+
+  /**
+   * Imprime la tabla de resultados con la media de las particiones.
+   *
+   * @return false si la media no alcanza los mínimos o alguna partición ha fallado.
+   */
+  private static boolean print(String name, String unit, List<Result> results, double minF1, double minRate) {
+    System.out.println();
+    System.out.println("Validación cruzada de " + name);
+    System.out.printf("%-10s %10s %10s %10s %10s %10s %14s %12s%n", "partición", "entren.", "eval.",
+            "precisión", "cobertura", "F1", unit + "/s", "tiempo (ms)");
+
+    double precision = 0;
+    double recall = 0;
+    double f1 = 0;
+    double rate = 0;
+    int folds = 0;
+    boolean failed = false;
+    for (Result r : results) {
+      if (r.error != null) {
+        System.out.printf("%-10s  error: %s%n", r.name, r.error);
+        failed = true;
+        continue;
+      }
+      System.out.printf("%-10s %10d %10d %10.4f %10.4f %10.4f %14.0f %12d%n", r.name, r.trainSize, r.testSize,
+              r.scores.precision, r.scores.recall, r.scores.f1, r.samplesPerSecond, r.trainingMillis);
+      if (!"aparte".equals(r.name)) {
+        precision += r.scores.precision;
+        recall += r.scores.recall;
+        f1 += r.scores.f1;
+        rate += r.samplesPerSecond;
+        folds++;
+      }
+    }
+    if (folds == 0) {
+      return false;
+    }
+    System.out.printf("%-10s %10s %10s %10.4f %10.4f %10.4f %14.0f%n", "media", "", "",
+            precision / folds, recall / folds, f1 / folds, rate / folds);
+
+    boolean passed = !failed && f1 / folds >= minF1 && rate / folds >= minRate;
+    if (!passed) {
+      System.out.println("No alcanza los mínimos: F1 >= " + minF1 + ", " + unit + "/s >= " + minRate);
+    }
+    return passed;
+  }
+}
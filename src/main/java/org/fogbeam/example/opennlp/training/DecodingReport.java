@@ -0,0 +1,136 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import opennlp.tools.chunker.ChunkSample;
+import opennlp.tools.chunker.ChunkerEvaluator;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.util.CollectionObjectStream;
+import opennlp.tools.util.ObjectStream;
+
+import org.fogbeam.example.opennlp.CommandLineOptions;
+import org.fogbeam.example.opennlp.ModelRegistry;
+import org.fogbeam.example.opennlp.SequenceDecoding;
+
+/**
+ * Compara la precisión y la velocidad de los modos de decodificación
+ * ({@link SequenceDecoding}) del etiquetador POS y del chunker.
+ *
+ * Usa las oraciones del corpus de chunking de CoNLL-2000, que traen las etiquetas POS y los
+ * chunks de referencia. Una de cada {@value #HELD_OUT_EVERY} oraciones se aparta para medir y
+ * con el resto se entrena un chunker, así que su F1 se mide sobre oraciones que no ha visto
+ * (el modelo del registro se entrenó con todo el corpus). Para cada tamaño de haz mide, sobre
+ * las oraciones apartadas, la precisión por token del etiquetador POS del registro de modelos
+ * y el F1 del chunker con las etiquetas POS de referencia, y las oraciones por segundo de cada
+ * uno. Antes de medir se hace una pasada de calentamiento con todos los modos, para que el
+ * compilador JIT no favorezca a los últimos.
+ *
+ * Uso: {@code DecodingReport [-beams greedy,3,5,10] [-sentences N]}; {@code -sentences} limita
+ * el número de oraciones apartadas que se miden.
+ */
+public class DecodingReport {
+
+  /**
+   * Se aparta para medir una de cada tantas oraciones del corpus.
+   */
+  private static final int HELD_OUT_EVERY = 10;
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Opciones del informe.
+   * @throws Exception Si ocurre un error al cargar los modelos o leer el corpus.
+   */
+  public static void main(String[] args) throws Exception {
+    String[] beams = CommandLineOptions.option(args, "-beams", "greedy,3,5,10").split(",");
+    int limit = Integer.parseInt(CommandLineOptions.option(args, "-sentences", Integer.toString(Integer.MAX_VALUE)));
+
+    List<ChunkSample> training = new ArrayList<>();
+    List<ChunkSample> samples = new ArrayList<>();
+    ObjectStream<ChunkSample> stream = ChunkerTrainer.samples();
+    try {
+      ChunkSample sample;
+      for (int i = 0; (sample = stream.read()) != null; i++) {
+        if (i % HELD_OUT_EVERY != 0) {
+          training.add(sample);
+        } else if (samples.size() < limit) {
+          samples.add(sample);
+        }
+      }
+    } finally {
+      stream.close();
+    }
+
+    POSModel posModel = ModelRegistry.getInstance().getPOSModel();
+    long start = System.nanoTime();
+    ChunkerModel chunkerModel = ChunkerTrainer.train(new CollectionObjectStream<ChunkSample>(training),
+            ParallelTraining.parameters(Runtime.getRuntime().availableProcessors()));
+    System.out.println("Chunker entrenado con " + training.size() + " oraciones en "
+            + (System.nanoTime() - start) / 1000000 + " ms");
+
+    int[] beamSizes = new int[beams.length];
+    for (int i = 0; i < beams.length; i++) {
+      beamSizes[i] = SequenceDecoding.parseBeamSize(beams[i].trim());
+      tag(SequenceDecoding.createPOSTagger(posModel, beamSizes[i]), samples);
+      chunk(SequenceDecoding.createChunker(chunkerModel, beamSizes[i]), samples);
+    }
+
+    System.out.println();
+    System.out.println("Modos de decodificación sobre " + samples.size() + " oraciones apartadas");
+    System.out.printf("%-8s %12s %14s %12s %14s%n", "haz", "precisión POS", "POS (orac/s)",
+            "F1 chunker", "chunker (orac/s)");
+    for (int i = 0; i < beams.length; i++) {
+      POSTaggerME tagger = SequenceDecoding.createPOSTagger(posModel, beamSizes[i]);
+      start = System.nanoTime();
+      double accuracy = tag(tagger, samples);
+      double posRate = rate(samples.size(), System.nanoTime() - start);
+
+      ChunkerME chunker = SequenceDecoding.createChunker(chunkerModel, beamSizes[i]);
+      start = System.nanoTime();
+      chunk(chunker, samples);
+      double chunkRate = rate(samples.size(), System.nanoTime() - start);
+
+      ChunkerEvaluator evaluator = new ChunkerEvaluator(chunker);
+      evaluator.evaluate(new CollectionObjectStream<ChunkSample>(samples));
+
+      System.out.printf("%-8s %12.4f %14.0f %12.4f %14.0f%n", beams[i], accuracy, posRate,
+              evaluator.getFMeasure().getFMeasure(), chunkRate);
+    }
+  }
+
+  /**
+   * Etiqueta las oraciones y devuelve la precisión por token frente a las etiquetas POS de referencia.
+   */
+  private static double tag(POSTaggerME tagger, List<ChunkSample> samples) {
+    long correct = 0;
+    long total = 0;
+    for (ChunkSample sample : samples) {
+      String[] expected = sample.getTags();
+      String[] tags = tagger.tag(sample.getSentence());
+      for (int i = 0; i < tags.length; i++) {
+        if (tags[i].equals(expected[i])) {
+          correct++;
+        }
+      }
+      total += tags.length;
+    }
+    return total == 0 ? 0 : (double) correct / total;
+  }
+
+  /**
+   * Aplica el chunker a las oraciones con las etiquetas POS de referencia.
+   */
+  private static void chunk(ChunkerME chunker, List<ChunkSample> samples) {
+    for (ChunkSample sample : samples) {
+      chunker.chunk(sample.getSentence(), sample.getTags());
+    }
+  }
+
+  private static double rate(int sentences, long nanos) {
+    return nanos == 0 ? 0 : sentences / (nanos / 1e9);
+  }
+}
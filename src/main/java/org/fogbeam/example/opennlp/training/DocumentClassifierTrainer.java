@@ -3,11 +3,14 @@ package org.fogbeam.example.opennlp.training;
 
 
 import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
 
 import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.doccat.DocumentCategorizerME;
@@ -15,7 +18,9 @@ import opennlp.tools.doccat.DocumentSample;
 import opennlp.tools.doccat.DocumentSampleStream;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
 
+import org.fogbeam.example.opennlp.CommandLineOptions;
 
 public class DocumentClassifierTrainer {
 
@@ -23,28 +28,22 @@ public class DocumentClassifierTrainer {
 
   public static void main( String[] args ) throws Exception {
     DoccatModel model = null;
-    InputStream dataIn = null;
     try {
-      dataIn = new FileInputStream( "training_data/en-doccat.train" );
-      ObjectStream<String> lineStream = new PlainTextByLineStream(
-              dataIn, "UTF-8" );
-      ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(
-              lineStream );
-      model = DocumentCategorizerME.train( "en", sampleStream );
+      List<String> options = Arrays.asList( args );
+      if( options.contains( "-outOfCore" ) ) {
+        model = trainOutOfCore(
+                Integer.parseInt( CommandLineOptions.option( options, "-buckets", Integer.toString( ShardedDoccatTrainer.DEFAULT_BUCKETS ) ) ),
+                Integer.parseInt( CommandLineOptions.option( options, "-iterations", "100" ) ) );
+      }
+      else {
+        // DoccatModel.getChunkerModel() devuelve en realidad el modelo de categorización (nombre heredado de OpenNLP 1.5.3)
+        model = ParallelTraining.train( "doccat", args,
+                DocumentClassifierTrainer::train, DoccatModel::getChunkerModel );
+      }
     }
     catch (Exception e) {
       logger.severe("Error" + e.getMessage());
     }
-    finally {
-      if( dataIn != null ) {
-        try {
-          dataIn.close();
-        }
-        catch (Exception e) {
-          logger.severe("Error" + e.getMessage());
-        }
-      }
-    }
     OutputStream modelOut = null;
     String modelFile = "models/en-doccat.model";
     try {
@@ -69,4 +68,46 @@ public class DocumentClassifierTrainer {
 
     System.out.println( "done" );
   }
+
+  public static DoccatModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<DocumentSample> sampleStream = samples();
+    try {
+      return train( sampleStream, params );
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static DoccatModel train( ObjectStream<DocumentSample> samples, TrainingParameters params ) throws IOException {
+    return DocumentCategorizerME.train( "en", samples, params );
+  }
+
+  /**
+   * Entrena el modelo fuera de memoria con características de bolsa de palabras con hashing
+   * (opción {@code -outOfCore [-buckets N] [-iterations N]}). El corpus se lee en streaming, sin pasar por la
+   * caché de muestras, y los eventos se guardan en fragmentos en disco.
+   */
+  public static DoccatModel trainOutOfCore( int buckets, int iterations ) throws IOException {
+    InputStream dataIn = new FileInputStream( "training_data/en-doccat.train" );
+    ObjectStream<String> lineStream = new PlainTextByLineStream( dataIn, "UTF-8" );
+    return ShardedDoccatTrainer.train( new DocumentSampleStream( lineStream ), buckets, iterations,
+            new File( ShardedDoccatTrainer.DEFAULT_SHARD_DIR ) );
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<DocumentSample> samples() throws IOException {
+    String trainingFile = "training_data/en-doccat.train";
+    return SampleCache.open( trainingFile, SampleCodecs.DOCUMENT, () -> {
+      InputStream dataIn = new FileInputStream( trainingFile );
+      ObjectStream<String> lineStream = new PlainTextByLineStream(
+              dataIn, "UTF-8" );
+      return new DocumentSampleStream( lineStream );
+    } );
+  }
 }
@@ -0,0 +1,354 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.maxent.GISModel;
+import opennlp.model.AbstractModel;
+import opennlp.model.Context;
+import opennlp.model.Event;
+import opennlp.model.EventStream;
+import opennlp.model.IndexHashTable;
+import opennlp.perceptron.PerceptronModel;
+import opennlp.tools.namefind.NameContextGenerator;
+import opennlp.tools.namefind.NameFinderEventStream;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.NameSample;
+import opennlp.tools.namefind.NameSampleDataStream;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.util.CollectionObjectStream;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.Span;
+
+import org.fogbeam.example.opennlp.CommandLineOptions;
+
+/**
+ * Actualización incremental del modelo del buscador de nombres.
+ *
+ * En lugar de reentrenar con todo el corpus, parte de un modelo existente y aplica
+ * actualizaciones de tipo perceptrón solo con las muestras nuevas: para cada evento (token)
+ * que el modelo clasifica mal, suma {@code step} a los parámetros de sus predicados para la
+ * etiqueta correcta y los resta para la etiqueta elegida. Se repite hasta {@code iterations}
+ * pasadas o hasta una pasada sin errores. Los predicados y etiquetas que el modelo no conocía
+ * se añaden. El coste es una copia del modelo más el de las pasadas sobre los eventos nuevos,
+ * sin volver a extraer los eventos del corpus original.
+ *
+ * Los eventos se generan con el mismo generador de contexto que usa NameFinderME con ese
+ * modelo, así que se respetan sus generadores de características. Sirve tanto para modelos
+ * MAXENT (GIS) como PERCEPTRON; en los GIS los errores se deciden con la suma de parámetros,
+ * que es lo que ordena las etiquetas cuando el modelo no usa el parámetro de corrección.
+ *
+ * El modelo nuevo conserva el resto de artefactos del original y anota en su manifiesto el
+ * número de actualizaciones ({@value #UPDATES_PROPERTY}) y de muestras incrementales
+ * ({@value #SAMPLES_PROPERTY}). Se escribe en un archivo temporal que se renombra al terminar,
+ * así que quien lea el modelo ve la versión anterior o la nueva, nunca una a medias.
+ *
+ * Uso: {@code IncrementalNameFinderTrainer <muestras nuevas> [-model models/en-ner-person.model]
+ * [-out archivo] [-iterations 10] [-step 1] [-type person]}. Las muestras tienen el formato de
+ * {@code training_data/en-ner-person.train}; por defecto se sobrescribe el modelo de entrada.
+ * Los nombres sin tipo de las muestras ({@code <START>}, que OpenNLP lee con el tipo
+ * {@code default}) reciben el tipo de {@code -type}, el mismo con el que {@link NameFinderTrainer}
+ * entrena el modelo, para no añadir etiquetas que el modelo no usa.
+ */
+public class IncrementalNameFinderTrainer {
+
+  /**
+   * Propiedad del manifiesto con el número de actualizaciones incrementales.
+   */
+  public static final String UPDATES_PROPERTY = "Incremental-Updates";
+
+  /**
+   * Propiedad del manifiesto con el número total de muestras incrementales.
+   */
+  public static final String SAMPLES_PROPERTY = "Incremental-Samples";
+
+  private static final String MODEL_ENTRY = "nameFinder.model";
+
+  /**
+   * Tipo de nombre por defecto, el que usa {@link NameFinderTrainer}.
+   */
+  public static final String DEFAULT_TYPE = "person";
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Archivo de muestras nuevas y opciones.
+   * @throws Exception Si ocurre un error al leer el modelo o las muestras, o al escribir el modelo.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.out.println("Uso: IncrementalNameFinderTrainer <muestras nuevas> [-model models/en-ner-person.model]"
+              + " [-out archivo] [-iterations 10] [-step 1] [-type person]");
+      return;
+    }
+
+    File modelFile = new File(CommandLineOptions.option(args, "-model", "models/en-ner-person.model"));
+    File outFile = new File(CommandLineOptions.option(args, "-out", modelFile.getPath()));
+    int iterations = Integer.parseInt(CommandLineOptions.option(args, "-iterations", "10"));
+    double step = Double.parseDouble(CommandLineOptions.option(args, "-step", "1"));
+    String type = CommandLineOptions.option(args, "-type", DEFAULT_TYPE);
+
+    long start = System.nanoTime();
+    UpdatableModel model = new UpdatableModel(modelFile);
+
+    List<NameSample> samples = new ArrayList<>();
+    ObjectStream<NameSample> stream = new NameSampleDataStream(new PlainTextByLineStream(
+            new FileInputStream(args[0]), Charset.forName("UTF-8")));
+    try {
+      NameSample sample;
+      while ((sample = stream.read()) != null) {
+        samples.add(sample);
+      }
+    } finally {
+      stream.close();
+    }
+
+    Update update = update(model, samples, type, iterations, step);
+    write(model, outFile);
+
+    System.out.println(samples.size() + " muestras, " + update.events + " eventos, "
+            + update.newPredicates + " predicados nuevos");
+    System.out.println("Errores por pasada: " + update.mistakes);
+    System.out.println("Modelo escrito en " + outFile + " (actualización "
+            + model.getManifestProperty(UPDATES_PROPERTY) + ") en "
+            + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+
+  /**
+   * Resumen de una actualización.
+   */
+  static final class Update {
+    int events;
+    int newPredicates;
+    final List<Integer> mistakes = new ArrayList<>();
+  }
+
+  /**
+   * Aplica al modelo las actualizaciones de perceptrón de unas muestras nuevas.
+   *
+   * @param model Modelo que se actualiza.
+   * @param samples Muestras nuevas.
+   * @param type Tipo que reciben los nombres sin tipo de las muestras.
+   * @param iterations Número máximo de pasadas sobre las muestras.
+   * @param step Cantidad que se suma o resta a cada parámetro en un error.
+   * @return El resumen de la actualización.
+   * @throws IOException Si ocurre un error al generar los eventos.
+   */
+  static Update update(UpdatableModel model, List<NameSample> samples, String type, int iterations,
+          double step) throws IOException {
+    AbstractModel current = model.getNameFinderModel();
+    Object[] data = current.getDataStructures();
+    Context[] contexts = (Context[]) data[0];
+    @SuppressWarnings("unchecked")
+    String[] predicates = ((IndexHashTable<String>) data[1]).toArray(new String[contexts.length]);
+    List<String> outcomes = new ArrayList<>(List.of((String[]) data[2]));
+
+    // Parámetros densos por predicado: el buscador de nombres tiene pocas etiquetas
+    Map<String, Integer> predicateIndex = new HashMap<>();
+    List<double[]> parameters = new ArrayList<>();
+    for (int p = 0; p < predicates.length; p++) {
+      predicateIndex.put(predicates[p], p);
+      double[] row = new double[outcomes.size()];
+      int[] pattern = contexts[p].getOutcomes();
+      double[] values = contexts[p].getParameters();
+      for (int i = 0; i < pattern.length; i++) {
+        row[pattern[i]] = values[i];
+      }
+      parameters.add(row);
+    }
+
+    // Los eventos se generan una vez, con el generador de contexto del modelo
+    List<NameSample> typed = new ArrayList<>();
+    for (NameSample sample : samples) {
+      typed.add(withType(sample, type));
+    }
+    List<Event> events = new ArrayList<>();
+    EventStream eventStream = new NameFinderEventStream(new CollectionObjectStream<NameSample>(typed), type,
+            model.contextGenerator());
+    while (eventStream.hasNext()) {
+      events.add(eventStream.next());
+    }
+
+    Update update = new Update();
+    update.events = events.size();
+    int[][] features = new int[events.size()][];
+    int[] gold = new int[events.size()];
+    for (int e = 0; e < events.size(); e++) {
+      Event event = events.get(e);
+      int outcome = outcomes.indexOf(event.getOutcome());
+      if (outcome < 0) {
+        outcome = outcomes.size();
+        outcomes.add(event.getOutcome());
+      }
+      gold[e] = outcome;
+
+      String[] context = event.getContext();
+      features[e] = new int[context.length];
+      for (int c = 0; c < context.length; c++) {
+        Integer index = predicateIndex.get(context[c]);
+        if (index == null) {
+          index = parameters.size();
+          predicateIndex.put(context[c], index);
+          parameters.add(new double[outcomes.size()]);
+          update.newPredicates++;
+        }
+        features[e][c] = index;
+      }
+    }
+    int numOutcomes = outcomes.size();
+    for (int p = 0; p < parameters.size(); p++) {
+      if (parameters.get(p).length < numOutcomes) {
+        parameters.set(p, Arrays.copyOf(parameters.get(p), numOutcomes));
+      }
+    }
+
+    double[] scores = new double[numOutcomes];
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      int mistakes = 0;
+      for (int e = 0; e < features.length; e++) {
+        Arrays.fill(scores, 0);
+        for (int feature : features[e]) {
+          double[] row = parameters.get(feature);
+          for (int o = 0; o < numOutcomes; o++) {
+            scores[o] += row[o];
+          }
+        }
+        int best = 0;
+        for (int o = 1; o < numOutcomes; o++) {
+          if (scores[o] > scores[best]) {
+            best = o;
+          }
+        }
+        if (best != gold[e]) {
+          mistakes++;
+          for (int feature : features[e]) {
+            double[] row = parameters.get(feature);
+            row[gold[e]] += step;
+            row[best] -= step;
+          }
+        }
+      }
+      update.mistakes.add(mistakes);
+      if (mistakes == 0) {
+        break;
+      }
+    }
+
+    // Se reconstruye el modelo con los parámetros distintos de cero de cada predicado
+    String[] newPredicates = new String[parameters.size()];
+    predicateIndex.forEach((predicate, index) -> newPredicates[index] = predicate);
+    Context[] newContexts = new Context[parameters.size()];
+    for (int p = 0; p < newContexts.length; p++) {
+      double[] row = parameters.get(p);
+      int nonZero = 0;
+      for (double value : row) {
+        if (value != 0) {
+          nonZero++;
+        }
+      }
+      int[] pattern = new int[nonZero];
+      double[] values = new double[nonZero];
+      for (int o = 0, i = 0; o < row.length; o++) {
+        if (row[o] != 0) {
+          pattern[i] = o;
+          values[i++] = row[o];
+        }
+      }
+      newContexts[p] = new Context(pattern, values);
+    }
+    String[] newOutcomes = outcomes.toArray(new String[0]);
+
+    AbstractModel updated;
+    if (current.getModelType() == AbstractModel.ModelType.Perceptron) {
+      updated = new PerceptronModel(newContexts, newPredicates, newOutcomes);
+    } else {
+      updated = new GISModel(newContexts, newPredicates, newOutcomes, (Integer) data[3], (Double) data[4]);
+    }
+    model.replace(updated, samples.size());
+    return update;
+  }
+
+  /**
+   * Devuelve la muestra con el tipo dado en los nombres que no lo tienen.
+   */
+  private static NameSample withType(NameSample sample, String type) {
+    Span[] names = sample.getNames().clone();
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].getType() == null || NameSample.DEFAULT_TYPE.equals(names[i].getType())) {
+        names[i] = new Span(names[i].getStart(), names[i].getEnd(), type);
+      }
+    }
+    return new NameSample(sample.getSentence(), names, sample.getAdditionalContext(),
+            sample.isClearAdaptiveDataSet());
+  }
+
+  /**
+   * Escribe el modelo en un archivo temporal del mismo directorio y lo renombra al terminar;
+   * si algo falla, el temporal se borra.
+   *
+   * @param model Modelo.
+   * @param file Archivo de destino.
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  static void write(TokenNameFinderModel model, File file) throws IOException {
+    File temp = new File(file.getPath() + ".tmp");
+    boolean written = false;
+    try {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+        model.serialize(out);
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      written = true;
+    } finally {
+      if (!written) {
+        Files.deleteIfExists(temp.toPath());
+      }
+    }
+  }
+
+  /**
+   * Modelo del buscador de nombres cuyo modelo maxent se puede sustituir, conservando el
+   * resto de artefactos (generadores de características, recursos y manifiesto).
+   */
+  static final class UpdatableModel extends TokenNameFinderModel {
+
+    UpdatableModel(File file) throws IOException {
+      super(file);
+    }
+
+    void replace(AbstractModel model, int samples) {
+      artifactMap.put(MODEL_ENTRY, model);
+      setManifestProperty(UPDATES_PROPERTY, Integer.toString(count(UPDATES_PROPERTY) + 1));
+      setManifestProperty(SAMPLES_PROPERTY, Integer.toString(count(SAMPLES_PROPERTY) + samples));
+    }
+
+    private int count(String property) {
+      String value = getManifestProperty(property);
+      return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    /**
+     * @return El generador de contexto que usa NameFinderME con este modelo.
+     */
+    NameContextGenerator contextGenerator() {
+      return new NameFinderME(this) {
+        NameContextGenerator get() {
+          return contextGenerator;
+        }
+      }.get();
+    }
+  }
+}
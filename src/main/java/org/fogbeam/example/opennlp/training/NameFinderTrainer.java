@@ -5,6 +5,7 @@ package org.fogbeam.example.opennlp.training;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collections;
 
@@ -21,21 +22,8 @@ import opennlp.tools.util.TrainingParameters;
 
 public class NameFinderTrainer {
   public static void main( String[] args ) throws Exception {
-    Charset charset = Charset.forName( "UTF-8" );
-    ObjectStream<String> lineStream = new PlainTextByLineStream(
-            new FileInputStream( "training_data/en-ner-person.train" ), charset );
-    ObjectStream<NameSample> sampleStream = new NameSampleDataStream(
-            lineStream );
-    TokenNameFinderModel model;
-    try {
-      model = NameFinderME.train( "en", "person", sampleStream,
-              TrainingParameters.defaultParams(), (byte[]) null,
-              Collections.<String, Object> emptyMap() );
-    }
-    finally {
-      sampleStream.close();
-    }
-
+    TokenNameFinderModel model = ParallelTraining.train( "name finder", args,
+            NameFinderTrainer::train, TokenNameFinderModel::getNameFinderModel );
 
     BufferedOutputStream modelOut = null;
     try {
@@ -51,4 +39,36 @@ public class NameFinderTrainer {
 
     System.out.println( "done" );
   }
+
+  public static TokenNameFinderModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<NameSample> sampleStream = samples();
+    try {
+      return train( sampleStream, params );
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static TokenNameFinderModel train( ObjectStream<NameSample> samples, TrainingParameters params ) throws IOException {
+    return NameFinderME.train( "en", "person", samples,
+            params, (byte[]) null,
+            Collections.<String, Object> emptyMap() );
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<NameSample> samples() throws IOException {
+    String trainingFile = "training_data/en-ner-person.train";
+    return SampleCache.open( trainingFile, SampleCodecs.NAME, () -> {
+      Charset charset = Charset.forName( "UTF-8" );
+      ObjectStream<String> lineStream = new PlainTextByLineStream(
+              new FileInputStream( trainingFile ), charset );
+      return new NameSampleDataStream( lineStream );
+    } );
+  }
 }
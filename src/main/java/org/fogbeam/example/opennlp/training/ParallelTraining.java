@@ -0,0 +1,142 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import opennlp.model.Context;
+import opennlp.model.MaxentModel;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Utilidades comunes de los entrenadores para entrenar en varios hilos.
+ *
+ * Los entrenadores aceptan las opciones {@code -threads N}, que fija el número de hilos
+ * del entrenamiento, y {@code -speedup}, que entrena además un modelo de referencia con
+ * un solo hilo e informa de la aceleración obtenida y de la diferencia máxima entre los
+ * parámetros de ambos modelos.
+ *
+ * En OpenNLP 1.5.3 el paralelismo lo aporta el parámetro {@code Threads} del algoritmo
+ * MAXENT (GIS), que reparte entre hilos el cálculo de las expectativas del modelo en cada
+ * iteración, que es donde se concentra el coste del entrenamiento. La extracción de
+ * eventos y el indexado de predicados se siguen haciendo en un único hilo. El algoritmo
+ * PERCEPTRON ignora este parámetro.
+ */
+public final class ParallelTraining {
+
+  /**
+   * Nombre del parámetro de entrenamiento que fija el número de hilos de GIS.
+   */
+  public static final String THREADS_PARAM = "Threads";
+
+  /**
+   * Entrena un modelo con unos parámetros dados. Cada llamada debe abrir su propio flujo
+   * de muestras, ya que un entrenamiento consume el flujo.
+   *
+   * @param <M> Tipo de modelo.
+   */
+  @FunctionalInterface
+  public interface Trainer<M> {
+    M train(TrainingParameters params) throws IOException;
+  }
+
+  private ParallelTraining() {
+  }
+
+  /**
+   * Lee el número de hilos de la opción {@code -threads N}.
+   *
+   * @param args Argumentos de línea de comandos.
+   * @return El número de hilos indicado, o 1 si no se indica.
+   */
+  public static int threads(String[] args) {
+    for (int i = 0; i < args.length - 1; i++) {
+      if ("-threads".equals(args[i])) {
+        return Integer.parseInt(args[i + 1]);
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Crea los parámetros de entrenamiento por defecto con el número de hilos indicado.
+   *
+   * @param threads Número de hilos.
+   * @return Los parámetros de entrenamiento.
+   */
+  public static TrainingParameters parameters(int threads) {
+    TrainingParameters params = TrainingParameters.defaultParams();
+    params.put(THREADS_PARAM, Integer.toString(threads));
+    return params;
+  }
+
+  /**
+   * Entrena un modelo con el número de hilos indicado en los argumentos e informa del tiempo empleado.
+   * Con la opción {@code -speedup} entrena antes un modelo de referencia con un solo hilo y
+   * compara tiempos y parámetros.
+   *
+   * @param <M> Tipo de modelo.
+   * @param name Nombre del modelo, para los mensajes.
+   * @param args Argumentos de línea de comandos.
+   * @param trainer Entrenador del modelo.
+   * @param maxentModel Extrae el modelo estadístico interno, para comparar parámetros.
+   * @return El modelo entrenado con el número de hilos indicado.
+   * @throws IOException Si ocurre un error durante el entrenamiento.
+   */
+  public static <M> M train(String name, String[] args, Trainer<M> trainer, Function<M, MaxentModel> maxentModel)
+          throws IOException {
+    int threads = threads(args);
+    boolean compare = threads > 1 && Arrays.asList(args).contains("-speedup");
+
+    M reference = null;
+    long referenceNanos = 0;
+    if (compare) {
+      long start = System.nanoTime();
+      reference = trainer.train(parameters(1));
+      referenceNanos = System.nanoTime() - start;
+      System.out.println(name + ": 1 hilo, " + referenceNanos / 1000000 + " ms");
+    }
+
+    long start = System.nanoTime();
+    M model = trainer.train(parameters(threads));
+    long nanos = System.nanoTime() - start;
+    System.out.println(name + ": " + threads + " hilos, " + nanos / 1000000 + " ms");
+
+    if (compare) {
+      System.out.printf("%s: aceleración %.2fx, diferencia máxima de parámetros %.3g%n", name,
+              (double) referenceNanos / nanos,
+              maxParameterDifference(maxentModel.apply(reference), maxentModel.apply(model)));
+    }
+    return model;
+  }
+
+  /**
+   * Calcula la mayor diferencia absoluta entre los parámetros de dos modelos entrenados
+   * con los mismos datos. Como el indexado es determinista, ambos modelos comparten el
+   * orden de predicados y resultados.
+   *
+   * @param a Primer modelo.
+   * @param b Segundo modelo.
+   * @return La diferencia máxima, o infinito si los modelos no tienen la misma estructura.
+   */
+  static double maxParameterDifference(MaxentModel a, MaxentModel b) {
+    Context[] paramsA = (Context[]) a.getDataStructures()[0];
+    Context[] paramsB = (Context[]) b.getDataStructures()[0];
+    if (paramsA.length != paramsB.length) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    double max = 0;
+    for (int i = 0; i < paramsA.length; i++) {
+      double[] valuesA = paramsA[i].getParameters();
+      double[] valuesB = paramsB[i].getParameters();
+      if (valuesA.length != valuesB.length) {
+        return Double.POSITIVE_INFINITY;
+      }
+      for (int j = 0; j < valuesA.length; j++) {
+        max = Math.max(max, Math.abs(valuesA[j] - valuesB[j]));
+      }
+    }
+    return max;
+  }
+}
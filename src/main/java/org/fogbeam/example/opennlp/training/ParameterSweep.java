@@ -0,0 +1,337 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import opennlp.tools.chunker.ChunkSample;
+import opennlp.tools.chunker.ChunkerEvaluator;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.doccat.DocumentCategorizerEvaluator;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.NameSample;
+import opennlp.tools.namefind.TokenNameFinderEvaluator;
+import opennlp.tools.postag.POSEvaluator;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorEvaluator;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceSample;
+import opennlp.tools.tokenize.TokenSample;
+import opennlp.tools.tokenize.TokenizerEvaluator;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.util.CollectionObjectStream;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.TrainingParameters;
+import opennlp.tools.util.model.BaseModel;
+
+import org.fogbeam.example.opennlp.CommandLineOptions;
+
+/**
+ * Barrido de hiperparámetros para los entrenadores de este paquete.
+ *
+ * Entrena una variante del modelo por cada combinación de algoritmo, iteraciones y
+ * cutoff, en paralelo sobre un número acotado de hilos, y evalúa cada variante con
+ * muestras reservadas del corpus de entrenamiento. Al terminar imprime una tabla con la
+ * puntuación, el tiempo de entrenamiento y el tamaño del modelo de cada variante.
+ *
+ * Uso: {@code ParameterSweep <componente> [-algorithms MAXENT,PERCEPTRON]
+ * [-iterations 100,200] [-cutoffs 1,5] [-jobs N] [-heldout N]}, donde el componente es
+ * {@code chunker}, {@code pos}, {@code namefinder}, {@code tokenizer}, {@code sentence}
+ * o {@code doccat}. Con {@code -heldout N} se reserva para evaluar una de cada N
+ * muestras (10 por defecto).
+ *
+ * Cada variante se entrena con un solo hilo de GIS, ya que el paralelismo lo da el
+ * número de variantes que se entrenan a la vez.
+ */
+public class ParameterSweep {
+
+  private static final Logger logger = Logger.getLogger(ParameterSweep.class.getName());
+
+  /**
+   * Entrena un modelo a partir de unas muestras.
+   */
+  @FunctionalInterface
+  interface SampleTrainer<S, M> {
+    M train(ObjectStream<S> samples, TrainingParameters params) throws IOException;
+  }
+
+  /**
+   * Evalúa un modelo con unas muestras y devuelve su puntuación entre 0 y 1.
+   */
+  @FunctionalInterface
+  interface ModelEvaluator<S, M> {
+    double evaluate(M model, List<S> samples) throws IOException;
+  }
+
+  /**
+   * Componente que se puede barrer: cómo obtener sus muestras, entrenarlo y evaluarlo.
+   */
+  static final class Component<S, M extends BaseModel> {
+    private final String metric;
+    private final SampleCache.SampleParser<S> samples;
+    private final SampleTrainer<S, M> trainer;
+    private final ModelEvaluator<S, M> evaluator;
+
+    Component(String metric, SampleCache.SampleParser<S> samples, SampleTrainer<S, M> trainer,
+              ModelEvaluator<S, M> evaluator) {
+      this.metric = metric;
+      this.samples = samples;
+      this.trainer = trainer;
+      this.evaluator = evaluator;
+    }
+  }
+
+  /**
+   * Componentes disponibles, por nombre.
+   */
+  static final Map<String, Component<?, ?>> COMPONENTS = new LinkedHashMap<>();
+
+  static {
+    COMPONENTS.put("chunker", new Component<>("F1", ChunkerTrainer::samples, ChunkerTrainer::train,
+            (model, test) -> {
+              ChunkerEvaluator evaluator = new ChunkerEvaluator(new ChunkerME(model));
+              evaluator.evaluate(new CollectionObjectStream<ChunkSample>(test));
+              return evaluator.getFMeasure().getFMeasure();
+            }));
+    COMPONENTS.put("pos", new Component<>("precisión", PartOfSpeechTaggerTrainer::samples,
+            PartOfSpeechTaggerTrainer::train,
+            (model, test) -> {
+              POSEvaluator evaluator = new POSEvaluator(new POSTaggerME(model));
+              evaluator.evaluate(new CollectionObjectStream<POSSample>(test));
+              return evaluator.getWordAccuracy();
+            }));
+    COMPONENTS.put("namefinder", new Component<>("F1", NameFinderTrainer::samples, NameFinderTrainer::train,
+            (model, test) -> {
+              TokenNameFinderEvaluator evaluator = new TokenNameFinderEvaluator(new NameFinderME(model));
+              evaluator.evaluate(new CollectionObjectStream<NameSample>(test));
+              return evaluator.getFMeasure().getFMeasure();
+            }));
+    COMPONENTS.put("tokenizer", new Component<>("F1", TokenizerTrainer::samples, TokenizerTrainer::train,
+            (model, test) -> {
+              TokenizerEvaluator evaluator = new TokenizerEvaluator(new TokenizerME(model));
+              evaluator.evaluate(new CollectionObjectStream<TokenSample>(test));
+              return evaluator.getFMeasure().getFMeasure();
+            }));
+    COMPONENTS.put("sentence", new Component<>("F1", SentenceDetectionTrainer::samples,
+            SentenceDetectionTrainer::train,
+            (model, test) -> {
+              SentenceDetectorEvaluator evaluator = new SentenceDetectorEvaluator(new SentenceDetectorME(model));
+              evaluator.evaluate(new CollectionObjectStream<SentenceSample>(test));
+              return evaluator.getFMeasure().getFMeasure();
+            }));
+    COMPONENTS.put("doccat", new Component<>("precisión", DocumentClassifierTrainer::samples,
+            DocumentClassifierTrainer::train,
+            (model, test) -> {
+              DocumentCategorizerEvaluator evaluator =
+                      new DocumentCategorizerEvaluator(new DocumentCategorizerME(model));
+              evaluator.evaluate(test.iterator());
+              return evaluator.getAccuracy();
+            }));
+  }
+
+  /**
+   * Resultado de entrenar y evaluar una variante.
+   */
+  static final class Result {
+    final String algorithm;
+    final int iterations;
+    final int cutoff;
+    double score = Double.NaN;
+    long trainingMillis;
+    long modelBytes;
+    String error;
+
+    Result(String algorithm, int iterations, int cutoff) {
+      this.algorithm = algorithm;
+      this.iterations = iterations;
+      this.cutoff = cutoff;
+    }
+  }
+
+  /**
+   * Método principal del programa.
+   *
+   * @param args Componente y opciones del barrido.
+   * @throws Exception Si ocurre un error al leer las muestras.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0 || !COMPONENTS.containsKey(args[0])) {
+      System.out.println("Uso: ParameterSweep <" + String.join("|", COMPONENTS.keySet())
+              + "> [-algorithms MAXENT,PERCEPTRON] [-iterations 100] [-cutoffs 5] [-jobs N] [-heldout N]");
+      return;
+    }
+
+    String[] algorithms = CommandLineOptions.option(args, "-algorithms", "MAXENT,PERCEPTRON").split(",");
+    int[] iterations = integers(CommandLineOptions.option(args, "-iterations", "100"));
+    int[] cutoffs = integers(CommandLineOptions.option(args, "-cutoffs", "5"));
+    int jobs = Integer.parseInt(CommandLineOptions.option(args, "-jobs",
+            Integer.toString(Runtime.getRuntime().availableProcessors())));
+    int heldOut = Integer.parseInt(CommandLineOptions.option(args, "-heldout", "10"));
+
+    Component<?, ?> component = COMPONENTS.get(args[0]);
+    List<Result> results = sweep(component, algorithms, iterations, cutoffs, jobs, heldOut);
+    print(args[0], component.metric, results);
+  }
+
+  /**
+   * Entrena y evalúa todas las combinaciones de parámetros.
+   *
+   * @param component Componente que se barre.
+   * @param algorithms Algoritmos de entrenamiento.
+   * @param iterations Números de iteraciones.
+   * @param cutoffs Valores de cutoff.
+   * @param jobs Número máximo de entrenamientos simultáneos.
+   * @param heldOut Se reserva para evaluar una de cada {@code heldOut} muestras.
+   * @return Los resultados, en el orden de la rejilla.
+   * @throws IOException Si ocurre un error al leer las muestras.
+   * @throws InterruptedException Si se interrumpe el hilo mientras espera los entrenamientos.
+   */
+  static <S, M extends BaseModel> List<Result> sweep(Component<S, M> component, String[] algorithms,
+          int[] iterations, int[] cutoffs, int jobs, int heldOut) throws IOException, InterruptedException {
+    List<S> train = new ArrayList<>();
+    List<S> test = new ArrayList<>();
+    split(component.samples, heldOut, train, test);
+
+    List<Result> results = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(jobs);
+    try {
+      for (String algorithm : algorithms) {
+        for (int iteration : iterations) {
+          for (int cutoff : cutoffs) {
+            Result result = new Result(algorithm, iteration, cutoff);
+            results.add(result);
+            futures.add(executor.submit(() -> {
+              run(component, result, train, test);
+              return null;
+            }));
+          }
+        }
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          logger.severe("Error" + e.getCause());
+          results.get(i).error = String.valueOf(e.getCause());
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  /**
+   * Entrena y evalúa una variante, guardando las medidas en su resultado.
+   */
+  private static <S, M extends BaseModel> void run(Component<S, M> component, Result result,
+          List<S> train, List<S> test) throws IOException {
+    TrainingParameters params = ParallelTraining.parameters(1);
+    params.put(TrainingParameters.ALGORITHM_PARAM, result.algorithm);
+    params.put(TrainingParameters.ITERATIONS_PARAM, Integer.toString(result.iterations));
+    params.put(TrainingParameters.CUTOFF_PARAM, Integer.toString(result.cutoff));
+
+    long start = System.nanoTime();
+    M model = component.trainer.train(new CollectionObjectStream<S>(train), params);
+    result.trainingMillis = (System.nanoTime() - start) / 1000000;
+    result.modelBytes = serializedSize(model);
+    result.score = component.evaluator.evaluate(model, test);
+  }
+
+  /**
+   * Reparte las muestras entre entrenamiento y evaluación: una de cada {@code heldOut}
+   * se reserva para evaluar. Si el corpus es tan pequeño que no queda ninguna reservada,
+   * se reserva la última.
+   */
+  static <S> void split(SampleCache.SampleParser<S> source, int heldOut, List<S> train, List<S> test)
+          throws IOException {
+    ObjectStream<S> samples = source.open();
+    try {
+      int index = 0;
+      S sample;
+      while ((sample = samples.read()) != null) {
+        if (index++ % heldOut == heldOut - 1) {
+          test.add(sample);
+        } else {
+          train.add(sample);
+        }
+      }
+    } finally {
+      samples.close();
+    }
+
+    if (test.isEmpty() && train.size() > 1) {
+      test.add(train.remove(train.size() - 1));
+    }
+    if (test.isEmpty()) {
+      throw new IOException("El corpus no tiene muestras suficientes para reservar una parte para evaluar");
+    }
+  }
+
+  /**
+   * Calcula el tamaño en bytes del modelo serializado, sin guardarlo en memoria.
+   */
+  static long serializedSize(BaseModel model) throws IOException {
+    long[] size = new long[1];
+    model.serialize(new OutputStream() {
+      @Override
+      public void write(int b) {
+        size[0]++;
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        size[0] += len;
+      }
+    });
+    return size[0];
+  }
+
+  /**
+   * Imprime la tabla de resultados, de mayor a menor puntuación.
+   */
+  private static void print(String name, String metric, List<Result> results) {
+    List<Result> sorted = new ArrayList<>(results);
+    sorted.sort(Comparator.comparingDouble((Result r) -> Double.isNaN(r.score) ? -1 : r.score).reversed());
+
+    System.out.println();
+    System.out.println("Barrido de " + name);
+    System.out.printf("%-12s %10s %8s %10s %12s %12s%n", "algoritmo", "iteraciones", "cutoff", metric,
+            "tiempo (ms)", "tamaño (KB)");
+    for (Result r : sorted) {
+      if (r.error != null) {
+        System.out.printf("%-12s %10d %8d  error: %s%n", r.algorithm, r.iterations, r.cutoff, r.error);
+      } else {
+        System.out.printf("%-12s %10d %8d %10.4f %12d %12.1f%n", r.algorithm, r.iterations, r.cutoff,
+                r.score, r.trainingMillis, r.modelBytes / 1024.0);
+      }
+    }
+  }
+
+
+  /**
+   * Convierte una lista de enteros separados por comas.
+   */
+  private static int[] integers(String values) {
+    String[] parts = values.split(",");
+    int[] result = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      result[i] = Integer.parseInt(parts[i].trim());
+    }
+    return result;
+  }
+}
@@ -1,8 +1,241 @@
 package org.fogbeam.example.opennlp.training;
 
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import opennlp.model.AbstractModel;
+import opennlp.model.TrainUtil;
+import opennlp.tools.chunker.ChunkerME;
+import opennlp.tools.chunker.ChunkerModel;
+import opennlp.tools.dictionary.Dictionary;
+import opennlp.tools.parser.ChunkContextGenerator;
+import opennlp.tools.parser.ChunkSampleStream;
+import opennlp.tools.parser.Parse;
+import opennlp.tools.parser.ParseSampleStream;
+import opennlp.tools.parser.ParserEventTypeEnum;
+import opennlp.tools.parser.ParserModel;
+import opennlp.tools.parser.ParserType;
+import opennlp.tools.parser.PosSampleStream;
+import opennlp.tools.parser.chunking.Parser;
+import opennlp.tools.parser.chunking.ParserEventStream;
+import opennlp.tools.parser.lang.en.HeadRules;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Entrenador del analizador sintáctico por chunks (el que carga {@code ParserMain}).
+ *
+ * Hace lo mismo que {@link Parser#train(String, ObjectStream, opennlp.tools.parser.HeadRules,
+ * TrainingParameters)}, pero entrena en paralelo los cuatro submodelos (build, check,
+ * etiquetador POS y chunker), que son independientes entre sí. Cada submodelo abre su
+ * propio flujo sobre el treebank, que se lee árbol a árbol sin cargarlo entero en memoria.
+ *
+ * Uso: {@code ParserTrainer [treebank] [-threads N]}. El treebank tiene un árbol
+ * Penn Treebank por línea; por defecto se usa {@code training_data/en-parser.train}.
+ * Con {@code -threads N} se limita el número de submodelos que se entrenan a la vez.
+ * Los parámetros con prefijo ({@code build.}, {@code check.}, {@code tagger.},
+ * {@code chunker.}) se aplican solo a ese submodelo, como en OpenNLP.
+ */
 public class ParserTrainer {
 
-  public static void main( String[] args ) {
+  private static final java.util.logging.Logger logger = java.util.logging.Logger.getLogger(ParserTrainer.class.getName());
+
+  /**
+   * Reglas de cabeza del inglés usadas para entrenar y guardadas en el modelo.
+   */
+  public static final String HEAD_RULES = "training_data/en-head_rules";
+
+  public static void main( String[] args ) throws Exception {
+    String treebank = "training_data/en-parser.train";
+    if( args.length > 0 && !args[0].startsWith( "-" ) ) {
+      treebank = args[0];
+    }
+    int threads = Arrays.asList( args ).contains( "-threads" )
+            ? ParallelTraining.threads( args ) : Runtime.getRuntime().availableProcessors();
+
+    long start = System.nanoTime();
+    ParserModel model = train( treebank, headRules(), TrainingParameters.defaultParams(), threads );
+    System.out.println( "parser: " + (System.nanoTime() - start) / 1000000 + " ms" );
+
+    OutputStream modelOut = null;
+    String modelFile = "models/en-parser-chunking.bin";
+    try {
+      modelOut = new BufferedOutputStream( new FileOutputStream( modelFile ) );
+      model.serialize( modelOut );
+    }
+    finally {
+      if( modelOut != null ) {
+        try {
+          modelOut.close();
+        }
+        catch (IOException e) {
+          logger.severe("Error" + e.getMessage());
+        }
+      }
+    }
+
     System.out.println( "done" );
   }
+
+  /**
+   * Lee las reglas de cabeza del inglés de {@link #HEAD_RULES}, en UTF-8.
+   *
+   * @return Las reglas de cabeza.
+   * @throws IOException Si ocurre un error al leer el archivo.
+   */
+  public static HeadRules headRules() throws IOException {
+    try( Reader reader = new InputStreamReader( new FileInputStream( HEAD_RULES ), StandardCharsets.UTF_8 ) ) {
+      return new HeadRules( reader );
+    }
+  }
+
+  /**
+   * Entrena los cuatro submodelos del analizador en paralelo y los combina en un modelo.
+   *
+   * @param treebank Ruta del treebank, con un árbol por línea.
+   * @param rules Reglas de cabeza.
+   * @param params Parámetros de entrenamiento.
+   * @param threads Número máximo de submodelos que se entrenan a la vez.
+   * @return El modelo del analizador.
+   * @throws IOException Si ocurre un error al leer el treebank o al entrenar.
+   */
+  public static ParserModel train( String treebank, HeadRules rules, TrainingParameters params, int threads )
+          throws IOException {
+    Map<String, String> buildReport = new HashMap<String, String>();
+    Map<String, String> checkReport = new HashMap<String, String>();
+
+    ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( 4, threads ) ) );
+    try {
+      Future<AbstractModel> build = executor.submit( () -> {
+        // El diccionario de n-gramas solo lo usa el modelo build
+        Dictionary dictionary;
+        ObjectStream<Parse> parses = parses( treebank );
+        try {
+          dictionary = Parser.buildDictionary( parses, rules, params );
+        }
+        finally {
+          parses.close();
+        }
+
+        parses = parses( treebank );
+        try {
+          return TrainUtil.train( new ParserEventStream( parses, rules, ParserEventTypeEnum.BUILD, dictionary ),
+                  settings( params, "build" ), buildReport );
+        }
+        finally {
+          parses.close();
+        }
+      } );
+
+      Future<AbstractModel> check = executor.submit( () -> {
+        ObjectStream<Parse> parses = parses( treebank );
+        try {
+          return TrainUtil.train( new ParserEventStream( parses, rules, ParserEventTypeEnum.CHECK ),
+                  settings( params, "check" ), checkReport );
+        }
+        finally {
+          parses.close();
+        }
+      } );
+
+      Future<POSModel> tagger = executor.submit( () -> {
+        ObjectStream<Parse> parses = parses( treebank );
+        try {
+          return POSTaggerME.train( "en", new PosSampleStream( parses ),
+                  parameters( params, "tagger" ), new POSTaggerFactory() );
+        }
+        finally {
+          parses.close();
+        }
+      } );
+
+      Future<ChunkerModel> chunker = executor.submit( () -> {
+        ObjectStream<Parse> parses = parses( treebank );
+        try {
+          // ChunkerFactory no admite el generador de contexto del analizador, que es el que usa Parser.train
+          @SuppressWarnings( "deprecation" )
+          ChunkerModel chunkerModel = ChunkerME.train( "en", new ChunkSampleStream( parses ),
+                  new ChunkContextGenerator(), parameters( params, "chunker" ) );
+          return chunkerModel;
+        }
+        finally {
+          parses.close();
+        }
+      } );
+
+      AbstractModel buildModel = get( build );
+      AbstractModel checkModel = get( check );
+      POSModel posModel = get( tagger );
+      ChunkerModel chunkModel = get( chunker );
+
+      Map<String, String> manifest = new HashMap<String, String>();
+      Parser.mergeReportIntoManifest( manifest, buildReport, "build" );
+      Parser.mergeReportIntoManifest( manifest, checkReport, "check" );
+
+      return new ParserModel( "en", buildModel, checkModel, posModel, chunkModel, rules,
+              ParserType.CHUNKING, manifest );
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Abre un flujo que lee los árboles del treebank de uno en uno.
+   */
+  private static ObjectStream<Parse> parses( String treebank ) throws IOException {
+    Charset charset = Charset.forName( "UTF-8" );
+    ObjectStream<String> lineStream = new PlainTextByLineStream(
+            new FileInputStream( treebank ), charset );
+    return new ParseSampleStream( lineStream );
+  }
+
+  /**
+   * Devuelve los parámetros de un submodelo, o los generales si no hay ninguno con su prefijo.
+   */
+  private static Map<String, String> settings( TrainingParameters params, String namespace ) {
+    Map<String, String> settings = params.getSettings( namespace );
+    return settings.isEmpty() ? params.getSettings() : settings;
+  }
+
+  private static TrainingParameters parameters( TrainingParameters params, String namespace ) {
+    return params.getSettings( namespace ).isEmpty() ? params : params.getParameters( namespace );
+  }
+
+  /**
+   * Espera el resultado de un submodelo y propaga sus errores como {@link IOException}.
+   */
+  private static <T> T get( Future<T> future ) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException( "Entrenamiento interrumpido", e );
+    }
+    catch (ExecutionException e) {
+      if( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    }
+  }
 }
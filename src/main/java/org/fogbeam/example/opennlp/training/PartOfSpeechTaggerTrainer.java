@@ -24,29 +24,13 @@ public class PartOfSpeechTaggerTrainer {
 
   public static void main( String[] args ) {
     POSModel model = null;
-    InputStream dataIn = null;
     try {
-      dataIn = new FileInputStream( "training_data/en-pos.train" );
-      ObjectStream<String> lineStream = new PlainTextByLineStream(
-              dataIn, "UTF-8" );
-      ObjectStream<POSSample> sampleStream = new WordTagSampleStream(
-              lineStream );
-      model = POSTaggerME.train( "en", sampleStream,
-              TrainingParameters.defaultParams(), null, null );
+      model = ParallelTraining.train( "pos tagger", args,
+              PartOfSpeechTaggerTrainer::train, POSModel::getPosModel );
     }
     catch (Exception e) {
       logger.severe("Error" + e.getMessage());
     }
-    finally {
-      if( dataIn != null ) {
-        try {
-          dataIn.close();
-        }
-        catch (Exception e) {
-          logger.severe("Error" + e.getMessage());
-        }
-      }
-    }
     OutputStream modelOut = null;
     String modelFile = "models/en-pos.model";
     try {
@@ -72,4 +56,34 @@ public class PartOfSpeechTaggerTrainer {
     System.out.println( "done" );
 
   }
+
+  public static POSModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<POSSample> sampleStream = samples();
+    try {
+      return train( sampleStream, params );
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static POSModel train( ObjectStream<POSSample> samples, TrainingParameters params ) throws IOException {
+    return POSTaggerME.train( "en", samples, params, null, null );
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<POSSample> samples() throws IOException {
+    String trainingFile = "training_data/en-pos.train";
+    return SampleCache.open( trainingFile, SampleCodecs.POS, () -> {
+      InputStream dataIn = new FileInputStream( trainingFile );
+      ObjectStream<String> lineStream = new PlainTextByLineStream(
+              dataIn, "UTF-8" );
+      return new WordTagSampleStream( lineStream );
+    } );
+  }
 }
@@ -0,0 +1,350 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import opennlp.tools.util.ObjectStream;
+
+/**
+ * Caché binaria en disco de las muestras de entrenamiento ya analizadas.
+ *
+ * La primera vez que se pide un corpus se analiza el texto original y las muestras se
+ * guardan en {@code training_data/.cache/}; las ejecuciones siguientes leen directamente
+ * la caché, mapeada en memoria, sin volver a analizar el texto. La caché se regenera
+ * cuando cambia el tamaño o la fecha de modificación del archivo original. El nombre de
+ * la caché incluye un hash de la ruta absoluta del original y del codificador, así que dos
+ * corpus con el mismo nombre en directorios distintos no comparten caché.
+ *
+ * Formato: cabecera (magic, versión, nombre y versión del codificador, tamaño y fecha del
+ * original), las muestras codificadas como enteros de longitud variable que apuntan a una
+ * tabla de cadenas, la tabla de cadenas (cada cadena distinta se guarda una sola vez) y, al
+ * final, el número de muestras y las posiciones de las muestras y de la tabla. Como la caché
+ * se mapea en una sola región, no puede superar los 2 GB. Al abrir la caché, cada cadena se decodifica
+ * una única vez y las muestras comparten esas instancias.
+ */
+public final class SampleCache {
+
+  private static final Logger logger = Logger.getLogger(SampleCache.class.getName());
+
+  private static final int MAGIC = 0x4F4E5343;
+  private static final int VERSION = 2;
+
+  /**
+   * Tamaño del final del archivo: número de muestras y posiciones de las muestras y de la tabla.
+   */
+  private static final int TRAILER_SIZE = 20;
+
+  /**
+   * Directorio de la caché, relativo al directorio de trabajo.
+   */
+  public static final String CACHE_DIR = "training_data/.cache";
+
+  /**
+   * Analiza el corpus original y produce sus muestras.
+   *
+   * @param <S> Tipo de muestra.
+   */
+  @FunctionalInterface
+  public interface SampleParser<S> {
+    ObjectStream<S> open() throws IOException;
+  }
+
+  private SampleCache() {
+  }
+
+  /**
+   * Devuelve las muestras de un corpus, desde la caché si es válida o analizando el
+   * original y creando la caché en caso contrario.
+   *
+   * @param <S> Tipo de muestra.
+   * @param sourcePath Ruta del corpus original.
+   * @param codec Codificador de las muestras.
+   * @param parser Analiza el corpus original.
+   * @return Un flujo de muestras que admite {@code reset()}.
+   * @throws IOException Si ocurre un error al leer el original o la caché.
+   */
+  public static <S> ObjectStream<S> open(String sourcePath, SampleCodec<S> codec, SampleParser<S> parser)
+          throws IOException {
+    File source = new File(sourcePath);
+    File cache = new File(CACHE_DIR, cacheName(source, codec));
+
+    if (!isValid(cache, source, codec)) {
+      long start = System.nanoTime();
+      int count = write(source, cache, codec, parser);
+      logger.info("Caché de " + sourcePath + " creada con " + count + " muestras en "
+              + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+    return new MappedSampleStream<>(cache, codec);
+  }
+
+  /**
+   * Nombre del archivo de caché: el nombre del original y un hash de su ruta absoluta y del codificador.
+   */
+  private static String cacheName(File source, SampleCodec<?> codec) {
+    int hash = (source.getAbsolutePath() + "|" + codec.name()).hashCode();
+    return source.getName() + "-" + String.format("%08x", hash) + ".samples";
+  }
+
+  /**
+   * Comprueba si la caché existe y corresponde a la versión actual del original y del codificador.
+   */
+  private static boolean isValid(File cache, File source, SampleCodec<?> codec) throws IOException {
+    if (!cache.isFile() || cache.length() < 8 + TRAILER_SIZE) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache)))) {
+      return in.readInt() == MAGIC && in.readInt() == VERSION
+              && in.readUTF().equals(codec.name()) && in.readInt() == codec.version()
+              && in.readLong() == source.length() && in.readLong() == source.lastModified();
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Analiza el original y escribe la caché en un archivo temporal que se renombra al
+   * terminar, para que un proceso interrumpido no deje una caché a medias. Cada escritura
+   * usa un temporal propio, así que dos procesos que crean la misma caché a la vez no se pisan.
+   */
+  private static <S> int write(File source, File cache, SampleCodec<S> codec, SampleParser<S> parser)
+          throws IOException {
+    int count = 0;
+    File temp = null;
+    boolean written = false;
+    ObjectStream<S> samples = parser.open();
+    try {
+      Files.createDirectories(cache.getParentFile().toPath());
+      temp = Files.createTempFile(cache.getParentFile().toPath(), cache.getName(), ".tmp").toFile();
+      FileOutputStream file = new FileOutputStream(temp);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(codec.name());
+        out.writeInt(codec.version());
+        out.writeLong(source.length());
+        out.writeLong(source.lastModified());
+        // DataOutputStream.size() es un int que se satura; las posiciones se toman del canal
+        out.flush();
+        long samplesOffset = file.getChannel().position();
+
+        // El número de muestras se escribe al final, junto a las posiciones de las muestras y de la tabla
+        Encoder encoder = new Encoder(out);
+        S sample;
+        while ((sample = samples.read()) != null) {
+          codec.write(sample, encoder);
+          count++;
+        }
+
+        out.flush();
+        long tableOffset = file.getChannel().position();
+        encoder.writeTable();
+        out.writeInt(count);
+        out.writeLong(samplesOffset);
+        out.writeLong(tableOffset);
+        out.flush();
+        if (file.getChannel().position() > Integer.MAX_VALUE) {
+          throw new IOException("La caché de " + source + " supera los 2 GB que admite un único mapeo");
+        }
+        written = true;
+      }
+    } finally {
+      samples.close();
+      if (!written && temp != null) {
+        Files.deleteIfExists(temp.toPath());
+      }
+    }
+
+    Files.move(temp.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return count;
+  }
+
+  /**
+   * Escribe los campos de las muestras. Las cadenas se sustituyen por su índice en la
+   * tabla de cadenas; el índice 0 representa null.
+   */
+  public static final class Encoder {
+    private final DataOutputStream out;
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    Encoder(DataOutputStream out) {
+      this.out = out;
+    }
+
+    /**
+     * Escribe un entero no negativo con longitud variable (7 bits por byte).
+     */
+    public void writeInt(int value) throws IOException {
+      while ((value & ~0x7F) != 0) {
+        out.write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      out.write(value);
+    }
+
+    /**
+     * Escribe una cadena, que puede ser null, como índice en la tabla de cadenas.
+     */
+    public void writeString(String value) throws IOException {
+      if (value == null) {
+        writeInt(0);
+        return;
+      }
+      Integer id = ids.get(value);
+      if (id == null) {
+        id = ids.size() + 1;
+        ids.put(value, id);
+      }
+      writeInt(id);
+    }
+
+    /**
+     * Escribe un array de cadenas precedido de su longitud.
+     */
+    public void writeStrings(String[] values) throws IOException {
+      writeInt(values.length);
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+
+    void writeTable() throws IOException {
+      String[] table = new String[ids.size()];
+      for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+        table[entry.getValue() - 1] = entry.getKey();
+      }
+      writeInt(table.length);
+      for (String value : table) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Lee los campos de las muestras desde la caché mapeada en memoria.
+   */
+  public static final class Decoder {
+    private final ByteBuffer buffer;
+    private final String[] table;
+
+    Decoder(ByteBuffer buffer, String[] table) {
+      this.buffer = buffer;
+      this.table = table;
+    }
+
+    /**
+     * Lee un entero escrito con {@link Encoder#writeInt}.
+     */
+    public int readInt() {
+      return readInt(buffer);
+    }
+
+    /**
+     * Lee una cadena escrita con {@link Encoder#writeString}.
+     */
+    public String readString() {
+      int id = readInt(buffer);
+      return id == 0 ? null : table[id - 1];
+    }
+
+    /**
+     * Lee un array de cadenas escrito con {@link Encoder#writeStrings}.
+     */
+    public String[] readStrings() {
+      String[] values = new String[readInt(buffer)];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = readString();
+      }
+      return values;
+    }
+
+    static int readInt(ByteBuffer buffer) {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer.get();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+  }
+
+  /**
+   * Flujo de muestras leído de una caché mapeada en memoria. Admite {@code reset()}, por lo
+   * que varios entrenamientos pueden recorrer las mismas muestras sin volver a abrir el archivo.
+   */
+  static final class MappedSampleStream<S> implements ObjectStream<S> {
+    private final SampleCodec<S> codec;
+    private final MappedByteBuffer buffer;
+    private final Decoder decoder;
+    private final int count;
+    private final int samplesOffset;
+    private int read;
+
+    MappedSampleStream(File cache, SampleCodec<S> codec) throws IOException {
+      this.codec = codec;
+      try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("La caché " + cache + " supera los 2 GB que admite un único mapeo");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+
+      int end = buffer.limit();
+      count = buffer.getInt(end - TRAILER_SIZE);
+      samplesOffset = (int) buffer.getLong(end - 16);
+      int tableOffset = (int) buffer.getLong(end - 8);
+
+      ByteBuffer tableBuffer = buffer.duplicate();
+      tableBuffer.position(tableOffset);
+      String[] table = new String[Decoder.readInt(tableBuffer)];
+      for (int i = 0; i < table.length; i++) {
+        byte[] bytes = new byte[Decoder.readInt(tableBuffer)];
+        tableBuffer.get(bytes);
+        table[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+
+      decoder = new Decoder(buffer, table);
+      buffer.position(samplesOffset);
+    }
+
+    @Override
+    public S read() {
+      if (read == count) {
+        return null;
+      }
+      read++;
+      return codec.read(decoder);
+    }
+
+    @Override
+    public void reset() {
+      buffer.position(samplesOffset);
+      read = 0;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
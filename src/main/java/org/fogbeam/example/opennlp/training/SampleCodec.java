@@ -0,0 +1,44 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.IOException;
+
+/**
+ * Convierte muestras de entrenamiento al formato binario de {@link SampleCache} y viceversa.
+ *
+ * @param <S> Tipo de muestra.
+ */
+public interface SampleCodec<S> {
+
+  /**
+   * Nombre del codificador, que identifica la caché junto con {@link #version()}. No debe
+   * cambiar aunque se reordenen o renombren las clases.
+   *
+   * @return El nombre del codificador.
+   */
+  String name();
+
+  /**
+   * Versión del formato de las muestras. Debe incrementarse cada vez que cambie lo que
+   * escriben {@link #write} y {@link #read}, para que se regeneren las cachés existentes.
+   *
+   * @return La versión del formato.
+   */
+  int version();
+
+  /**
+   * Escribe una muestra.
+   *
+   * @param sample Muestra a escribir.
+   * @param out Destino de la muestra.
+   * @throws IOException Si ocurre un error al escribir.
+   */
+  void write(S sample, SampleCache.Encoder out) throws IOException;
+
+  /**
+   * Lee una muestra escrita con {@link #write}.
+   *
+   * @param in Origen de la muestra.
+   * @return La muestra leída.
+   */
+  S read(SampleCache.Decoder in);
+}
@@ -0,0 +1,179 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.IOException;
+
+import opennlp.tools.chunker.ChunkSample;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.namefind.NameSample;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.sentdetect.SentenceSample;
+import opennlp.tools.tokenize.TokenSample;
+import opennlp.tools.util.Span;
+
+/**
+ * Codificadores de las muestras que usan los entrenadores de este paquete.
+ */
+public final class SampleCodecs {
+
+  public static final SampleCodec<ChunkSample> CHUNK = new SampleCodec<ChunkSample>() {
+    @Override
+    public String name() {
+      return "chunk";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(ChunkSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeStrings(sample.getSentence());
+      out.writeStrings(sample.getTags());
+      out.writeStrings(sample.getPreds());
+    }
+
+    @Override
+    public ChunkSample read(SampleCache.Decoder in) {
+      return new ChunkSample(in.readStrings(), in.readStrings(), in.readStrings());
+    }
+  };
+
+  public static final SampleCodec<POSSample> POS = new SampleCodec<POSSample>() {
+    @Override
+    public String name() {
+      return "pos";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(POSSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeStrings(sample.getSentence());
+      out.writeStrings(sample.getTags());
+    }
+
+    @Override
+    public POSSample read(SampleCache.Decoder in) {
+      return new POSSample(in.readStrings(), in.readStrings());
+    }
+  };
+
+  public static final SampleCodec<NameSample> NAME = new SampleCodec<NameSample>() {
+    @Override
+    public String name() {
+      return "name";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(NameSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeStrings(sample.getSentence());
+      writeSpans(sample.getNames(), out);
+      out.writeInt(sample.isClearAdaptiveDataSet() ? 1 : 0);
+    }
+
+    @Override
+    public NameSample read(SampleCache.Decoder in) {
+      return new NameSample(in.readStrings(), readSpans(in), in.readInt() == 1);
+    }
+  };
+
+  public static final SampleCodec<TokenSample> TOKEN = new SampleCodec<TokenSample>() {
+    @Override
+    public String name() {
+      return "token";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(TokenSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeString(sample.getText());
+      writeSpans(sample.getTokenSpans(), out);
+    }
+
+    @Override
+    public TokenSample read(SampleCache.Decoder in) {
+      return new TokenSample(in.readString(), readSpans(in));
+    }
+  };
+
+  public static final SampleCodec<SentenceSample> SENTENCE = new SampleCodec<SentenceSample>() {
+    @Override
+    public String name() {
+      return "sentence";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(SentenceSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeString(sample.getDocument());
+      writeSpans(sample.getSentences(), out);
+    }
+
+    @Override
+    public SentenceSample read(SampleCache.Decoder in) {
+      return new SentenceSample(in.readString(), readSpans(in));
+    }
+  };
+
+  public static final SampleCodec<DocumentSample> DOCUMENT = new SampleCodec<DocumentSample>() {
+    @Override
+    public String name() {
+      return "document";
+    }
+
+    @Override
+    public int version() {
+      return 1;
+    }
+
+    @Override
+    public void write(DocumentSample sample, SampleCache.Encoder out) throws IOException {
+      out.writeString(sample.getCategory());
+      out.writeStrings(sample.getText());
+    }
+
+    @Override
+    public DocumentSample read(SampleCache.Decoder in) {
+      return new DocumentSample(in.readString(), in.readStrings());
+    }
+  };
+
+  private SampleCodecs() {
+  }
+
+  private static void writeSpans(Span[] spans, SampleCache.Encoder out) throws IOException {
+    out.writeInt(spans.length);
+    for (Span span : spans) {
+      out.writeInt(span.getStart());
+      out.writeInt(span.getEnd());
+      out.writeString(span.getType());
+    }
+  }
+
+  private static Span[] readSpans(SampleCache.Decoder in) {
+    Span[] spans = new Span[in.readInt()];
+    for (int i = 0; i < spans.length; i++) {
+      int start = in.readInt();
+      int end = in.readInt();
+      spans[i] = new Span(start, end, in.readString());
+    }
+    return spans;
+  }
+}
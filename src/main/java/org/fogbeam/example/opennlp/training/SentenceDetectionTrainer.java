@@ -5,6 +5,7 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 
@@ -19,19 +20,8 @@ import opennlp.tools.util.TrainingParameters;
 
 public class SentenceDetectionTrainer {
   public static void main( String[] args ) throws Exception {
-    Charset charset = Charset.forName("UTF-8");
-    ObjectStream<String> lineStream =
-            new PlainTextByLineStream(new FileInputStream("training_data/en-sent.train"), charset);
-    ObjectStream<SentenceSample> sampleStream = new SentenceSampleStream(lineStream);
-
-    SentenceModel model;
-
-    try {
-      model = SentenceDetectorME.train("en", sampleStream, true, null, TrainingParameters.defaultParams());
-    }
-    finally {
-      sampleStream.close();
-    }
+    SentenceModel model = ParallelTraining.train("sentence detector", args,
+            SentenceDetectionTrainer::train, SentenceModel::getMaxentModel);
 
     OutputStream modelOut = null;
     File modelFile = new File( "models/en-sent.model" );
@@ -45,4 +35,35 @@ public class SentenceDetectionTrainer {
 
     System.out.println( "done" );
   }
+
+  public static SentenceModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<SentenceSample> sampleStream = samples();
+
+    try {
+      return train(sampleStream, params);
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static SentenceModel train(ObjectStream<SentenceSample> samples, TrainingParameters params) throws IOException {
+    return SentenceDetectorME.train("en", samples, true, null, params);
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<SentenceSample> samples() throws IOException {
+    String trainingFile = "training_data/en-sent.train";
+    return SampleCache.open(trainingFile, SampleCodecs.SENTENCE, () -> {
+      Charset charset = Charset.forName("UTF-8");
+      ObjectStream<String> lineStream =
+              new PlainTextByLineStream(new FileInputStream(trainingFile), charset);
+      return new SentenceSampleStream(lineStream);
+    });
+  }
 }
@@ -0,0 +1,334 @@
+package org.fogbeam.example.opennlp.training;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import opennlp.maxent.GISModel;
+import opennlp.model.AbstractModel;
+import opennlp.model.Context;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.model.BaseModel;
+
+import org.fogbeam.example.opennlp.HashedBagOfWordsFeatureGenerator;
+
+/**
+ * Entrenamiento fuera de memoria del clasificador de documentos.
+ *
+ * DocumentCategorizerME.train indexa todos los eventos en memoria, así que el corpus no
+ * puede ser mayor que el heap. Aquí, en cambio:
+ * <ol>
+ *   <li>Cada documento se convierte en un evento con una bolsa de palabras con hashing
+ *   ({@link HashedBagOfWordsFeatureGenerator}): pares (cubo, número de apariciones).</li>
+ *   <li>Los eventos se escriben en fragmentos binarios en disco de tamaño acotado. En esta
+ *   misma pasada se cuentan las frecuencias observadas de cada par (cubo, categoría).</li>
+ *   <li>Cada iteración de GIS recorre los fragmentos en streaming, mapeados en memoria,
+ *   para calcular las expectativas del modelo.</li>
+ * </ol>
+ * En memoria solo se guardan tres tablas de cubos × categorías (observado, esperado y
+ * parámetros), cuyo tamaño no depende del número de documentos. El resultado es un modelo
+ * GIS normal, que se guarda y se carga como cualquier otro modelo de doccat.
+ */
+public final class ShardedDoccatTrainer {
+
+  private static final Logger logger = Logger.getLogger(ShardedDoccatTrainer.class.getName());
+
+  /**
+   * Número de cubos por defecto.
+   */
+  public static final int DEFAULT_BUCKETS = 1 << 18;
+
+  /**
+   * Directorio por defecto de los fragmentos.
+   */
+  public static final String DEFAULT_SHARD_DIR = SampleCache.CACHE_DIR + "/doccat-shards";
+
+  /**
+   * Tamaño máximo de cada fragmento, en bytes.
+   */
+  private static final int SHARD_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * Fragmentos escritos y lo que se aprende de los eventos al escribirlos.
+   */
+  static final class Shards {
+    final List<File> files = new ArrayList<>();
+    final List<String> outcomes = new ArrayList<>();
+    final List<double[]> observed = new ArrayList<>();
+    long events;
+    int correctionConstant;
+  }
+
+  private ShardedDoccatTrainer() {
+  }
+
+  /**
+   * Entrena un modelo de categorización fuera de memoria. Los fragmentos se borran al terminar.
+   *
+   * @param samples Documentos de entrenamiento; se leen una sola vez.
+   * @param buckets Número de cubos del hashing.
+   * @param iterations Número de iteraciones de GIS.
+   * @param shardDir Directorio donde se escriben los fragmentos.
+   * @return El modelo entrenado.
+   * @throws IOException Si ocurre un error al leer los documentos o los fragmentos.
+   */
+  public static DoccatModel train(ObjectStream<DocumentSample> samples, int buckets, int iterations, File shardDir)
+          throws IOException {
+    Shards shards = spill(samples, buckets, shardDir);
+    try {
+      logger.info(shards.events + " eventos en " + shards.files.size() + " fragmentos, "
+              + shards.outcomes.size() + " categorías");
+      double[][] params = gis(shards, buckets, iterations);
+      return model(shards, params, buckets, iterations);
+    } finally {
+      for (File file : shards.files) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+  }
+
+  /**
+   * Convierte los documentos en eventos y los escribe en fragmentos. Cada evento es la
+   * categoría, el número de pares y los pares (cubo, apariciones), como enteros de
+   * longitud variable. Si algo falla, se borran los fragmentos ya escritos.
+   */
+  static Shards spill(ObjectStream<DocumentSample> samples, int buckets, File shardDir) throws IOException {
+    Shards shards = new Shards();
+    boolean spilled = false;
+    try {
+      writeShards(samples, buckets, shardDir, shards);
+      spilled = true;
+    } finally {
+      if (!spilled) {
+        for (File file : shards.files) {
+          Files.deleteIfExists(file.toPath());
+        }
+      }
+    }
+
+    if (shards.events == 0) {
+      throw new IOException("No hay documentos de entrenamiento");
+    }
+    return shards;
+  }
+
+  /**
+   * Escribe los fragmentos, añadiendo cada archivo a {@code shards} antes de crearlo.
+   */
+  private static void writeShards(ObjectStream<DocumentSample> samples, int buckets, File shardDir, Shards shards)
+          throws IOException {
+    Files.createDirectories(shardDir.toPath());
+    Map<String, Integer> outcomeIndex = new HashMap<>();
+    int[] hashed = new int[256];
+
+    DataOutputStream out = null;
+    SampleCache.Encoder encoder = null;
+    try {
+      DocumentSample sample;
+      while ((sample = samples.read()) != null) {
+        if (out == null || out.size() >= SHARD_BYTES) {
+          if (out != null) {
+            out.close();
+          }
+          File file = new File(shardDir, "shard-" + shards.files.size() + ".events");
+          shards.files.add(file);
+          out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+          encoder = new SampleCache.Encoder(out);
+        }
+
+        Integer outcome = outcomeIndex.get(sample.getCategory());
+        if (outcome == null) {
+          outcome = shards.outcomes.size();
+          outcomeIndex.put(sample.getCategory(), outcome);
+          shards.outcomes.add(sample.getCategory());
+          shards.observed.add(new double[buckets]);
+        }
+
+        // Ordena los cubos del documento para agrupar las repeticiones
+        String[] tokens = sample.getText();
+        if (hashed.length < tokens.length) {
+          hashed = new int[tokens.length];
+        }
+        for (int i = 0; i < tokens.length; i++) {
+          hashed[i] = HashedBagOfWordsFeatureGenerator.bucket(tokens[i], buckets);
+        }
+        Arrays.sort(hashed, 0, tokens.length);
+
+        int pairs = 0;
+        for (int i = 0; i < tokens.length; i++) {
+          if (i == 0 || hashed[i] != hashed[i - 1]) {
+            pairs++;
+          }
+        }
+
+        encoder.writeInt(outcome);
+        encoder.writeInt(pairs);
+        double[] observed = shards.observed.get(outcome);
+        for (int i = 0; i < tokens.length; ) {
+          int j = i;
+          while (j < tokens.length && hashed[j] == hashed[i]) {
+            j++;
+          }
+          encoder.writeInt(hashed[i]);
+          encoder.writeInt(j - i);
+          observed[hashed[i]] += j - i;
+          i = j;
+        }
+
+        shards.correctionConstant = Math.max(shards.correctionConstant, tokens.length);
+        shards.events++;
+      }
+    } finally {
+      if (out != null) {
+        out.close();
+      }
+      samples.close();
+    }
+  }
+
+  /**
+   * Ejecuta GIS recorriendo los fragmentos en cada iteración.
+   *
+   * @return Los parámetros, por categoría y cubo.
+   */
+  static double[][] gis(Shards shards, int buckets, int iterations) throws IOException {
+    int outcomes = shards.outcomes.size();
+    double[][] params = new double[outcomes][buckets];
+    double[][] expected = new double[outcomes][buckets];
+    double[] scores = new double[outcomes];
+    int[] eventBuckets = new int[256];
+    int[] eventCounts = new int[256];
+    int constant = Math.max(1, shards.correctionConstant);
+
+    System.out.println("Performing " + iterations + " iterations.");
+    for (int iteration = 1; iteration <= iterations; iteration++) {
+      for (double[] row : expected) {
+        Arrays.fill(row, 0);
+      }
+      double logLikelihood = 0;
+      long correct = 0;
+
+      for (File file : shards.files) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+          buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        while (buffer.hasRemaining()) {
+          int outcome = SampleCache.Decoder.readInt(buffer);
+          int pairs = SampleCache.Decoder.readInt(buffer);
+          if (eventBuckets.length < pairs) {
+            eventBuckets = new int[pairs];
+            eventCounts = new int[pairs];
+          }
+          for (int i = 0; i < pairs; i++) {
+            eventBuckets[i] = SampleCache.Decoder.readInt(buffer);
+            eventCounts[i] = SampleCache.Decoder.readInt(buffer);
+          }
+
+          // Probabilidades del modelo actual (softmax de las sumas de parámetros)
+          int best = 0;
+          double max = Double.NEGATIVE_INFINITY;
+          for (int o = 0; o < outcomes; o++) {
+            double sum = 0;
+            double[] row = params[o];
+            for (int i = 0; i < pairs; i++) {
+              sum += eventCounts[i] * row[eventBuckets[i]];
+            }
+            scores[o] = sum;
+            if (sum > max) {
+              max = sum;
+              best = o;
+            }
+          }
+          double norm = 0;
+          for (int o = 0; o < outcomes; o++) {
+            scores[o] = Math.exp(scores[o] - max);
+            norm += scores[o];
+          }
+
+          for (int o = 0; o < outcomes; o++) {
+            double probability = scores[o] / norm;
+            double[] row = expected[o];
+            for (int i = 0; i < pairs; i++) {
+              row[eventBuckets[i]] += eventCounts[i] * probability;
+            }
+          }
+          logLikelihood += Math.log(scores[outcome] / norm);
+          if (best == outcome) {
+            correct++;
+          }
+        }
+      }
+
+      for (int o = 0; o < outcomes; o++) {
+        double[] observed = shards.observed.get(o);
+        for (int b = 0; b < buckets; b++) {
+          if (observed[b] > 0) {
+            params[o][b] += (Math.log(observed[b]) - Math.log(expected[o][b])) / constant;
+          }
+        }
+      }
+      System.out.printf("%5d:  %s  %s%n", iteration, logLikelihood, (double) correct / shards.events);
+    }
+    return params;
+  }
+
+  /**
+   * Construye el modelo GIS con los cubos que tienen algún parámetro.
+   */
+  private static DoccatModel model(Shards shards, double[][] params, int buckets, int iterations) {
+    int outcomes = shards.outcomes.size();
+    List<Context> contexts = new ArrayList<>();
+    List<String> predicates = new ArrayList<>();
+    int[] pattern = new int[outcomes];
+    double[] values = new double[outcomes];
+
+    for (int b = 0; b < buckets; b++) {
+      int active = 0;
+      for (int o = 0; o < outcomes; o++) {
+        if (shards.observed.get(o)[b] > 0) {
+          pattern[active] = o;
+          values[active] = params[o][b];
+          active++;
+        }
+      }
+      if (active > 0) {
+        contexts.add(new Context(Arrays.copyOf(pattern, active), Arrays.copyOf(values, active)));
+        predicates.add(HashedBagOfWordsFeatureGenerator.predicate(b));
+      }
+    }
+
+    GISModel model = new GISModel(contexts.toArray(new Context[0]), predicates.toArray(new String[0]),
+            shards.outcomes.toArray(new String[0]), 1, 0);
+
+    Map<String, String> manifest = new HashMap<>();
+    manifest.put(HashedBagOfWordsFeatureGenerator.BUCKETS_PROPERTY, Integer.toString(buckets));
+    manifest.put(BaseModel.TRAINING_ITERATIONS_PROPERTY, Integer.toString(iterations));
+    return new HashedDoccatModel("en", model, manifest);
+  }
+
+  /**
+   * Modelo de doccat con propiedades propias en el manifiesto. Una vez guardado se carga
+   * como un DoccatModel normal.
+   */
+  private static final class HashedDoccatModel extends DoccatModel {
+    HashedDoccatModel(String languageCode, AbstractModel model, Map<String, String> manifest) {
+      super(languageCode, model, manifest);
+    }
+  }
+}
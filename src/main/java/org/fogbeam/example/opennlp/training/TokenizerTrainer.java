@@ -5,6 +5,7 @@ package org.fogbeam.example.opennlp.training;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 
@@ -19,20 +20,8 @@ import opennlp.tools.util.TrainingParameters;
 
 public class TokenizerTrainer {
   public static void main( String[] args ) throws Exception {
-    Charset charset = Charset.forName( "UTF-8" );
-    ObjectStream<String> lineStream = new PlainTextByLineStream(
-            new FileInputStream( "training_data/en-token.train" ), charset );
-
-    ObjectStream<TokenSample> sampleStream = new TokenSampleStream( lineStream );
-
-    TokenizerModel model;
-
-    try {
-      model = TokenizerME.train( "en", sampleStream, true, TrainingParameters.defaultParams() );
-    }
-    finally {
-      sampleStream.close();
-    }
+    TokenizerModel model = ParallelTraining.train( "tokenizer", args,
+            TokenizerTrainer::train, TokenizerModel::getMaxentModel );
 
     OutputStream modelOut = null;
     try {
@@ -47,4 +36,35 @@ public class TokenizerTrainer {
 
     System.out.println( "done" );
   }
+
+  public static TokenizerModel train( TrainingParameters params ) throws IOException {
+    ObjectStream<TokenSample> sampleStream = samples();
+
+    try {
+      return train( sampleStream, params );
+    }
+    finally {
+      sampleStream.close();
+    }
+  }
+
+  /**
+   * Entrena el modelo con unas muestras dadas, sin cerrar el flujo.
+   */
+  public static TokenizerModel train( ObjectStream<TokenSample> samples, TrainingParameters params ) throws IOException {
+    return TokenizerME.train( "en", samples, true, params );
+  }
+
+  /**
+   * Devuelve las muestras de entrenamiento, desde la caché binaria si está al día.
+   */
+  public static ObjectStream<TokenSample> samples() throws IOException {
+    String trainingFile = "training_data/en-token.train";
+    return SampleCache.open( trainingFile, SampleCodecs.TOKEN, () -> {
+      Charset charset = Charset.forName( "UTF-8" );
+      ObjectStream<String> lineStream = new PlainTextByLineStream(
+              new FileInputStream( trainingFile ), charset );
+      return new TokenSampleStream( lineStream );
+    } );
+  }
 }
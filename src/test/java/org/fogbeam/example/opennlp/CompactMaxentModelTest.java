@@ -0,0 +1,117 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import opennlp.maxent.GISModel;
+import opennlp.model.AbstractModel;
+import opennlp.model.Context;
+import opennlp.model.IndexHashTable;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.DefaultPOSContextGenerator;
+import opennlp.tools.postag.POSModel;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que {@link CompactMaxentModel} da las mismas probabilidades que el modelo
+ * original, salvo el redondeo de los parámetros a float.
+ */
+class CompactMaxentModelTest {
+
+  private static final double TOLERANCE = 1e-5;
+
+  private static final String[] SENTENCE = {
+    "Pierre", "Vinken", ",", "61", "years", "old", ",", "will", "join", "the", "board", "as", "a",
+    "nonexecutive", "director", "Nov.", "29", "."
+  };
+
+  private static void assertSameEval(AbstractModel original, String[] context, float[] values) {
+    CompactMaxentModel compact = CompactMaxentModel.of(original);
+    double[] expected = values == null ? original.eval(context) : original.eval(context, values);
+    double[] actual = values == null ? compact.eval(context) : compact.eval(context, values);
+    assertEquals(expected.length, actual.length);
+    for (int o = 0; o < expected.length; o++) {
+      assertEquals(expected[o], actual[o], TOLERANCE, original.getOutcome(o) + " en " + String.join(" ", context));
+    }
+  }
+
+  /**
+   * Contextos al azar con predicados del modelo y alguno desconocido, con o sin valores.
+   */
+  @SuppressWarnings("unchecked")
+  private static void assertSameOnRandomContexts(AbstractModel original, long seed) {
+    IndexHashTable<String> predicateMap = (IndexHashTable<String>) original.getDataStructures()[1];
+    String[] predicates = predicateMap.toArray(new String[predicateMap.size()]);
+    Random random = new Random(seed);
+    for (int n = 0; n < 200; n++) {
+      List<String> context = new ArrayList<>();
+      for (int length = random.nextInt(20); length > 0; length--) {
+        context.add(random.nextInt(8) == 0 ? "desconocido=" + n : predicates[random.nextInt(predicates.length)]);
+      }
+      float[] values = null;
+      if (random.nextBoolean()) {
+        values = new float[context.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = random.nextFloat() * 2;
+        }
+      }
+      assertSameEval(original, context.toArray(new String[0]), values);
+    }
+  }
+
+  @Test
+  void perceptronPosModel() throws IOException {
+    POSModel model = (POSModel) ModelSnapshot.loadOriginal(new File(ModelRegistry.DEFAULT_MODEL_DIR, "en-pos-perceptron.bin"));
+    AbstractModel original = (AbstractModel) model.getPosModel();
+    assertEquals(AbstractModel.ModelType.Perceptron, original.getModelType());
+
+    // Contextos como los que genera el etiquetador, con etiquetas previas inventadas
+    DefaultPOSContextGenerator generator = new DefaultPOSContextGenerator(null);
+    String[] tags = new String[SENTENCE.length];
+    for (int i = 0; i < SENTENCE.length; i++) {
+      assertSameEval(original, generator.getContext(i, SENTENCE, tags, null), null);
+      tags[i] = original.getOutcome(i % original.getNumOutcomes());
+    }
+    assertSameOnRandomContexts(original, 1);
+  }
+
+  @Test
+  void maxentNameFinderModel() throws IOException {
+    TokenNameFinderModel model = (TokenNameFinderModel) ModelSnapshot.loadOriginal(
+            new File(ModelRegistry.DEFAULT_MODEL_DIR, "en-ner-person.model"));
+    AbstractModel original = (AbstractModel) model.getNameFinderModel();
+    assertEquals(AbstractModel.ModelType.Maxent, original.getModelType());
+    assertSameOnRandomContexts(original, 2);
+  }
+
+  @Test
+  void gisCorrectionParameter() {
+    // Los modelos de models/ tienen parámetro de corrección 0; este ejercita la corrección
+    Random random = new Random(3);
+    String[] outcomes = {"a", "b", "c", "d"};
+    String[] predicates = new String[50];
+    Context[] contexts = new Context[predicates.length];
+    for (int i = 0; i < predicates.length; i++) {
+      predicates[i] = "p" + i;
+      List<Integer> pattern = new ArrayList<>();
+      for (int o = 0; o < outcomes.length; o++) {
+        if (random.nextInt(3) > 0) {
+          pattern.add(o);
+        }
+      }
+      int[] patternOutcomes = pattern.stream().mapToInt(Integer::intValue).toArray();
+      double[] parameters = new double[patternOutcomes.length];
+      for (int j = 0; j < parameters.length; j++) {
+        parameters[j] = random.nextGaussian();
+      }
+      contexts[i] = new Context(patternOutcomes, parameters);
+    }
+    assertSameOnRandomContexts(new GISModel(contexts, predicates, outcomes, 7, 0.3), 4);
+  }
+}
@@ -0,0 +1,106 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.model.BaseModel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Comprueba que una instantánea reproduce el modelo original: se escribe, se vuelve a cargar
+ * y se comparan las salidas de ambos con los modelos de {@code models/}.
+ */
+class ModelSnapshotTest {
+
+  private static final String TEXT = "Pierre Vinken, 61 years old, will join the board as a nonexecutive director Nov. 29. "
+          + "Mr. Vinken is chairman of Elsevier N.V., the Dutch publishing group. "
+          + "Rudolph Agnew, 55 years old and former chairman of Consolidated Gold Fields PLC, was named a director.";
+
+  private static final String[] TOKENS = {
+    "Pierre", "Vinken", ",", "61", "years", "old", ",", "will", "join", "the", "board", "as", "a",
+    "nonexecutive", "director", "Nov.", "29", ".", "Mr.", "Vinken", "is", "chairman", "of", "Elsevier",
+    "N.V.", ",", "the", "Dutch", "publishing", "group", "."
+  };
+
+  @TempDir
+  Path dir;
+
+  @ParameterizedTest
+  @ValueSource(strings = {"en-ner-person.model", "en-pos-perceptron.bin", "en-sent.model", "en-token.bin", "en-token.model"})
+  void roundTripGivesSameResults(String fileName) throws IOException {
+    BaseModel original = ModelSnapshot.loadOriginal(new File(ModelRegistry.DEFAULT_MODEL_DIR, fileName));
+    File snapshot = dir.resolve(fileName + ModelSnapshot.EXTENSION).toFile();
+    ModelSnapshot.write(original, snapshot);
+    BaseModel loaded = ModelSnapshot.load(snapshot);
+
+    assertEquals(original.getClass(), loaded.getClass());
+    assertEquals(original.getLanguage(), loaded.getLanguage());
+    if (original instanceof TokenizerModel) {
+      assertArrayEquals(new TokenizerME((TokenizerModel) original).tokenizePos(TEXT),
+              new TokenizerME((TokenizerModel) loaded).tokenizePos(TEXT));
+    } else if (original instanceof SentenceModel) {
+      assertArrayEquals(new SentenceDetectorME((SentenceModel) original).sentPosDetect(TEXT),
+              new SentenceDetectorME((SentenceModel) loaded).sentPosDetect(TEXT));
+    } else if (original instanceof POSModel) {
+      assertArrayEquals(new POSTaggerME((POSModel) original).tag(TOKENS),
+              new POSTaggerME((POSModel) loaded).tag(TOKENS));
+    } else if (original instanceof TokenNameFinderModel) {
+      assertArrayEquals(new NameFinderME((TokenNameFinderModel) original).find(TOKENS),
+              new NameFinderME((TokenNameFinderModel) loaded).find(TOKENS));
+    }
+  }
+
+  @Test
+  void corruptSnapshotIsRejected() throws IOException {
+    File snapshot = dir.resolve("en-token.bin" + ModelSnapshot.EXTENSION).toFile();
+    Files.write(snapshot.toPath(), "no es una instantánea".getBytes(StandardCharsets.UTF_8));
+    assertThrows(IOException.class, () -> ModelSnapshot.load(snapshot));
+  }
+
+  @Test
+  void registryFallsBackToOriginalWhenSnapshotIsCorrupt() throws IOException {
+    File model = dir.resolve("en-token.bin").toFile();
+    Files.copy(new File(ModelRegistry.DEFAULT_MODEL_DIR, "en-token.bin").toPath(), model.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+    File snapshot = ModelSnapshot.snapshotFile(model);
+    Files.write(snapshot.toPath(), new byte[] {0, 1, 2, 3});
+    snapshot.setLastModified(model.lastModified() + 1000);
+
+    ModelRegistry registry = new ModelRegistry(dir.toString(), ModelRegistry.DEFAULT_MAX_BYTES);
+    TokenizerModel loaded = registry.getModel("en-token.bin", TokenizerModel.class, TokenizerModel::new);
+    assertNotNull(loaded);
+    assertArrayEquals(TOKENS, new TokenizerME(loaded).tokenize(TEXT.substring(0, TEXT.indexOf(" Rudolph"))));
+  }
+
+  @Test
+  void failedWriteLeavesNoTemporaryFile() throws IOException {
+    // Un directorio no vacío con el nombre de la instantánea hace fallar el renombrado final
+    File snapshot = dir.resolve("model" + ModelSnapshot.EXTENSION).toFile();
+    Files.createDirectories(snapshot.toPath().resolve("busy"));
+    assertThrows(IOException.class, () -> ModelSnapshot.write(
+            ModelSnapshot.loadOriginal(new File(ModelRegistry.DEFAULT_MODEL_DIR, "en-token.bin")), snapshot));
+    assertFalse(new File(snapshot.getPath() + ".tmp").exists());
+  }
+}
@@ -0,0 +1,153 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import opennlp.tools.util.Span;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Compara {@link NameDictionary} con un buscador de referencia sobre un {@link HashMap} que
+ * prueba en cada posición todas las longitudes, de la más larga a la más corta.
+ */
+class NameDictionaryTest {
+
+  @TempDir
+  Path dir;
+
+  /**
+   * Buscador de referencia: coincidencias más largas sin solapes, de izquierda a derecha.
+   */
+  private static final class Reference {
+    final Map<List<String>, String> names = new HashMap<>();
+    int maxLength;
+
+    void add(String name, String type) {
+      List<String> key = Arrays.asList(name.trim().split("\\s+"));
+      names.putIfAbsent(key, type);
+      maxLength = Math.max(maxLength, key.size());
+    }
+
+    Span[] find(String[] tokens) {
+      List<Span> found = new ArrayList<>();
+      int start = 0;
+      while (start < tokens.length) {
+        int end = -1;
+        for (int length = Math.min(maxLength, tokens.length - start); length > 0 && end < 0; length--) {
+          String type = names.get(Arrays.asList(tokens).subList(start, start + length));
+          if (type != null) {
+            end = start + length;
+            found.add(new Span(start, end, type));
+          }
+        }
+        start = end < 0 ? start + 1 : end;
+      }
+      return found.toArray(new Span[0]);
+    }
+  }
+
+  private NameDictionary compile(String... lines) throws IOException {
+    Path source = dir.resolve("names.txt");
+    Path target = dir.resolve("names" + NameDictionary.EXTENSION);
+    Files.write(source, Arrays.asList(lines), StandardCharsets.UTF_8);
+    NameDictionary.compile(source, target, "person");
+    return NameDictionary.open(target);
+  }
+
+  private static String[] tokens(String sentence) {
+    return sentence.split(" ");
+  }
+
+  @Test
+  void prefersLongestName() throws IOException {
+    NameDictionary dictionary = compile("New", "New York\tlocation", "New York City\tlocation");
+    assertArrayEquals(new Span[] {new Span(1, 4, "location"), new Span(5, 6, "person")},
+            dictionary.find(tokens("in New York City and New Jersey")));
+    assertArrayEquals(new Span[] {new Span(0, 2, "location")}, dictionary.find(tokens("New York")));
+  }
+
+  @Test
+  void keepsFirstTypeOfDuplicates() throws IOException {
+    NameDictionary dictionary = compile("John Smith\tperson", "John  Smith\torganization", "Acme");
+    assertEquals(2, dictionary.size());
+    assertArrayEquals(new Span[] {new Span(0, 2, "person")}, dictionary.find(tokens("John Smith")));
+  }
+
+  @Test
+  void overlappingNamesDoNotOverlapInResult() throws IOException {
+    NameDictionary dictionary = compile("John Smith", "Smith Jones", "Jones");
+    assertArrayEquals(new Span[] {new Span(0, 2, "person"), new Span(2, 3, "person")},
+            dictionary.find(tokens("John Smith Jones")));
+  }
+
+  @Test
+  void unknownTokensBreakMatches() throws IOException {
+    NameDictionary dictionary = compile("# comentario", "", "Mary Ann Lee");
+    assertArrayEquals(new Span[0], dictionary.find(tokens("Mary Ann Xu")));
+    assertArrayEquals(new Span[0], dictionary.find(tokens("nobody here")));
+    assertArrayEquals(new Span[0], dictionary.find(new String[0]));
+  }
+
+  @Test
+  void emptyDictionaryFindsNothing() throws IOException {
+    NameDictionary dictionary = compile("# solo comentarios");
+    assertEquals(0, dictionary.size());
+    assertArrayEquals(new Span[0], dictionary.find(tokens("John Smith")));
+  }
+
+  @Test
+  void matchesReferenceOnRandomDictionaries() throws IOException {
+    Random random = new Random(42);
+    String[] vocabulary = {"a", "b", "c", "d", "e", "f", "Ab", "BB", "Aa", "ñ"};
+    for (int round = 0; round < 20; round++) {
+      Reference reference = new Reference();
+      List<String> lines = new ArrayList<>();
+      for (int n = random.nextInt(30); n > 0; n--) {
+        StringBuilder name = new StringBuilder();
+        for (int length = 1 + random.nextInt(4); length > 0; length--) {
+          name.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+        }
+        String type = "t" + random.nextInt(3);
+        lines.add(name.toString().trim() + "\t" + type);
+        reference.add(name.toString(), type);
+      }
+      NameDictionary dictionary = compile(lines.toArray(new String[0]));
+      assertEquals(reference.names.size(), dictionary.size());
+
+      for (int sentence = 0; sentence < 50; sentence++) {
+        String[] tokens = new String[random.nextInt(12)];
+        for (int i = 0; i < tokens.length; i++) {
+          // De vez en cuando un token que no está en el vocabulario
+          tokens[i] = random.nextInt(10) == 0 ? "x" : vocabulary[random.nextInt(vocabulary.length)];
+        }
+        assertArrayEquals(reference.find(tokens), dictionary.find(tokens), String.join(" ", tokens));
+      }
+    }
+  }
+
+  @Test
+  void failedCompileLeavesNoTemporaryFile() throws IOException {
+    Path source = dir.resolve("names.txt");
+    Files.write(source, Arrays.asList("John Smith"), StandardCharsets.UTF_8);
+    // Un directorio no vacío con el nombre del destino hace fallar el renombrado final
+    Path target = dir.resolve("names" + NameDictionary.EXTENSION);
+    Files.createDirectories(target.resolve("busy"));
+    assertThrows(IOException.class, () -> NameDictionary.compile(source, target, "person"));
+    assertFalse(Files.exists(Path.of(target + ".tmp")));
+  }
+}
@@ -0,0 +1,109 @@
+package org.fogbeam.example.opennlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compara las posiciones de {@link OffsetTokenizer} con {@link TokenizerME#tokenizePos} usando
+ * {@code models/en-token.bin}.
+ */
+class OffsetTokenizerTest {
+
+  private static TokenizerModel model;
+
+  @BeforeAll
+  static void loadModel() throws IOException {
+    model = (TokenizerModel) ModelSnapshot.loadOriginal(new File(ModelRegistry.DEFAULT_MODEL_DIR, "en-token.bin"));
+  }
+
+  private static int[] expected(TokenizerME tokenizer, String text) {
+    Span[] spans = tokenizer.tokenizePos(text);
+    int[] offsets = new int[spans.length * 2];
+    for (int i = 0; i < spans.length; i++) {
+      offsets[2 * i] = spans[i].getStart();
+      offsets[2 * i + 1] = spans[i].getEnd();
+    }
+    return offsets;
+  }
+
+  private static int[] actual(OffsetTokenizer tokenizer, String text) {
+    int[] offsets = new int[2 * text.length()];
+    int count = tokenizer.tokenize(text, offsets);
+    return Arrays.copyOf(offsets, 2 * count);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "Pierre Vinken, 61 years old, will join the board as a nonexecutive director Nov. 29.",
+    "  Mr.  Vinken\tis\t\tchairman of Elsevier N.V.,\n\nthe Dutch publishing group.   ",
+    "\t\n  \r\n",
+    "",
+    "x",
+    "\"Quoted,\" she said -- (and left)... didn't she?",
+    "a b c  d"
+  })
+  void matchesTokenizePos(String text) {
+    TokenizerME reference = new TokenizerME(model);
+    OffsetTokenizer tokenizer = new OffsetTokenizer(new TokenizerME(model));
+    assertArrayEquals(expected(reference, text), actual(tokenizer, text));
+    // La segunda vez los fragmentos salen de la caché
+    assertArrayEquals(expected(reference, text), actual(tokenizer, text));
+  }
+
+  @Test
+  void cacheSlotCollisionsDoNotMixPieces() throws IOException {
+    // "(a)" y ")AH" tienen el mismo hash, y por tanto la misma entrada de la caché, pero el
+    // modelo los corta distinto: si la caché solo comparase el hash, uno recibiría los cortes del otro
+    assertEquals("(a)".hashCode(), ")AH".hashCode());
+    String text = "(a) )AH (a) (a) )AH )AH";
+    TokenizerME reference = new TokenizerME(model);
+    assertNotEquals(Arrays.asList(reference.tokenizePos("(a)")), Arrays.asList(reference.tokenizePos(")AH")));
+    OffsetTokenizer tokenizer = new OffsetTokenizer(new TokenizerME(model));
+    for (int round = 0; round < 3; round++) {
+      assertArrayEquals(expected(reference, text), actual(tokenizer, text));
+    }
+
+    StringWriter out = new StringWriter();
+    int[] offsets = new int[2 * text.length()];
+    OffsetTokenizer.write(text, offsets, tokenizer.tokenize(text, offsets), out);
+    assertEquals(String.join("\n", reference.tokenize(text)) + "\n", out.toString());
+  }
+
+  @Test
+  void smallArrayReportsNeededSize() {
+    String text = "one two three four";
+    OffsetTokenizer tokenizer = new OffsetTokenizer(new TokenizerME(model));
+    int[] offsets = new int[3];
+    assertEquals(4, tokenizer.tokenize(text, offsets));
+    assertArrayEquals(new int[] {0, 3, 0}, offsets);
+  }
+
+  @Test
+  void bufferOverflowKeepsPosition() {
+    OffsetTokenizer tokenizer = new OffsetTokenizer(new TokenizerME(model));
+    IntBuffer offsets = IntBuffer.allocate(5);
+    offsets.put(-1);
+    assertThrows(BufferOverflowException.class, () -> tokenizer.tokenize("one two three", offsets));
+    assertEquals(1, offsets.position());
+    assertEquals(2, tokenizer.tokenize("one two", offsets));
+    assertEquals(5, offsets.position());
+  }
+}
@@ -0,0 +1,66 @@
+package org.fogbeam.example.opennlp.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba los límites de los cubos de {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+  private static final int OVERFLOW = LatencyHistogram.bucket(Long.MAX_VALUE);
+
+  @Test
+  void linearBuckets() {
+    for (long value = 0; value < 64; value++) {
+      assertEquals(value, LatencyHistogram.bucket(value));
+      assertEquals(value, LatencyHistogram.upperBound((int) value));
+    }
+  }
+
+  @Test
+  void firstLogLinearBuckets() {
+    // De 64 a 127 los cubos tienen 2 ns; de 128 a 255, 4 ns
+    assertEquals(63, LatencyHistogram.bucket(63));
+    assertEquals(64, LatencyHistogram.bucket(64));
+    assertEquals(64, LatencyHistogram.bucket(65));
+    assertEquals(65, LatencyHistogram.upperBound(64));
+    assertEquals(95, LatencyHistogram.bucket(127));
+    assertEquals(127, LatencyHistogram.upperBound(95));
+    assertEquals(96, LatencyHistogram.bucket(128));
+    assertEquals(131, LatencyHistogram.upperBound(96));
+  }
+
+  @Test
+  void bucketsAreContiguous() {
+    for (int bucket = 0; bucket < OVERFLOW; bucket++) {
+      long upper = LatencyHistogram.upperBound(bucket);
+      assertEquals(bucket, LatencyHistogram.bucket(upper));
+      assertEquals(bucket + 1, LatencyHistogram.bucket(upper + 1));
+    }
+  }
+
+  @Test
+  void overflowStartsAt2To40() {
+    long limit = 1L << 40;
+    assertEquals(limit - 1, LatencyHistogram.upperBound(OVERFLOW - 1));
+    assertEquals(OVERFLOW - 1, LatencyHistogram.bucket(limit - 1));
+    assertEquals(OVERFLOW, LatencyHistogram.bucket(limit));
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(OVERFLOW));
+  }
+
+  @Test
+  void overflowPercentileIsMax() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100);
+    long hour = TimeUnit.HOURS.toNanos(1);
+    histogram.record(hour);
+    assertEquals(101, histogram.getPercentile(50));
+    assertEquals(hour, histogram.getPercentile(100));
+    histogram.record(-5);
+    assertEquals(0, histogram.getPercentile(1));
+  }
+}